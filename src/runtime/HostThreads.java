@@ -0,0 +1,83 @@
+package runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/***************************************************************
+ *  host threads which carry guest threads.
+ *
+ *  A guest thread runs on a platform thread by default, or on a
+ *  virtual thread if it's asked for, e.g.
+ *
+ *      -Dyvm.thread.virtual=true
+ *
+ *  Virtual threads are looked up reflectively, so the vm still
+ *  runs on hosts which don't have them and falls back to platform
+ *  threads there. Guest monitors, the safepoint and the heap lock
+ *  are j.u.c locks, a guest thread blocked on them only parks its
+ *  virtual thread and the carrier goes on with others. Some waits
+ *  still pin the carrier: a thread waiting for another one to
+ *  initialize a class waits on the monitor of its MetaClass, and
+ *  short host critical sections, e.g. of the thread list or the
+ *  off-heap region, are synchronized.
+ *
+ ***************************************************************/
+public final class HostThreads {
+    public static final String VIRTUAL = "yvm.thread.virtual";
+
+    private static final boolean virtualByDefault = Boolean.getBoolean(VIRTUAL);
+    private static final MethodHandle ofVirtual;
+    private static final MethodHandle unstarted;
+
+    static {
+        MethodHandle factory = null;
+        MethodHandle build = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            factory = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilder));
+            build = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+            //preview builds refuse to create one unless preview is enabled
+            factory.invoke();
+        } catch (Throwable e) {
+            factory = null;
+            build = null;
+        }
+        ofVirtual = factory;
+        unstarted = build;
+    }
+
+    private HostThreads() {
+    }
+
+    public static boolean virtualThreadsSupported() {
+        return ofVirtual != null;
+    }
+
+    public static boolean virtualByDefault() {
+        return virtualByDefault && virtualThreadsSupported();
+    }
+
+    /***************************************************************
+     *  create an unstarted host thread, a platform thread is created
+     *  if virtual threads are not supported by host
+     *
+     ***************************************************************/
+    public static Thread newThread(String name, Runnable task, boolean virtual) {
+        Thread thread = null;
+        if (virtual && virtualThreadsSupported()) {
+            try {
+                thread = (Thread) unstarted.invoke(ofVirtual.invoke(), task);
+            } catch (Throwable e) {
+                thread = null;
+            }
+        }
+        if (thread == null) {
+            thread = new Thread(task);
+        }
+        thread.setName(name);
+        return thread;
+    }
+}
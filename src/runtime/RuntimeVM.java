@@ -1,11 +1,31 @@
 package runtime;
 
+import runtime.monitor.Monitors;
+import runtime.safepoint.Safepoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 public class RuntimeVM {
     private YHeap heap;
     private YMethodScope methodScope;
+    private ArrayList<YThread> threads;
+    private IdentityHashMap<YObject, YThread> guestThreads;
+    private Set<YObject> startedThreadObjects;
+    private Safepoint safepoint;
+    private Monitors monitors;
 
     public RuntimeVM(){
-        heap = new YHeap();
+        threads = new ArrayList<>();
+        guestThreads = new IdentityHashMap<>();
+        startedThreadObjects = Collections.newSetFromMap(new WeakHashMap<>());
+        safepoint = new Safepoint(this);
+        monitors = new Monitors(this);
+        heap = new YHeap(this);
         methodScope = new YMethodScope();
     }
 
@@ -17,4 +37,53 @@ public class RuntimeVM {
     public synchronized YMethodScope methodScope(){
         return methodScope;
     }
+
+    /***************************************************************
+     *  it's read by every poll of interpreter, so it's not guarded by
+     *  the vm lock
+     *
+     ***************************************************************/
+    public Safepoint safepoint() {
+        return safepoint;
+    }
+
+    public Monitors monitors() {
+        return monitors;
+    }
+
+    public synchronized void addThread(YThread thread) {
+        threads.add(thread);
+    }
+
+    /***************************************************************
+     *  a guest thread started by java/lang/Thread.start0() is found
+     *  by its thread object until it terminates. A thread object is
+     *  started at most once, it's false if it was started before,
+     *  even if that thread has terminated since
+     *
+     ***************************************************************/
+    public synchronized boolean addThread(YThread thread, YObject threadObject) {
+        if (!startedThreadObjects.add(threadObject)) {
+            return false;
+        }
+        thread.threadObject(threadObject);
+        guestThreads.put(threadObject, thread);
+        return true;
+    }
+
+    public synchronized void removeThread(YThread thread) {
+        threads.remove(thread);
+    }
+
+    public synchronized void threadTerminated(YThread thread) {
+        guestThreads.remove(thread.threadObject());
+    }
+
+    public synchronized YThread threadOf(YObject threadObject) {
+        return guestThreads.get(threadObject);
+    }
+
+    public synchronized List<YThread> threads() {
+        return new ArrayList<>(threads);
+    }
 }
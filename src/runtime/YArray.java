@@ -1,7 +1,12 @@
 package runtime;
 
+import runtime.gc.OffHeapRegion;
+
 public class YArray extends YObject{
     private int length;
+    private String arrayType = "[Ljava/lang/Object;";
+    private OffHeapRegion region;
+    private int offHeapReference;
 
     public YArray(int dimension) {
         super(dimension);
@@ -13,10 +18,109 @@ public class YArray extends YObject{
     }
 
     public YObject get(int index) {
+        if (region != null) {
+            return region.load(offHeapReference, index);
+        }
         return getArrayComponent(index);
     }
 
     public void set(int index, YObject value) {
+        if (region != null) {
+            region.store(offHeapReference, index, value);
+            return;
+        }
         setArrayComponent(index,value);
     }
+
+    @Override
+    public boolean hasSlot(int index) {
+        return index >= 0 && index < length;
+    }
+
+    @Override
+    public YObject getSlotVolatile(int index) {
+        if (region != null) {
+            return region.loadVolatile(offHeapReference, index);
+        }
+        return super.getSlotVolatile(index);
+    }
+
+    @Override
+    public void setSlotVolatile(int index, YObject value) {
+        if (region != null) {
+            region.storeVolatile(offHeapReference, index, value);
+            return;
+        }
+        super.setSlotVolatile(index, value);
+    }
+
+    @Override
+    public void setSlotRelease(int index, YObject value) {
+        if (region != null) {
+            region.storeRelease(offHeapReference, index, value);
+            return;
+        }
+        super.setSlotRelease(index, value);
+    }
+
+    @Override
+    public boolean compareAndSetPrimitiveSlot(int index, long expected, YObject value) {
+        if (region != null) {
+            return region.compareAndSet(offHeapReference, index, expected, value);
+        }
+        return super.compareAndSetPrimitiveSlot(index, expected, value);
+    }
+
+    /***************************************************************
+     *  array type descriptor, e.g. [I or [Ljava/lang/String;
+     *
+     ***************************************************************/
+    public void arrayType(String arrayType) {
+        this.arrayType = arrayType;
+    }
+
+    @Override
+    public String typeName() {
+        return arrayType;
+    }
+
+    public boolean isPrimitiveArray() {
+        return arrayType.length() == 2 && arrayType.charAt(1) != 'L' && arrayType.charAt(1) != '[';
+    }
+
+    /***************************************************************
+     *  move components of a primitive array into off-heap region,
+     *  return false if the region is full
+     *
+     ***************************************************************/
+    public boolean moveOffHeap(OffHeapRegion region) {
+        int reference = region.allocate(arrayType.charAt(1), length);
+        if (reference == OffHeapRegion.NULL) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            region.store(reference, i, getArrayComponent(i));
+        }
+        releaseSlots();
+        this.region = region;
+        offHeapReference = reference;
+        return true;
+    }
+
+    public boolean isOffHeap() {
+        return region != null;
+    }
+
+    /***************************************************************
+     *  compressed reference of the off-heap block, it changes when
+     *  the region is compacted
+     *
+     ***************************************************************/
+    public int offHeapReference() {
+        return offHeapReference;
+    }
+
+    public void offHeapReference(int reference) {
+        offHeapReference = reference;
+    }
 }
@@ -1,21 +1,766 @@
 package runtime;
 
+import runtime.gc.*;
+import runtime.profile.AllocationProfiler;
+import runtime.profile.HeapDumper;
+import runtime.profile.Histogram;
+import runtime.safepoint.Safepoint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+/***************************************************************
+ *  generational guest heap.
+ *
+ *  Young generation consists of eden and two survivor spaces,
+ *  guest threads allocate in eden through their own allocation
+ *  buffers. Objects surviving enough minor collections, and
+ *  objects too large for young generation, live in old space.
+ *  A full collection marks and sweeps all spaces.
+ *
+ *  In arena mode, each top-level guest invocation allocates in
+ *  its own region instead of eden. Regions share the capacity of
+ *  old space and are not collected individually, a region which
+ *  didn't escape is freed at once when its invocation returns.
+ *
+ *  In off-heap mode, components of primitive arrays are stored in
+ *  an off-heap region with real layouts, the region is compacted
+ *  after each full collection.
+ *
+ *  Allocations can be sampled by an allocation profiler, and a
+ *  histogram of live objects can be taken at a safepoint.
+ *
+ *  Collections run at a global safepoint. A guest thread enters a
+ *  safe region before it takes the heap lock, so a thread which
+ *  waits for the lock, or collects the heap itself, never holds up
+ *  the safepoint. Heap operations which need a safepoint always
+ *  take the heap lock first. The heap lock is a ReentrantLock, not
+ *  the monitor of the heap, so a guest thread waiting for it parks
+ *  its virtual thread and doesn't pin the carrier.
+ *
+ ***************************************************************/
 public class YHeap {
-    private ArrayList<YArray> arrayArea;
-    private ArrayList<YObject> objectArea;
+    private Space eden;
+    private Space survivorFrom;
+    private Space survivorTo;
+    private OldSpace old;
+    private Set<YObject> remembered;
+    private HashMap<String, YObject> stringTable;
+
+    private RuntimeVM runtimeVMRef;
+    private GCOptions options;
+    private GarbageCollector collector;
+    private CopyingNurseryCollector nurseryCollector;
+    private ConcurrentMarker concurrentMarker;
+    private RootScanner roots;
+    private long collectThreshold;
+    private int epoch;
+    private GCPhaseTimes lastPhaseTimes;
+    private AtomicLong arenaBytes;
+    private AllocationProfiler allocationProfiler;
+    private OffHeapRegion offHeap;
+    private Set<YArray> offHeapInFlight;
+    private ReentrantLock lock;
+
+    public YHeap(RuntimeVM runtimeVM) {
+        this(runtimeVM, GCOptions.fromSystemProperties());
+    }
+
+    public YHeap(RuntimeVM runtimeVM, GCOptions options) {
+        long survivorSize = options.youngSize() / 8;
+        eden = new Space("eden", options.youngSize());
+        survivorFrom = new Space("survivor0", survivorSize);
+        survivorTo = new Space("survivor1", survivorSize);
+        old = new OldSpace(Math.max(0, options.maxHeapSize() - options.youngSize() - 2 * survivorSize));
+        remembered = Collections.newSetFromMap(new IdentityHashMap<>());
+        stringTable = new HashMap<>();
+        arenaBytes = new AtomicLong();
+        offHeapInFlight = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        lock = new ReentrantLock();
+
+        this.runtimeVMRef = runtimeVM;
+        this.options = options;
+        collector = options.parallelThreads() > 1
+                ? new ParallelMarkSweepCollector(options.parallelThreads())
+                : new MarkSweepCollector();
+        nurseryCollector = new CopyingNurseryCollector(options.tenuringThreshold());
+        roots = new RootScanner(runtimeVM);
+        concurrentMarker = new ConcurrentMarker(this, roots);
+        if (options.offHeap()) {
+            offHeap = new OffHeapRegion(options.offHeapSize(), options.offHeapFile());
+        }
+        if (options.allocationSampleInterval() > 0) {
+            allocationProfiler = new AllocationProfiler(options.allocationSampleInterval());
+        }
+        collectThreshold = options.concurrent()
+                ? old.capacity()
+                : Math.min(options.initialHeapSize(), old.capacity());
+    }
+
+    /***************************************************************
+     *  allocate a new object for guest thread. The fast path is a
+     *  pointer bump in thread local allocation buffer without any
+     *  lock, large objects and buffer refilling take the slow path.
+     *  Objects allocated during concurrent marking are marked at once
+     *
+     ***************************************************************/
+    public void allocate(YThread thread, YObject object) {
+        if (offHeap != null && object instanceof YArray && ((YArray) object).isPrimitiveArray()) {
+            YArray array = (YArray) object;
+            offHeapInFlight.add(array);
+            try {
+                allocateOffHeap(thread, array);
+                allocateOnHeap(thread, array);
+            } finally {
+                offHeapInFlight.remove(array);
+            }
+            return;
+        }
+        allocateOnHeap(thread, object);
+    }
+
+    private void allocateOnHeap(YThread thread, YObject object) {
+        long size = object.shallowSize();
+        if (thread.arena() != null) {
+            allocateInArena(thread, object, size);
+        } else if (size > options.tlabSize() / 2 || !thread.tlab().allocate(object, size)) {
+            Safepoint safepoint = runtimeVMRef.safepoint();
+            safepoint.enterSafeRegion(thread);
+            try {
+                allocateSlow(thread.tlab(), object, size);
+            } finally {
+                safepoint.leaveSafeRegion(thread);
+            }
+        }
+        allocateBlackIfMarking(object);
+        if (allocationProfiler != null) {
+            allocationProfiler.sample(thread, object, size);
+        }
+    }
+
+    /***************************************************************
+     *  move components of a primitive array into off-heap region, a
+     *  full collection compacts the region if it's full. The array
+     *  is in flight until it's added to a space, a collection run by
+     *  its allocation keeps its block as if it were reachable
+     *
+     ***************************************************************/
+    private void allocateOffHeap(YThread thread, YArray array) {
+        if (array.moveOffHeap(offHeap)) {
+            return;
+        }
+        Safepoint safepoint = runtimeVMRef.safepoint();
+        safepoint.enterSafeRegion(thread);
+        try {
+            lock.lock();
+            try {
+                gc();
+                if (!array.moveOffHeap(offHeap)) {
+                    throw new OutOfMemoryError("guest off-heap region, used " + offHeap.usedBytes()
+                            + " bytes, capacity " + offHeap.capacity() + " bytes");
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            safepoint.leaveSafeRegion(thread);
+        }
+    }
+
+    private void allocateSlow(ThreadLocalAllocationBuffer tlab, YObject object, long size) {
+        lock.lock();
+        try {
+            if (size <= options.tlabSize() / 2) {
+                eden.adopt(tlab.retire());
+                if (!eden.hasRoom(options.tlabSize())) {
+                    collectYoung();
+                }
+                if (eden.hasRoom(options.tlabSize())) {
+                    eden.reserve(options.tlabSize());
+                    tlab.refill(options.tlabSize());
+                    tlab.allocate(object, size);
+                    return;
+                }
+            } else if (size <= eden.capacity()) {
+                if (!eden.hasRoom(size)) {
+                    collectYoung();
+                }
+                if (eden.hasRoom(size)) {
+                    object.generation(Generation.YOUNG);
+                    object.age(0);
+                    eden.add(object);
+                    return;
+                }
+            }
+            allocateOld(object, size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void allocateOld(YObject object, long size) {
+        if (old.usedBytes() + size > collectThreshold) {
+            gc();
+        }
+        if (!old.hasRoom(size + arenaBytes.get())) {
+            throw outOfMemory();
+        }
+        old.add(object);
+        startConcurrentCycleIfNeeded();
+    }
+
+    /***************************************************************
+     *  append an object to the region of current task, a full
+     *  collection is tried only when regions and old space together
+     *  exceed the capacity of old space
+     *
+     ***************************************************************/
+    private void allocateInArena(YThread thread, YObject object, long size) {
+        if (arenaBytes.addAndGet(size) + old.usedBytes() > old.capacity()) {
+            Safepoint safepoint = runtimeVMRef.safepoint();
+            safepoint.enterSafeRegion(thread);
+            try {
+                lock.lock();
+                try {
+                    gc();
+                    if (arenaBytes.get() + old.usedBytes() > old.capacity()) {
+                        arenaBytes.addAndGet(-size);
+                        throw outOfMemory();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                safepoint.leaveSafeRegion(thread);
+            }
+        }
+        thread.arena().add(object, size);
+    }
+
+    /***************************************************************
+     *  give current thread an allocation region if arena mode is on
+     *  and it's not running a task yet. Return the new region, or
+     *  null if nothing was opened
+     *
+     ***************************************************************/
+    public Arena openArena(YThread thread) {
+        if (!options.arena() || thread.arena() != null) {
+            return null;
+        }
+        Arena arena = new Arena();
+        thread.arena(arena);
+        return arena;
+    }
+
+    /***************************************************************
+     *  finish the task of current thread. Objects of its region are
+     *  dropped at once if none of them escaped, otherwise they are
+     *  moved into old space and left to ordinary collections
+     *
+     ***************************************************************/
+    public void closeArena(YThread thread, Arena arena) {
+        thread.arena(null);
+        if (!arena.isEscaped()) {
+            long freed = arena.usedBytes();
+            arena.release();
+            arenaBytes.addAndGet(-freed);
+            if (options.verbose()) {
+                System.out.println("[arena released " + freed + " bytes]");
+            }
+            return;
+        }
+        Safepoint safepoint = runtimeVMRef.safepoint();
+        safepoint.enterSafeRegion(thread);
+        try {
+            lock.lock();
+            try {
+                promoteArena(arena);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            safepoint.leaveSafeRegion(thread);
+        }
+    }
+
+    private void promoteArena(Arena arena) {
+        for (YObject object : arena.objects()) {
+            object.arena(null);
+            old.add(object);
+            old.rememberIfPointsToYoung(object);
+            allocateBlackIfMarking(object);
+        }
+        long promoted = arena.usedBytes();
+        arena.release();
+        arenaBytes.addAndGet(-promoted);
+        if (options.verbose()) {
+            System.out.println("[arena promoted " + promoted + " bytes]");
+        }
+        if (old.usedBytes() > collectThreshold) {
+            gc();
+        }
+        startConcurrentCycleIfNeeded();
+    }
+
+    private void allocateBlackIfMarking(YObject object) {
+        if (concurrentMarker.isMarking()) {
+            object.gcEpoch(concurrentMarker.epoch());
+        }
+    }
+
+    /***************************************************************
+     *  start concurrent marking once old space occupancy reaches
+     *  the initiating threshold, the caller must hold the heap lock
+     *
+     ***************************************************************/
+    private void startConcurrentCycleIfNeeded() {
+        if (options.concurrent()
+                && old.usedBytes() * 100 > old.capacity() * options.initiatingOccupancy()) {
+            concurrentMarker.startCycle();
+        }
+    }
+
+    /***************************************************************
+     *  literal strings are interned, the same literal always refers
+     *  to the same object, and interned strings are always alive,
+     *  so they are allocated in old space directly
+     *
+     ***************************************************************/
+    public YObject internString(YThread thread, String literal) {
+        Safepoint safepoint = runtimeVMRef.safepoint();
+        safepoint.enterSafeRegion(thread);
+        try {
+            lock.lock();
+            try {
+                YObject interned = stringTable.get(literal);
+                if (interned == null) {
+                    interned = YObject.derivedFrom(literal);
+                    allocateOld(interned, interned.shallowSize());
+                    allocateBlackIfMarking(interned);
+                    stringTable.put(literal, interned);
+                }
+                return interned;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            safepoint.leaveSafeRegion(thread);
+        }
+    }
+
+    public Collection<YObject> internedStrings() {
+        lock.lock();
+        try {
+            return new ArrayList<>(stringTable.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  write barrier of reference stores, i.e. putfield, putstatic
+     *  and aastore, it must be called before the store.
+     *
+     *  While concurrent marking is running, the overwritten value is
+     *  logged to the SATB buffer of current thread. Then the target
+     *  is recorded if an old or untracked object starts referring to
+     *  a young object. A region escapes if one of its objects is
+     *  stored into an object outside of it
+     *
+     ***************************************************************/
+    public void writeBarrier(YThread thread, YObject target, YObject oldValue, YObject value) {
+        if (oldValue != null && concurrentMarker.isMarking()) {
+            List<YObject> filled = thread.satbBuffer().enqueue(oldValue);
+            if (filled != null) {
+                concurrentMarker.enqueueSATB(filled);
+            }
+        }
+        if (value != null && value.generation() == Generation.ARENA && target.arena() != value.arena()) {
+            value.arena().escape();
+        }
+        if (value == null || value.generation() != Generation.YOUNG) {
+            return;
+        }
+        if (target.generation() == Generation.OLD) {
+            old.cardTable().dirty(target.oldSlot());
+        } else if (target.generation() == Generation.UNTRACKED) {
+            synchronized (remembered) {
+                remembered.add(target);
+            }
+        }
+    }
+
+    /***************************************************************
+     *  a terminated guest thread leaves the vm, objects of its TLAB
+     *  are handed over to eden and its SATB buffer to concurrent
+     *  marker, so nothing it allocated or logged is lost
+     *
+     ***************************************************************/
+    public void detachThread(YThread thread) {
+        lock.lock();
+        try {
+            eden.adopt(thread.tlab().retire());
+            List<YObject> logged = thread.satbBuffer().drain();
+            if (!logged.isEmpty() && concurrentMarker.isMarking()) {
+                concurrentMarker.enqueueSATB(logged);
+            }
+            runtimeVMRef.removeThread(thread);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  perform a minor collection, a full collection follows if old
+     *  space grows over its threshold after promotion. Promotion may
+     *  overflow old space, if live data still can not fit in it after
+     *  full collection, the heap is exhausted
+     *
+     ***************************************************************/
+    public void collectYoung() {
+        lock.lock();
+        try {
+            GCPhaseTimes times = new GCPhaseTimes("minor");
+            times.begin("safepoint");
+            runtimeVMRef.safepoint().begin("minor collection");
+            try {
+                retireAllBuffers();
+                nurseryCollector.collect(this, roots, times);
+            } finally {
+                runtimeVMRef.safepoint().end();
+            }
+            report(times);
+            startConcurrentCycleIfNeeded();
+            if (old.usedBytes() > collectThreshold) {
+                gc();
+                if (old.usedBytes() > old.capacity()) {
+                    throw outOfMemory();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  perform a full collection explicitly
+     *
+     ***************************************************************/
+    public void gc() {
+        lock.lock();
+        try {
+            GCPhaseTimes times = new GCPhaseTimes("full");
+            times.begin("safepoint");
+            runtimeVMRef.safepoint().begin("full collection");
+            try {
+                concurrentMarker.abort();
+                retireAllBuffers();
+                collector.collect(this, roots, times);
+                if (offHeap != null) {
+                    times.begin("compact off-heap");
+                    offHeap.compact(liveOffHeapArrays());
+                }
+                times.begin("deflate monitors");
+                runtimeVMRef.monitors().deflateIdleMonitors();
+            } finally {
+                runtimeVMRef.safepoint().end();
+            }
+            report(times);
+            if (!options.concurrent()) {
+                collectThreshold = Math.min(old.capacity(),
+                        Math.max(options.initialHeapSize(), old.usedBytes() * 2));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  run a heap operation at a global safepoint. It's a pause of
+     *  concurrent collection, and its time is reported like other
+     *  collections
+     *
+     ***************************************************************/
+    public void stopTheWorld(String pause, Runnable operation) {
+        lock.lock();
+        try {
+            GCPhaseTimes times = new GCPhaseTimes("pause");
+            times.begin("safepoint");
+            runtimeVMRef.safepoint().begin(pause);
+            try {
+                times.begin(pause);
+                operation.run();
+            } finally {
+                runtimeVMRef.safepoint().end();
+            }
+            report(times);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  count live objects by type, like jmap -histo. Objects which
+     *  are unreachable but not collected yet are counted as well.
+     *  It walks all spaces and regions at a global safepoint, so it
+     *  must not be called by guest code holding no safe region
+     *
+     ***************************************************************/
+    public Histogram histogram() {
+        lock.lock();
+        try {
+            Histogram histogram = new Histogram("class name");
+            stopTheWorld("heap histogram", () -> {
+                retireAllBuffers();
+                for (Space space : spaces()) {
+                    for (YObject object : space.objects()) {
+                        histogram.add(object.typeName(), 1, object.shallowSize());
+                    }
+                }
+                for (YThread thread : runtimeVMRef.threads()) {
+                    if (thread.arena() != null) {
+                        for (YObject object : thread.arena().objects()) {
+                            histogram.add(object.typeName(), 1, object.shallowSize());
+                        }
+                    }
+                }
+            });
+            return histogram;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  write all guest objects to a file in HPROF binary format at a
+     *  global safepoint, see HeapDumper
+     *
+     ***************************************************************/
+    public void dumpHeap(Path path) throws IOException {
+        lock.lock();
+        try {
+            IOException[] failure = new IOException[1];
+            stopTheWorld("heap dump", () -> {
+                retireAllBuffers();
+                try {
+                    new HeapDumper(runtimeVMRef).dump(path);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  off-heap region of primitive arrays, null if off-heap mode is
+     *  off
+     *
+     ***************************************************************/
+    public OffHeapRegion offHeapRegion() {
+        return offHeap;
+    }
+
+    /***************************************************************
+     *  allocation profiler, null if allocation sampling is off
+     *
+     ***************************************************************/
+    public AllocationProfiler allocationProfiler() {
+        return allocationProfiler;
+    }
+
+    public void reportConcurrentCycle(GCPhaseTimes times) {
+        lock.lock();
+        try {
+            report(times);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long usedBytes() {
+        lock.lock();
+        try {
+            return eden.usedBytes() + survivorFrom.usedBytes() + survivorTo.usedBytes() + old.usedBytes()
+                    + arenaBytes.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long maxBytes() {
+        return options.maxHeapSize();
+    }
+
+    /***************************************************************
+     *  start a new marking epoch, objects whose gc epoch is not
+     *  equal to it are treated as unmarked
+     *
+     ***************************************************************/
+    public int nextEpoch() {
+        lock.lock();
+        try {
+            return ++epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  remove all objects which were not marked in given epoch and
+     *  return the number of freed bytes
+     *
+     ***************************************************************/
+    public long sweep(int markEpoch) {
+        lock.lock();
+        try {
+            long freed = eden.sweep(markEpoch)
+                    + survivorFrom.sweep(markEpoch)
+                    + survivorTo.sweep(markEpoch)
+                    + old.sweep(markEpoch);
+            forgetRemembered(object -> object.gcEpoch() != markEpoch);
+            return freed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  phase timings of the latest collection, null if heap was
+     *  never collected
+     *
+     ***************************************************************/
+    public GCPhaseTimes lastPhaseTimes() {
+        lock.lock();
+        try {
+            return lastPhaseTimes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Space> spaces() {
+        return Arrays.asList(eden, survivorFrom, survivorTo, old);
+    }
+
+    public RuntimeVM runtimeVM() {
+        return runtimeVMRef;
+    }
+
+    /***************************************************************
+     *  the heap lock, a collection may only start while it's held
+     *
+     ***************************************************************/
+    public ReentrantLock lock() {
+        return lock;
+    }
+
+    public ConcurrentMarker concurrentMarker() {
+        return concurrentMarker;
+    }
+
+    public Space eden() {
+        return eden;
+    }
+
+    public Space survivorFrom() {
+        return survivorFrom;
+    }
+
+    public Space survivorTo() {
+        return survivorTo;
+    }
+
+    public OldSpace oldSpace() {
+        return old;
+    }
+
+    public void swapSurvivors() {
+        Space temp = survivorFrom;
+        survivorFrom = survivorTo;
+        survivorTo = temp;
+    }
+
+    public List<YObject> rememberedObjects() {
+        synchronized (remembered) {
+            return new ArrayList<>(remembered);
+        }
+    }
+
+    public void forgetRemembered(Predicate<YObject> filter) {
+        synchronized (remembered) {
+            remembered.removeIf(filter);
+        }
+    }
+
+    private void report(GCPhaseTimes times) {
+        times.finish();
+        lastPhaseTimes = times;
+        if (options.verbose()) {
+            System.out.println(times + " heap " + usedBytes() + "/" + options.maxHeapSize());
+        }
+    }
 
-    public YHeap() {
-        arrayArea = new ArrayList<>();
-        objectArea = new ArrayList<>();
+    private OutOfMemoryError outOfMemory() {
+        return new OutOfMemoryError("guest heap space, used " + usedBytes()
+                + " bytes, max " + options.maxHeapSize() + " bytes");
     }
 
-    public void addToArrayArea(YArray array) {
-        arrayArea.add(array);
+    /***************************************************************
+     *  off-heap arrays reachable from roots or from objects which
+     *  survived in heap spaces, and arrays being allocated. They're
+     *  traced rather than picked out of spaces, so an array
+     *  referenced only by an object outside the spaces, e.g. one
+     *  being promoted, still keeps its block
+     *
+     ***************************************************************/
+    private List<YArray> liveOffHeapArrays() {
+        ArrayList<YArray> arrays = new ArrayList<>();
+        Set<YObject> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<YObject> workList = new ArrayDeque<>();
+        Consumer<YObject> discover = object -> {
+            if (object != null && visited.add(object)) {
+                workList.push(object);
+            }
+        };
+        roots.scan(discover);
+        for (Space space : spaces()) {
+            space.objects().forEach(discover);
+        }
+        synchronized (offHeapInFlight) {
+            offHeapInFlight.forEach(discover);
+        }
+        while (!workList.isEmpty()) {
+            YObject object = workList.pop();
+            if (object instanceof YArray && ((YArray) object).isOffHeap()) {
+                arrays.add((YArray) object);
+            } else {
+                object.visitReferences(discover);
+            }
+        }
+        return arrays;
     }
 
-    public void addToObjectArea(YObject object) {
-        objectArea.add(object);
+    private void retireAllBuffers() {
+        for (YThread thread : runtimeVMRef.threads()) {
+            eden.adopt(thread.tlab().retire());
+        }
     }
 }
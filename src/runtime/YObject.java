@@ -2,6 +2,7 @@ package runtime;
 
 import common.Tuple4;
 import common.Tuple6;
+import runtime.gc.Arena;
 import runtime.meta.MetaClass;
 import runtime.rtexception.VMExecutionException;
 import ycloader.YClassLoader;
@@ -10,12 +11,59 @@ import ycloader.exception.ClassLinkingException;
 import ycloader.exception.ClassLoadingException;
 import yvm.auxil.Peel;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Map;
-
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+
+/***************************************************************
+ *  guest object.
+ *
+ *  Besides the class pointer, all per-object state lives in one
+ *  header word
+ *      bits 0-23       lock word, see runtime.monitor.Monitors
+ *      bits 24-25      generation, see runtime.gc.Generation
+ *      bits 26-29      age, so it's at most MAX_AGE
+ *      bit  30         whether fields are initialized
+ *      bits 32-62      identity hash, 0 if it's not assigned yet
+ *
+ *  Fields and array components are stored in one slot array. A
+ *  primitive or string YObject has no slot array, its host value
+ *  is stored inline instead. Slots can also be accessed with
+ *  volatile, release and CAS semantics, which sun/misc/Unsafe
+ *  intrinsics are built on.
+ *
+ ***************************************************************/
 public class YObject{
+    private static final int OBJECT_HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 8;
+    private static final AtomicIntegerFieldUpdater<YObject> GC_EPOCH =
+            AtomicIntegerFieldUpdater.newUpdater(YObject.class, "gcEpoch");
+    private static final AtomicLongFieldUpdater<YObject> HEADER =
+            AtomicLongFieldUpdater.newUpdater(YObject.class, "header");
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    public static final int MAX_AGE = 15;
+    public static final int LOCK_WORD_BITS = 24;
+
+    private static final long LOCK_WORD_MASK = (1L << LOCK_WORD_BITS) - 1;
+    private static final int GENERATION_SHIFT = 24;
+    private static final long GENERATION_MASK = 0x3L << GENERATION_SHIFT;
+    private static final int AGE_SHIFT = 26;
+    private static final long AGE_MASK = 0xFL << AGE_SHIFT;
+    private static final long INITIALIZED_BIT = 1L << 30;
+    private static final int HASH_SHIFT = 32;
+    private static final long HASH_MASK = 0x7FFFFFFFL << HASH_SHIFT;
+
     private MetaClass metaClassReference;
-    private Object[] fields;
-    private boolean fieldsInitialized;
+    private Object payload;
+    private volatile long header;
+    private volatile int gcEpoch;
+    private int oldSlot;
+    private Arena arena;
     /***************************************************************
      *  create a primitive type YObject. as*() methods stuffing this
      *  object as if assignment operation.
@@ -26,7 +74,7 @@ public class YObject{
      ***************************************************************/
     @SuppressWarnings("unused")
     public YObject(){
-        fields = new Object[1];
+        payload = null;
         metaClassReference = null;
     }
 
@@ -39,7 +87,7 @@ public class YObject{
 
     @SuppressWarnings("unused")
     public YObject(int dimension) {
-        fields = new Object[dimension];
+        payload = new Object[dimension];
         metaClassReference = null;
     }
 
@@ -50,7 +98,7 @@ public class YObject{
     @SuppressWarnings("unused")
     public YObject(MetaClass metaClass) {
         metaClassReference = metaClass;
-        fields = null;
+        payload = null;
     }
 
     @SuppressWarnings("unused")
@@ -106,7 +154,8 @@ public class YObject{
          *  create real fields, they will be used to store fields data
          *
          ***************************************************************/
-        fields = new Object[fieldsNum];
+        Object[] fields = new Object[fieldsNum];
+        payload = fields;
 
 
         /***************************************************************
@@ -146,7 +195,7 @@ public class YObject{
                     MetaClass meta = loader.linkClass(bundle1);
                     loader.getStartupThread().runtimeVM().methodScope().addMetaClass(meta);
                     loader.loadInheritanceChain(meta.superClassName);
-                    loader.initializeClass(meta);
+                    loader.completeLinking(meta);
                 } catch (ClassInitializingException | ClassLinkingException | ClassLoadingException e) {
                     throw new VMExecutionException("can not load class" + Peel.peelFieldDescriptor(Peel.peelFieldDescriptor(((Tuple4) bundle).get2Placeholder().toString()).get(0))
                             + " while executing anewarray opcode");
@@ -159,10 +208,9 @@ public class YObject{
                 case "java/lang/Short":
                 case "java/lang/Long":
                 case "java/lang/Integer":
-                    fields[counter.get()] = YObject.derivedFrom(0);
-                    break;
                 case "java/lang/Character":
-                    fields[counter.get()] = YObject.derivedFrom('\u0000');
+                case "java/lang/Boolean":
+                    fields[counter.get()] = YObject.derivedFrom(0);
                     break;
                 case "java/lang/Double":
                     fields[counter.get()] = YObject.derivedFrom(0.0);
@@ -170,9 +218,6 @@ public class YObject{
                 case "java/lang/Float":
                     fields[counter.get()] = YObject.derivedFrom(0.0F);
                     break;
-                case "java/lang/Boolean":
-                    fields[counter.get()] = YObject.derivedFrom(false);
-                    break;
                 default:
                     fields[counter.get()] = new YObject(
                             loader.getStartupThread()
@@ -190,115 +235,381 @@ public class YObject{
          *  set fieldsInitialized flag to true
          *
          ***************************************************************/
-        fieldsInitialized = true;
+        setHeader(INITIALIZED_BIT, INITIALIZED_BIT);
     }
 
     @SuppressWarnings("unused")
     public YObject getField(int index) {
-        return (YObject) fields[index];
+        return (YObject) slots()[index];
     }
 
     @SuppressWarnings("unused")
     public void setField(int index, YObject value) {
-        fields[index] = value;
+        slots()[index] = value;
     }
 
     @SuppressWarnings("unused")
     public boolean isInitialized() {
-        return fieldsInitialized;
+        return (header & INITIALIZED_BIT) != 0;
     }
 
     @SuppressWarnings("unused")
     YObject asInteger(int x){
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
     @SuppressWarnings("unused")
     YObject asLong(long x){
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
     @SuppressWarnings("unused")
     YObject asDouble(double x){
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
     @SuppressWarnings("unused")
     YObject asFloat(float x){
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
     @SuppressWarnings("unused")
     YObject asBoolean(boolean x) {
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
     @SuppressWarnings("unused")
     YObject asChar(char x) {
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
 
     @SuppressWarnings("unused")
     YObject asString(String x) {
-        fields[0] = x;
+        payload = x;
         return this;
     }
 
     @SuppressWarnings("unused")
     public int toInteger(){
-        return (int) fields[0];
+        return (int) payload;
     }
 
     @SuppressWarnings("unused")
     public long toLong(){
-        return (long) fields[0];
+        return (long) payload;
     }
 
     @SuppressWarnings("unused")
     public double toDouble(){
-        return (double) fields[0];
+        return (double) payload;
     }
 
     @SuppressWarnings("unused")
     public float toFloat(){
-        return (float) fields[0];
+        return (float) payload;
     }
 
 
     @SuppressWarnings("unused")
     public String toString() {
-        return (String) fields[0];
+        return (String) payload;
     }
 
     @SuppressWarnings("unused")
     public boolean toBoolean() {
-        return (boolean) fields[0];
+        return (boolean) payload;
     }
 
     @SuppressWarnings("unused")
     public char toChar() {
-        return (char) fields[0];
+        return (char) payload;
     }
 
     @SuppressWarnings("unused")
     void setArrayComponent(int index, YObject value) {
-        fields[index] = value;
+        slots()[index] = value;
     }
 
     @SuppressWarnings("unused")
     YObject getArrayComponent(int index) {
-        return (YObject) fields[index];
+        return (YObject) slots()[index];
+    }
+
+    private Object[] slots() {
+        return (Object[]) payload;
+    }
+
+    /***************************************************************
+     *  whether the index-th field or array component exists, a
+     *  primitive or string YObject has no slot at all
+     *
+     ***************************************************************/
+    public boolean hasSlot(int index) {
+        return payload instanceof Object[] && index >= 0 && index < ((Object[]) payload).length;
+    }
+
+    /***************************************************************
+     *  atomic access to a field or array component. References are
+     *  compared by identity, while a primitive slot holds an immutable
+     *  box, so it's compared by value and replaced by a new box
+     *
+     ***************************************************************/
+    public YObject getSlotVolatile(int index) {
+        return (YObject) SLOTS.getVolatile(slots(), index);
+    }
+
+    public void setSlotVolatile(int index, YObject value) {
+        SLOTS.setVolatile(slots(), index, value);
+    }
+
+    public void setSlotRelease(int index, YObject value) {
+        SLOTS.setRelease(slots(), index, value);
+    }
+
+    public boolean compareAndSetSlot(int index, YObject expected, YObject value) {
+        return SLOTS.compareAndSet(slots(), index, expected, value);
+    }
+
+    public boolean compareAndSetPrimitiveSlot(int index, long expected, YObject value) {
+        Object[] slots = slots();
+        while (true) {
+            YObject current = (YObject) SLOTS.getVolatile(slots, index);
+            if (numericValue(current) != expected) {
+                return false;
+            }
+            if (SLOTS.compareAndSet(slots, index, current, value)) {
+                return true;
+            }
+        }
+    }
+
+    /***************************************************************
+     *  value of a primitive YObject widened to long, it's how the
+     *  vm compares primitive slots whatever box they were given
+     *
+     ***************************************************************/
+    public static long numericValue(YObject object) {
+        Object value = object == null ? null : object.primitiveValue();
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return 0;
+    }
+
+    /***************************************************************
+     *  drop the slot array once components are stored elsewhere,
+     *  see YArray.moveOffHeap()
+     *
+     ***************************************************************/
+    void releaseSlots() {
+        payload = null;
     }
 
     @SuppressWarnings("unused")
     public String getClassName() {
         return metaClassReference.qualifiedClassName;
     }
+
+    /***************************************************************
+     *  number of fields or array components, primitive and string
+     *  YObject have no slot
+     *
+     ***************************************************************/
+    public int slotCount() {
+        return payload instanceof Object[] ? ((Object[]) payload).length : 0;
+    }
+
+    /***************************************************************
+     *  the host value of a primitive or string YObject, null for
+     *  other objects
+     *
+     ***************************************************************/
+    public Object primitiveValue() {
+        if (metaClassReference == null && !(payload instanceof Object[])) {
+            return payload;
+        }
+        return null;
+    }
+
+    /***************************************************************
+     *  internal name of the type of this object, it's used by heap
+     *  histogram. A primitive or string YObject is named after the
+     *  value it holds
+     *
+     ***************************************************************/
+    public String typeName() {
+        if (metaClassReference != null) {
+            return metaClassReference.qualifiedClassName;
+        }
+        Object value = primitiveValue();
+        if (value != null) {
+            return value.getClass().getName().replace('.', '/');
+        }
+        return "java/lang/Object";
+    }
+
+    /***************************************************************
+     *  the epoch of the last collection which marked this object,
+     *  see YHeap.nextEpoch()
+     *
+     ***************************************************************/
+    public int gcEpoch() {
+        return gcEpoch;
+    }
+
+    public void gcEpoch(int epoch) {
+        gcEpoch = epoch;
+    }
+
+    /***************************************************************
+     *  mark this object in given epoch atomically, only one of gc
+     *  workers racing on the same object would win
+     *
+     ***************************************************************/
+    public boolean tryMark(int epoch) {
+        int current = gcEpoch;
+        return current != epoch && GC_EPOCH.compareAndSet(this, current, epoch);
+    }
+
+    /***************************************************************
+     *  which generation this object lives in, see runtime.gc.Generation
+     *
+     ***************************************************************/
+    public int generation() {
+        return (int) ((header & GENERATION_MASK) >>> GENERATION_SHIFT);
+    }
+
+    public void generation(int generation) {
+        setHeader(GENERATION_MASK, (long) generation << GENERATION_SHIFT);
+    }
+
+    /***************************************************************
+     *  the number of minor collections this object survived
+     *
+     ***************************************************************/
+    public int age() {
+        return (int) ((header & AGE_MASK) >>> AGE_SHIFT);
+    }
+
+    public void age(int age) {
+        setHeader(AGE_MASK, (long) Math.min(age, MAX_AGE) << AGE_SHIFT);
+    }
+
+    /***************************************************************
+     *  identity hash of this object, it's assigned at the first call
+     *  and never changes, even if the object is moved between spaces
+     *
+     ***************************************************************/
+    public int identityHashCode() {
+        long current = header;
+        int hash = (int) ((current & HASH_MASK) >>> HASH_SHIFT);
+        while (hash == 0) {
+            int generated = ThreadLocalRandom.current().nextInt() & 0x7FFFFFFF;
+            if (generated != 0 && HEADER.compareAndSet(this, current,
+                    (current & ~HASH_MASK) | ((long) generated << HASH_SHIFT))) {
+                return generated;
+            }
+            current = header;
+            hash = (int) ((current & HASH_MASK) >>> HASH_SHIFT);
+        }
+        return hash;
+    }
+
+    /***************************************************************
+     *  lock word of header, it's only changed by CAS so that other
+     *  header bits are never lost
+     *
+     ***************************************************************/
+    public int lockWord() {
+        return (int) (header & LOCK_WORD_MASK);
+    }
+
+    public boolean casLockWord(int expected, int word) {
+        long current = header;
+        while ((current & LOCK_WORD_MASK) == expected) {
+            if (HEADER.compareAndSet(this, current, (current & ~LOCK_WORD_MASK) | (word & LOCK_WORD_MASK))) {
+                return true;
+            }
+            current = header;
+        }
+        return false;
+    }
+
+    /***************************************************************
+     *  replace bits of header word selected by mask, other bits may
+     *  be changed concurrently, e.g. by identity hash assignment
+     *
+     ***************************************************************/
+    private void setHeader(long mask, long bits) {
+        long current;
+        do {
+            current = header;
+        } while (!HEADER.compareAndSet(this, current, (current & ~mask) | (bits & mask)));
+    }
+
+    /***************************************************************
+     *  position in old space, it's meaningful only for old objects
+     *
+     ***************************************************************/
+    public int oldSlot() {
+        return oldSlot;
+    }
+
+    public void oldSlot(int slot) {
+        oldSlot = slot;
+    }
+
+    /***************************************************************
+     *  allocation region this object belongs to, it's meaningful
+     *  only for arena objects
+     *
+     ***************************************************************/
+    public Arena arena() {
+        return arena;
+    }
+
+    public void arena(Arena arena) {
+        this.arena = arena;
+    }
+
+    /***************************************************************
+     *  estimated footprint of this object in guest heap, it's used
+     *  to account heap usage rather than measuring host memory
+     *
+     ***************************************************************/
+    public long shallowSize() {
+        if (payload instanceof Object[]) {
+            return OBJECT_HEADER_SIZE + (long) ((Object[]) payload).length * SLOT_SIZE;
+        }
+        return OBJECT_HEADER_SIZE + (metaClassReference == null ? SLOT_SIZE : 0);
+    }
+
+    /***************************************************************
+     *  visit all objects referred by fields or array components of
+     *  this object, primitive values are skipped
+     *
+     ***************************************************************/
+    public void visitReferences(Consumer<YObject> visitor) {
+        if (!(payload instanceof Object[])) {
+            return;
+        }
+        for (Object field : (Object[]) payload) {
+            if (field instanceof YObject) {
+                visitor.accept((YObject) field);
+            }
+        }
+    }
 }
@@ -1,24 +1,149 @@
 package runtime;
 
+import runtime.gc.Arena;
+import runtime.gc.SATBBuffer;
+import runtime.gc.ThreadLocalAllocationBuffer;
+import runtime.safepoint.Safepoint;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
 public class YThread {
-    private Thread thread;
+    private static final AtomicInteger nextThreadId = new AtomicInteger();
+
+    private int threadId;
+    private volatile Thread thread;
     private String threadName;
+    private YObject threadObject;
 
     private RuntimeVM runtimeVMRef;
     private RuntimeThread runtimeThread;
+    private ThreadLocalAllocationBuffer tlab;
+    private SATBBuffer satbBuffer;
+    private Arena arena;
+    private volatile int safepointState;
+    private int guestDepth;
+    private int allocationCountdown;
+    private AtomicBoolean permit;
 
     public YThread(String threadName, RuntimeVM runtimeVM) {
         this.threadName = threadName;
+        threadId = nextThreadId.incrementAndGet();
         this.runtimeVMRef = runtimeVM;
         runtimeThread = new RuntimeThread();
+        tlab = new ThreadLocalAllocationBuffer();
+        satbBuffer = new SATBBuffer();
+        permit = new AtomicBoolean();
+        safepointState = Safepoint.IN_VM;
+        runtimeVM.addThread(this);
     }
 
     public void runTask(Runnable task) {
-        thread = new Thread(task);
-        thread.setName(threadName);
+        runTask(task, HostThreads.virtualByDefault());
+    }
+
+    /***************************************************************
+     *  run a task on a new host thread, a virtual one if it's asked
+     *  for and host supports it. This guest thread is detached from
+     *  the vm once the task completes
+     *
+     ***************************************************************/
+    public void runTask(Runnable task, boolean virtual) {
+        thread = HostThreads.newThread(threadName, () -> {
+            try {
+                task.run();
+            } finally {
+                runtimeVMRef.heap().detachThread(this);
+            }
+        }, virtual);
         thread.start();
     }
 
+    public Thread hostThread() {
+        return thread;
+    }
+
+    /***************************************************************
+     *  Unsafe.park(), block current thread until its permit is made
+     *  available by unpark(), it's interrupted or the time elapses.
+     *  A relative time is in nanoseconds and 0 means forever, an
+     *  absolute one is a deadline in milliseconds since the epoch.
+     *  It may also return spuriously, as the guest expects
+     *
+     ***************************************************************/
+    public void park(boolean absolute, long time) {
+        if (permit.getAndSet(false) || Thread.currentThread().isInterrupted()
+                || (!absolute && time < 0) || (absolute && time <= System.currentTimeMillis())) {
+            return;
+        }
+        Safepoint safepoint = runtimeVMRef.safepoint();
+        safepoint.enterSafeRegion(this);
+        try {
+            if (absolute) {
+                LockSupport.parkUntil(time);
+            } else if (time == 0) {
+                LockSupport.park();
+            } else {
+                LockSupport.parkNanos(time);
+            }
+        } finally {
+            safepoint.leaveSafeRegion(this);
+        }
+        permit.set(false);
+    }
+
+    /***************************************************************
+     *  Unsafe.unpark(), the permit is kept even if this thread has
+     *  not started yet, so its first park() returns at once
+     *
+     ***************************************************************/
+    public void unpark() {
+        permit.set(true);
+        Thread host = thread;
+        if (host != null) {
+            LockSupport.unpark(host);
+        }
+    }
+
+    /***************************************************************
+     *  guest interrupt status is the interrupt status of the host
+     *  thread, so an interrupt wakes up park(), sleep and monitor
+     *  waits as well. A thread not started yet can't be interrupted
+     *
+     ***************************************************************/
+    public void interrupt() {
+        Thread host = thread;
+        if (host != null) {
+            host.interrupt();
+        }
+    }
+
+    public boolean isInterrupted(boolean clear) {
+        Thread host = thread;
+        if (host == Thread.currentThread()) {
+            return clear ? Thread.interrupted() : host.isInterrupted();
+        }
+        return host != null && host.isInterrupted();
+    }
+
+    public String threadName() {
+        return threadName;
+    }
+
+    /***************************************************************
+     *  the java/lang/Thread object of this guest thread, null if it
+     *  was not started by guest code
+     *
+     ***************************************************************/
+    public YObject threadObject() {
+        return threadObject;
+    }
+
+    public void threadObject(YObject threadObject) {
+        this.threadObject = threadObject;
+    }
+
     /**
      * get runtime virtual machine data scope
      * @return
@@ -27,7 +152,73 @@ public class YThread {
         return runtimeVMRef;
     }
 
+    /***************************************************************
+     *  unique id of guest thread, it starts from 1 and is recorded
+     *  as the owner of monitors
+     *
+     ***************************************************************/
+    public int threadId() {
+        return threadId;
+    }
+
     public RuntimeThread runtimeThread() {
         return runtimeThread;
     }
+
+    public ThreadLocalAllocationBuffer tlab() {
+        return tlab;
+    }
+
+    public SATBBuffer satbBuffer() {
+        return satbBuffer;
+    }
+
+    /***************************************************************
+     *  allocation region of the running guest task, null if arena
+     *  mode is off
+     *
+     ***************************************************************/
+    public Arena arena() {
+        return arena;
+    }
+
+    public void arena(Arena arena) {
+        this.arena = arena;
+    }
+
+    public int safepointState() {
+        return safepointState;
+    }
+
+    public void safepointState(int state) {
+        safepointState = state;
+    }
+
+    /***************************************************************
+     *  nesting depth of guest code interpretation, it's only touched
+     *  by the thread itself
+     *
+     ***************************************************************/
+    public int guestDepth() {
+        return guestDepth;
+    }
+
+    public int guestDepth(int depth) {
+        guestDepth = depth;
+        return depth;
+    }
+
+    /***************************************************************
+     *  allocations left before the next one is sampled by allocation
+     *  profiler, it's only touched by the thread itself
+     *
+     ***************************************************************/
+    public int allocationCountdown() {
+        return allocationCountdown;
+    }
+
+    public int allocationCountdown(int countdown) {
+        allocationCountdown = countdown;
+        return countdown;
+    }
 }
@@ -0,0 +1,58 @@
+package runtime.gc;
+
+import runtime.YObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  allocation region of one top-level guest invocation.
+ *
+ *  Objects are appended by the owner thread only, there's no
+ *  lock on allocation. The region escapes once a reference to
+ *  any of its objects is stored outside of it, see the write
+ *  barrier of YHeap. A region which didn't escape is dropped as a
+ *  whole when the invocation finishes, no object of it is visited
+ *
+ ***************************************************************/
+public class Arena {
+    private ArrayList<YObject> objects;
+    private long usedBytes;
+    private volatile boolean escaped;
+
+    public Arena() {
+        objects = new ArrayList<>();
+    }
+
+    public void add(YObject object, long size) {
+        object.generation(Generation.ARENA);
+        object.arena(this);
+        objects.add(object);
+        usedBytes += size;
+    }
+
+    public void escape() {
+        escaped = true;
+    }
+
+    public boolean isEscaped() {
+        return escaped;
+    }
+
+    /***************************************************************
+     *  forget all objects at once, they become garbage of host heap
+     *
+     ***************************************************************/
+    public void release() {
+        objects = new ArrayList<>();
+        usedBytes = 0;
+    }
+
+    public List<YObject> objects() {
+        return objects;
+    }
+
+    public long usedBytes() {
+        return usedBytes;
+    }
+}
@@ -0,0 +1,61 @@
+package runtime.gc;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/***************************************************************
+ *  card table of old space. Every old object occupies a slot of
+ *  old space, and each card covers 2^CARD_SHIFT continuous slots.
+ *  A card is dirtied by write barrier when a reference to young
+ *  object is stored into an object of it, so minor collection
+ *  only needs to scan dirty cards rather than the whole old space
+ *
+ ***************************************************************/
+public class CardTable {
+    public static final int CARD_SHIFT = 6;
+
+    private static final byte CLEAN = 0;
+    private static final byte DIRTY = 1;
+
+    private volatile byte[] cards;
+
+    public CardTable() {
+        cards = new byte[16];
+    }
+
+    public void dirty(int slot) {
+        byte[] c = cards;
+        int card = slot >>> CARD_SHIFT;
+        if (card < c.length) {
+            c[card] = DIRTY;
+        }
+    }
+
+    public void ensureSlots(int slots) {
+        int needed = (slots >>> CARD_SHIFT) + 1;
+        if (needed > cards.length) {
+            cards = Arrays.copyOf(cards, Math.max(needed, cards.length * 2));
+        }
+    }
+
+    public void forEachDirtyCard(IntConsumer visitor) {
+        byte[] c = cards;
+        for (int i = 0; i < c.length; i++) {
+            if (c[i] == DIRTY) {
+                visitor.accept(i);
+            }
+        }
+    }
+
+    public void clean() {
+        Arrays.fill(cards, CLEAN);
+    }
+
+    public static int firstSlotOf(int card) {
+        return card << CARD_SHIFT;
+    }
+
+    public static int slotsPerCard() {
+        return 1 << CARD_SHIFT;
+    }
+}
@@ -0,0 +1,202 @@
+package runtime.gc;
+
+import runtime.YHeap;
+import runtime.YObject;
+import runtime.YThread;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/***************************************************************
+ *  mostly-concurrent marker of old space.
+ *
+ *  A cycle consists of
+ *      1. initial mark, a short pause which marks objects directly
+ *         referred by roots and turns on the SATB barrier
+ *      2. concurrent mark, a gc thread traces the heap in small
+ *         increments while guest threads keep running
+ *      3. remark, a short pause which drains SATB buffers of all
+ *         threads and finishes tracing
+ *      4. cleanup, old objects which were not marked are dropped
+ *
+ *  Snapshot-at-the-beginning keeps every object reachable at the
+ *  initial mark alive, because the old value of each reference
+ *  store is logged while marking. Objects allocated or promoted
+ *  during marking are marked at once, so they survive the cycle
+ *  as well.
+ *
+ ***************************************************************/
+public class ConcurrentMarker {
+    private static final int MARK_INCREMENT = 1024;
+
+    private YHeap heap;
+    private RootScanner roots;
+    private volatile boolean marking;
+    private volatile int epoch;
+    private boolean cycleRunning;
+    private int oldObjectsAtRemark;
+    private ArrayDeque<YObject> grayQueue;
+    private ConcurrentLinkedQueue<List<YObject>> satbQueue;
+
+    public ConcurrentMarker(YHeap heap, RootScanner roots) {
+        this.heap = heap;
+        this.roots = roots;
+        grayQueue = new ArrayDeque<>();
+        satbQueue = new ConcurrentLinkedQueue<>();
+    }
+
+    /***************************************************************
+     *  whether SATB barrier and black allocation are required
+     *
+     ***************************************************************/
+    public boolean isMarking() {
+        return marking;
+    }
+
+    public int epoch() {
+        return epoch;
+    }
+
+    /***************************************************************
+     *  start a new cycle unless one is running, the caller must hold
+     *  the heap lock
+     *
+     ***************************************************************/
+    public void startCycle() {
+        if (cycleRunning) {
+            return;
+        }
+        cycleRunning = true;
+        heap.stopTheWorld("initial mark", this::initialMark);
+
+        Thread worker = new Thread(this::concurrentPhase, "yvm-concurrent-marker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /***************************************************************
+     *  give up the running cycle, it's used when a full collection
+     *  has to be performed anyway. The caller must hold the heap lock
+     *
+     ***************************************************************/
+    public void abort() {
+        cycleRunning = false;
+        marking = false;
+        grayQueue.clear();
+        satbQueue.clear();
+    }
+
+    /***************************************************************
+     *  mark an object and queue it for tracing, the caller must hold
+     *  the heap lock
+     *
+     ***************************************************************/
+    public void shade(YObject object) {
+        if (object != null && object.tryMark(epoch)) {
+            grayQueue.push(object);
+        }
+    }
+
+    public void enqueueSATB(List<YObject> filledBuffer) {
+        satbQueue.add(filledBuffer);
+    }
+
+    private void initialMark() {
+        epoch = heap.nextEpoch();
+        grayQueue.clear();
+        satbQueue.clear();
+        for (YThread thread : heap.runtimeVM().threads()) {
+            thread.satbBuffer().drain();
+        }
+        roots.scan(this::shade);
+        marking = true;
+    }
+
+    private void concurrentPhase() {
+        GCPhaseTimes times = new GCPhaseTimes("concurrent");
+        times.begin("concurrent mark");
+        boolean finished = false;
+        while (!finished) {
+            heap.lock().lock();
+            try {
+                if (!cycleRunning) {
+                    return;
+                }
+                finished = markIncrement();
+            } finally {
+                heap.lock().unlock();
+            }
+            Thread.yield();
+        }
+
+        times.begin("remark");
+        heap.lock().lock();
+        try {
+            if (!cycleRunning) {
+                return;
+            }
+            heap.stopTheWorld("remark", this::remark);
+        } finally {
+            heap.lock().unlock();
+        }
+
+        times.begin("cleanup");
+        heap.lock().lock();
+        try {
+            if (!cycleRunning) {
+                return;
+            }
+            cleanup();
+            cycleRunning = false;
+        } finally {
+            heap.lock().unlock();
+        }
+        heap.reportConcurrentCycle(times);
+    }
+
+    /***************************************************************
+     *  trace at most MARK_INCREMENT objects, return true if there is
+     *  nothing left to trace for now
+     *
+     ***************************************************************/
+    private boolean markIncrement() {
+        List<YObject> buffer;
+        while ((buffer = satbQueue.poll()) != null) {
+            buffer.forEach(this::shade);
+        }
+        for (int i = 0; i < MARK_INCREMENT && !grayQueue.isEmpty(); i++) {
+            grayQueue.pop().visitReferences(this::shade);
+        }
+        return grayQueue.isEmpty() && satbQueue.isEmpty();
+    }
+
+    private void remark() {
+        for (YThread thread : heap.runtimeVM().threads()) {
+            thread.satbBuffer().drain().forEach(this::shade);
+        }
+        while (!markIncrement()) {
+            //keep tracing until the closure is complete
+        }
+        marking = false;
+        oldObjectsAtRemark = heap.oldSpace().objects().size();
+    }
+
+    /***************************************************************
+     *  drop unmarked objects among those which were in old space at
+     *  remark, objects promoted after remark are kept as they are
+     *
+     ***************************************************************/
+    private void cleanup() {
+        List<YObject> objects = heap.oldSpace().objects();
+        ArrayList<YObject> live = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            YObject object = objects.get(i);
+            if (i >= oldObjectsAtRemark || object.gcEpoch() == epoch) {
+                live.add(object);
+            }
+        }
+        heap.oldSpace().retain(live);
+    }
+}
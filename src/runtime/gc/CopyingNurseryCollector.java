@@ -0,0 +1,110 @@
+package runtime.gc;
+
+import runtime.YHeap;
+import runtime.YObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/***************************************************************
+ *  minor collector of young generation.
+ *
+ *  Live young objects are traced from roots, dirty cards of old
+ *  space and remembered untracked objects, tracing never goes
+ *  into old objects. Survivors are copied into the empty survivor
+ *  space, or promoted to old space once they are old enough or
+ *  survivor space overflows. Eden and the other survivor space are
+ *  then dropped as a whole, so the cost is proportional to live
+ *  young objects rather than to the size of young generation.
+ *
+ ***************************************************************/
+public class CopyingNurseryCollector {
+    private int tenuringThreshold;
+
+    public CopyingNurseryCollector(int tenuringThreshold) {
+        this.tenuringThreshold = tenuringThreshold;
+    }
+
+    public void collect(YHeap heap, RootScanner roots, GCPhaseTimes times) {
+        int epoch = heap.nextEpoch();
+        OldSpace old = heap.oldSpace();
+
+        ArrayList<YObject> survivors = new ArrayList<>();
+        ArrayDeque<YObject> workList = new ArrayDeque<>();
+        Consumer<YObject> marker = object -> {
+            if (object != null && object.generation() != Generation.OLD && object.gcEpoch() != epoch) {
+                object.gcEpoch(epoch);
+                if (object.generation() == Generation.YOUNG) {
+                    survivors.add(object);
+                }
+                workList.push(object);
+            }
+        };
+
+        /***************************************************************
+         *  1. mark from roots and old-to-young references
+         *
+         ***************************************************************/
+        times.begin("roots");
+        roots.scan(marker);
+
+        times.begin("cards");
+        ArrayList<YObject> dirtyObjects = new ArrayList<>();
+        old.cardTable().forEachDirtyCard(card -> old.forEachObjectOfCard(card, dirtyObjects::add));
+        old.cardTable().clean();
+        for (YObject object : dirtyObjects) {
+            object.visitReferences(marker);
+        }
+        List<YObject> remembered = heap.rememberedObjects();
+        for (YObject object : remembered) {
+            object.visitReferences(marker);
+        }
+
+        times.begin("mark");
+        while (!workList.isEmpty()) {
+            workList.pop().visitReferences(marker);
+        }
+
+        /***************************************************************
+         *  2. evacuate survivors, the "to" survivor space is always
+         *  empty before minor collection
+         *
+         ***************************************************************/
+        times.begin("evacuate");
+        Space to = heap.survivorTo();
+        ArrayList<YObject> promoted = new ArrayList<>();
+        for (YObject object : survivors) {
+            int age = object.age() + 1;
+            if (age >= tenuringThreshold || !to.hasRoom(object.shallowSize())) {
+                old.add(object);
+                promoted.add(object);
+            } else {
+                object.age(age);
+                to.add(object);
+            }
+        }
+        heap.eden().clear();
+        heap.survivorFrom().clear();
+        heap.swapSurvivors();
+
+        /***************************************************************
+         *  3. rebuild cards, only objects which may refer to surviving
+         *  young objects need to be checked
+         *
+         ***************************************************************/
+        times.begin("rebuild cards");
+        for (YObject object : dirtyObjects) {
+            old.rememberIfPointsToYoung(object);
+        }
+        for (YObject object : promoted) {
+            old.rememberIfPointsToYoung(object);
+        }
+        if (heap.concurrentMarker().isMarking()) {
+            promoted.forEach(heap.concurrentMarker()::shade);
+        }
+        heap.forgetRemembered(object -> !OldSpace.pointsToYoung(object));
+        times.end();
+    }
+}
@@ -0,0 +1,282 @@
+package runtime.gc;
+
+import runtime.YObject;
+import runtime.rtexception.VMExecutionException;
+
+/***************************************************************
+ *  options of guest heap, they can be specified by host system
+ *  properties, e.g.
+ *
+ *      -Dyvm.gc.maxHeapSize=256m -Dyvm.gc.youngSize=32m
+ *
+ *  maxHeapSize is the hard limit, guest allocation fails with
+ *  OutOfMemoryError once live data can not fit in it.
+ *  initialHeapSize is the first full collection threshold of old
+ *  space, it grows with live data after each full collection but
+ *  never exceeds the capacity of old space.
+ *  youngSize is the capacity of eden, each survivor space takes
+ *  1/8 of it.
+ *  tlabSize is the chunk of eden reserved by a thread at a time.
+ *  tenuringThreshold is the number of minor collections an object
+ *  must survive before it's promoted to old space, at most 15.
+ *  parallelThreads is the number of gc worker threads used by full
+ *  collection, 1 means marking and sweeping run on the collecting
+ *  thread only.
+ *  concurrent enables mostly-concurrent marking of old space, a
+ *  cycle starts when old space occupancy reaches
+ *  initiatingOccupancy percent, full collection is then only the
+ *  last resort.
+ *  arena gives each top-level guest invocation its own allocation
+ *  region, which is freed as a whole when the invocation returns
+ *  unless its objects escaped.
+ *  offHeap keeps components of primitive arrays in an off-heap
+ *  region of offHeapSize bytes, by default as large as the heap,
+ *  the region is mapped to offHeapFile if it's given.
+ *  allocationSampleInterval turns on allocation profiler, every
+ *  N-th allocation of each thread is recorded, 0 means off.
+ *  verbose prints phase timings of every collection.
+ *
+ ***************************************************************/
+public class GCOptions {
+    public static final String MAX_HEAP_SIZE = "yvm.gc.maxHeapSize";
+    public static final String INITIAL_HEAP_SIZE = "yvm.gc.initialHeapSize";
+    public static final String YOUNG_SIZE = "yvm.gc.youngSize";
+    public static final String TLAB_SIZE = "yvm.gc.tlabSize";
+    public static final String TENURING_THRESHOLD = "yvm.gc.tenuringThreshold";
+    public static final String PARALLEL_THREADS = "yvm.gc.parallelThreads";
+    public static final String CONCURRENT = "yvm.gc.concurrent";
+    public static final String INITIATING_OCCUPANCY = "yvm.gc.initiatingOccupancy";
+    public static final String ARENA = "yvm.gc.arena";
+    public static final String OFF_HEAP = "yvm.gc.offHeap";
+    public static final String OFF_HEAP_SIZE = "yvm.gc.offHeapSize";
+    public static final String OFF_HEAP_FILE = "yvm.gc.offHeapFile";
+    public static final String ALLOCATION_SAMPLE_INTERVAL = "yvm.gc.allocationSampleInterval";
+    public static final String VERBOSE = "yvm.gc.verbose";
+
+    private long maxHeapSize = parseSize("64m");
+    private long initialHeapSize = parseSize("8m");
+    private long youngSize = -1;
+    private long tlabSize = parseSize("16k");
+    private int tenuringThreshold = 7;
+    private int parallelThreads = Runtime.getRuntime().availableProcessors();
+    private boolean concurrent = false;
+    private int initiatingOccupancy = 45;
+    private boolean arena = false;
+    private boolean offHeap = false;
+    private long offHeapSize = -1;
+    private String offHeapFile = null;
+    private int allocationSampleInterval = 0;
+    private boolean verbose = false;
+
+    public static GCOptions fromSystemProperties() {
+        GCOptions options = new GCOptions();
+        String value;
+        if ((value = System.getProperty(MAX_HEAP_SIZE)) != null) {
+            options.maxHeapSize(parseSize(value));
+        }
+        if ((value = System.getProperty(INITIAL_HEAP_SIZE)) != null) {
+            options.initialHeapSize(parseSize(value));
+        }
+        if ((value = System.getProperty(YOUNG_SIZE)) != null) {
+            options.youngSize(parseSize(value));
+        }
+        if ((value = System.getProperty(TLAB_SIZE)) != null) {
+            options.tlabSize(parseSize(value));
+        }
+        if ((value = System.getProperty(TENURING_THRESHOLD)) != null) {
+            options.tenuringThreshold(parseInt(value));
+        }
+        if ((value = System.getProperty(PARALLEL_THREADS)) != null) {
+            options.parallelThreads(parseInt(value));
+        }
+        if ((value = System.getProperty(INITIATING_OCCUPANCY)) != null) {
+            options.initiatingOccupancy(parseInt(value));
+        }
+        if ((value = System.getProperty(OFF_HEAP_SIZE)) != null) {
+            options.offHeapSize(parseSize(value));
+        }
+        options.offHeapFile(System.getProperty(OFF_HEAP_FILE));
+        options.offHeap(Boolean.getBoolean(OFF_HEAP));
+        if ((value = System.getProperty(ALLOCATION_SAMPLE_INTERVAL)) != null) {
+            options.allocationSampleInterval(parseInt(value));
+        }
+        options.concurrent(Boolean.getBoolean(CONCURRENT));
+        options.arena(Boolean.getBoolean(ARENA));
+        options.verbose(Boolean.getBoolean(VERBOSE));
+        return options;
+    }
+
+    public GCOptions maxHeapSize(long size) {
+        maxHeapSize = requirePositive(size);
+        return this;
+    }
+
+    public GCOptions initialHeapSize(long size) {
+        initialHeapSize = requirePositive(size);
+        return this;
+    }
+
+    public GCOptions youngSize(long size) {
+        youngSize = requirePositive(size);
+        return this;
+    }
+
+    public GCOptions tlabSize(long size) {
+        tlabSize = requirePositive(size);
+        return this;
+    }
+
+    public GCOptions tenuringThreshold(int threshold) {
+        tenuringThreshold = Math.max(1, Math.min(YObject.MAX_AGE, threshold));
+        return this;
+    }
+
+    public GCOptions parallelThreads(int threads) {
+        parallelThreads = Math.max(1, threads);
+        return this;
+    }
+
+    public GCOptions concurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+        return this;
+    }
+
+    public GCOptions initiatingOccupancy(int percent) {
+        initiatingOccupancy = Math.max(0, Math.min(100, percent));
+        return this;
+    }
+
+    public GCOptions arena(boolean arena) {
+        this.arena = arena;
+        return this;
+    }
+
+    public GCOptions offHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+
+    public GCOptions offHeapSize(long size) {
+        offHeapSize = requirePositive(size);
+        return this;
+    }
+
+    public GCOptions offHeapFile(String file) {
+        offHeapFile = file;
+        return this;
+    }
+
+    public GCOptions allocationSampleInterval(int interval) {
+        allocationSampleInterval = Math.max(0, interval);
+        return this;
+    }
+
+    public GCOptions verbose(boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    public long maxHeapSize() {
+        return maxHeapSize;
+    }
+
+    public long initialHeapSize() {
+        return Math.min(initialHeapSize, maxHeapSize);
+    }
+
+    /***************************************************************
+     *  eden takes 1/4 of the heap but at most 8m unless it's set
+     *  explicitly
+     *
+     ***************************************************************/
+    public long youngSize() {
+        long size = youngSize > 0 ? youngSize : Math.min(parseSize("8m"), maxHeapSize / 4);
+        if (size >= maxHeapSize) {
+            throw new VMExecutionException("young generation must be smaller than the whole heap");
+        }
+        return size;
+    }
+
+    public long tlabSize() {
+        return Math.min(tlabSize, youngSize());
+    }
+
+    public int tenuringThreshold() {
+        return tenuringThreshold;
+    }
+
+    public int parallelThreads() {
+        return parallelThreads;
+    }
+
+    public boolean concurrent() {
+        return concurrent;
+    }
+
+    public int initiatingOccupancy() {
+        return initiatingOccupancy;
+    }
+
+    public boolean arena() {
+        return arena;
+    }
+
+    public boolean offHeap() {
+        return offHeap;
+    }
+
+    public long offHeapSize() {
+        return offHeapSize > 0 ? offHeapSize : maxHeapSize;
+    }
+
+    public String offHeapFile() {
+        return offHeapFile;
+    }
+
+    public int allocationSampleInterval() {
+        return allocationSampleInterval;
+    }
+
+    public boolean verbose() {
+        return verbose;
+    }
+
+    private static long requirePositive(long size) {
+        if (size <= 0) {
+            throw new VMExecutionException("heap size must be positive");
+        }
+        return size;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new VMExecutionException("invalid gc option " + value);
+        }
+    }
+
+    static long parseSize(String size) {
+        String s = size.trim().toLowerCase();
+        long unit = 1;
+        switch (s.charAt(s.length() - 1)) {
+            case 'k':
+                unit = 1024L;
+                break;
+            case 'm':
+                unit = 1024L * 1024;
+                break;
+            case 'g':
+                unit = 1024L * 1024 * 1024;
+                break;
+        }
+        if (unit != 1) {
+            s = s.substring(0, s.length() - 1);
+        }
+        try {
+            return Long.parseLong(s) * unit;
+        } catch (NumberFormatException e) {
+            throw new VMExecutionException("invalid heap size " + size);
+        }
+    }
+}
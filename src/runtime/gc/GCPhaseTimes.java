@@ -0,0 +1,66 @@
+package runtime.gc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***************************************************************
+ *  wall clock time of each phase of one collection, phases are
+ *  kept in the order they were started
+ *
+ ***************************************************************/
+public class GCPhaseTimes {
+    private String collection;
+    private LinkedHashMap<String, Long> phases;
+    private String currentPhase;
+    private long phaseStart;
+    private long collectionStart;
+    private long totalNanos;
+
+    public GCPhaseTimes(String collection) {
+        this.collection = collection;
+        phases = new LinkedHashMap<>();
+        collectionStart = System.nanoTime();
+    }
+
+    public void begin(String phase) {
+        end();
+        currentPhase = phase;
+        phaseStart = System.nanoTime();
+    }
+
+    public void end() {
+        if (currentPhase != null) {
+            phases.merge(currentPhase, System.nanoTime() - phaseStart, Long::sum);
+            currentPhase = null;
+        }
+    }
+
+    public void finish() {
+        end();
+        totalNanos = System.nanoTime() - collectionStart;
+    }
+
+    public Map<String, Long> phaseNanos() {
+        return phases;
+    }
+
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    public String collection() {
+        return collection;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[gc ").append(collection).append(" ").append(formatMillis(totalNanos));
+        phases.forEach((phase, nanos) -> sb.append(", ").append(phase).append(" ").append(formatMillis(nanos)));
+        return sb.append("]").toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.3fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,14 @@
+package runtime.gc;
+
+import runtime.YHeap;
+
+public interface GarbageCollector {
+    /***************************************************************
+     *  reclaim all objects of heap which are unreachable from roots,
+     *  the caller must guarantee that no guest thread would mutate
+     *  the heap during collection. Time of each phase is recorded
+     *  into times
+     *
+     ***************************************************************/
+    void collect(YHeap heap, RootScanner roots, GCPhaseTimes times);
+}
@@ -0,0 +1,11 @@
+package runtime.gc;
+
+public class Generation {
+    /* objects that were not allocated through heap, e.g. primitive
+       values and static variable holders */
+    public static final int UNTRACKED = 0;
+    public static final int YOUNG = 1;
+    public static final int OLD = 2;
+    /* objects of an allocation region of guest task */
+    public static final int ARENA = 3;
+}
@@ -0,0 +1,43 @@
+package runtime.gc;
+
+import runtime.YHeap;
+import runtime.YObject;
+
+import java.util.ArrayDeque;
+
+/***************************************************************
+ *  stop-the-world mark-sweep collector.
+ *
+ *  Marking uses an explicit work list rather than recursion, so
+ *  a long linked structure in guest heap can not overflow the
+ *  host stack. An object is marked if its gc epoch equals to the
+ *  epoch of current collection, thus no extra pass is needed to
+ *  clear mark bits after sweeping.
+ *
+ ***************************************************************/
+public class MarkSweepCollector implements GarbageCollector {
+    @Override
+    public void collect(YHeap heap, RootScanner roots, GCPhaseTimes times) {
+        int epoch = heap.nextEpoch();
+
+        times.begin("roots");
+        ArrayDeque<YObject> workList = new ArrayDeque<>();
+        roots.scan(root -> markAndPush(root, epoch, workList));
+
+        times.begin("mark");
+        while (!workList.isEmpty()) {
+            workList.pop().visitReferences(child -> markAndPush(child, epoch, workList));
+        }
+
+        times.begin("sweep");
+        heap.sweep(epoch);
+        times.end();
+    }
+
+    private void markAndPush(YObject object, int epoch, ArrayDeque<YObject> workList) {
+        if (object != null && object.gcEpoch() != epoch) {
+            object.gcEpoch(epoch);
+            workList.push(object);
+        }
+    }
+}
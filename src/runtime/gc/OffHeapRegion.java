@@ -0,0 +1,364 @@
+package runtime.gc;
+
+import runtime.YArray;
+import runtime.YObject;
+import runtime.rtexception.VMExecutionException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/***************************************************************
+ *  off-heap storage of primitive arrays.
+ *
+ *  The region is a sequence of direct, or memory-mapped if a file
+ *  is given, chunks of CHUNK_SIZE bytes. An array is a block with
+ *  real layout
+ *      u4      length
+ *      u1      element type, its descriptor character
+ *      3 bytes padding
+ *      ...     elements packed by their natural size
+ *  and blocks are aligned to 8 bytes, so a block is addressed by a
+ *  32-bit compressed reference, i.e. its offset shifted right by
+ *  3 bits, and the region can be as large as 32g.
+ *
+ *  Blocks are bump allocated and never freed one by one, holes of
+ *  dead arrays are squeezed out by compact() after each full
+ *  collection. A mapped region is flushed by force(), then the
+ *  file is a snapshot of all primitive arrays.
+ *
+ *  Int and long elements are naturally aligned, so they're read,
+ *  written and CASed atomically through byte buffer view handles.
+ *  Elements of other types are accessed plainly between fences and
+ *  can't be CASed.
+ *
+ ***************************************************************/
+public class OffHeapRegion {
+    public static final int NULL = 0;
+
+    private static final int SHIFT = 3;
+    private static final int ALIGNMENT = 1 << SHIFT;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long MAX_CAPACITY = 32L * 1024 * 1024 * 1024;
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private ByteBuffer[] chunks;
+    private long capacity;
+    private long top;
+
+    public OffHeapRegion(long capacity) {
+        this(capacity, null);
+    }
+
+    public OffHeapRegion(long capacity, String file) {
+        if (capacity > MAX_CAPACITY) {
+            throw new VMExecutionException("off-heap region can not exceed 32g");
+        }
+        this.capacity = capacity;
+        chunks = new ByteBuffer[(int) ((capacity + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+        try (RandomAccessFile mapped = file == null ? null : new RandomAccessFile(file, "rw")) {
+            for (int i = 0; i < chunks.length; i++) {
+                int size = (int) Math.min(CHUNK_SIZE, capacity - ((long) i << CHUNK_SHIFT));
+                if (mapped == null) {
+                    chunks[i] = ByteBuffer.allocateDirect(size);
+                } else {
+                    chunks[i] = mapped.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) i << CHUNK_SHIFT, size);
+                }
+            }
+        } catch (IOException e) {
+            throw new VMExecutionException("can not map off-heap region to " + file);
+        }
+        //offset 0 is never allocated, so compressed reference 0 means null
+        top = ALIGNMENT;
+    }
+
+    /***************************************************************
+     *  reserve a block for an array, return its compressed reference
+     *  or NULL if there is no room left
+     *
+     ***************************************************************/
+    public synchronized int allocate(char elementType, int length) {
+        long size = blockSize(elementType, length);
+        long offset = top;
+        if ((offset >>> CHUNK_SHIFT) != ((offset + size - 1) >>> CHUNK_SHIFT)) {
+            //blocks never span two chunks
+            offset = ((offset >>> CHUNK_SHIFT) + 1) << CHUNK_SHIFT;
+        }
+        if (size > CHUNK_SIZE || offset + size > capacity) {
+            return NULL;
+        }
+        top = offset + size;
+        int reference = compress(offset);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        chunk.putInt(base, length);
+        chunk.put(base + 4, (byte) elementType);
+        for (int i = BLOCK_HEADER_SIZE; i < size; i += ALIGNMENT) {
+            chunk.putLong(base + i, 0);
+        }
+        return reference;
+    }
+
+    public int length(int reference) {
+        long offset = decompress(reference);
+        return chunkOf(offset).getInt(positionOf(offset));
+    }
+
+    public char elementType(int reference) {
+        long offset = decompress(reference);
+        return (char) chunkOf(offset).get(positionOf(offset) + 4);
+    }
+
+    /***************************************************************
+     *  read an element as a primitive YObject, as *aload expects
+     *
+     ***************************************************************/
+    public YObject load(int reference, int index) {
+        long offset = decompress(reference);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        char elementType = (char) chunk.get(base + 4);
+        int position = elementPosition(chunk, base, elementType, index);
+        switch (elementType) {
+            case 'Z':
+                return YObject.derivedFrom(chunk.get(position) != 0);
+            case 'B':
+                return YObject.derivedFrom((int) chunk.get(position));
+            case 'C':
+                return YObject.derivedFrom(chunk.getChar(position));
+            case 'S':
+                return YObject.derivedFrom((int) chunk.getShort(position));
+            case 'I':
+                return YObject.derivedFrom(chunk.getInt(position));
+            case 'F':
+                return YObject.derivedFrom(chunk.getFloat(position));
+            case 'J':
+                return YObject.derivedFrom(chunk.getLong(position));
+            case 'D':
+                return YObject.derivedFrom(chunk.getDouble(position));
+        }
+        throw new VMExecutionException("corrupted off-heap block " + reference);
+    }
+
+    /***************************************************************
+     *  write the value of a primitive YObject into an element, it's
+     *  converted to the element type as *astore does
+     *
+     ***************************************************************/
+    public void store(int reference, int index, YObject value) {
+        long offset = decompress(reference);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        char elementType = (char) chunk.get(base + 4);
+        int position = elementPosition(chunk, base, elementType, index);
+        Object x = value == null ? null : value.primitiveValue();
+        if (x instanceof Character) {
+            x = (int) (Character) x;
+        } else if (x instanceof Boolean) {
+            x = (Boolean) x ? 1 : 0;
+        }
+        Number number = x instanceof Number ? (Number) x : 0;
+        switch (elementType) {
+            case 'Z':
+            case 'B':
+                chunk.put(position, number.byteValue());
+                break;
+            case 'C':
+                chunk.putChar(position, (char) number.intValue());
+                break;
+            case 'S':
+                chunk.putShort(position, number.shortValue());
+                break;
+            case 'I':
+                chunk.putInt(position, number.intValue());
+                break;
+            case 'F':
+                chunk.putFloat(position, number.floatValue());
+                break;
+            case 'J':
+                chunk.putLong(position, number.longValue());
+                break;
+            case 'D':
+                chunk.putDouble(position, number.doubleValue());
+                break;
+        }
+    }
+
+    public YObject loadVolatile(int reference, int index) {
+        long offset = decompress(reference);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        char elementType = (char) chunk.get(base + 4);
+        int position = elementPosition(chunk, base, elementType, index);
+        switch (elementType) {
+            case 'I':
+                return YObject.derivedFrom((int) INTS.getVolatile(chunk, position));
+            case 'J':
+                return YObject.derivedFrom((long) LONGS.getVolatile(chunk, position));
+        }
+        YObject value = load(reference, index);
+        VarHandle.acquireFence();
+        return value;
+    }
+
+    public void storeVolatile(int reference, int index, YObject value) {
+        long offset = decompress(reference);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        char elementType = (char) chunk.get(base + 4);
+        int position = elementPosition(chunk, base, elementType, index);
+        switch (elementType) {
+            case 'I':
+                INTS.setVolatile(chunk, position, (int) YObject.numericValue(value));
+                return;
+            case 'J':
+                LONGS.setVolatile(chunk, position, YObject.numericValue(value));
+                return;
+        }
+        VarHandle.releaseFence();
+        store(reference, index, value);
+        VarHandle.fullFence();
+    }
+
+    public void storeRelease(int reference, int index, YObject value) {
+        long offset = decompress(reference);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        char elementType = (char) chunk.get(base + 4);
+        int position = elementPosition(chunk, base, elementType, index);
+        switch (elementType) {
+            case 'I':
+                INTS.setRelease(chunk, position, (int) YObject.numericValue(value));
+                return;
+            case 'J':
+                LONGS.setRelease(chunk, position, YObject.numericValue(value));
+                return;
+        }
+        VarHandle.releaseFence();
+        store(reference, index, value);
+    }
+
+    public boolean compareAndSet(int reference, int index, long expected, YObject value) {
+        long offset = decompress(reference);
+        ByteBuffer chunk = chunkOf(offset);
+        int base = positionOf(offset);
+        char elementType = (char) chunk.get(base + 4);
+        int position = elementPosition(chunk, base, elementType, index);
+        switch (elementType) {
+            case 'I':
+                return INTS.compareAndSet(chunk, position, (int) expected, (int) YObject.numericValue(value));
+            case 'J':
+                return LONGS.compareAndSet(chunk, position, expected, YObject.numericValue(value));
+        }
+        throw new VMExecutionException("can not compare and set elements of [" + elementType);
+    }
+
+    /***************************************************************
+     *  slide blocks of given live arrays to the bottom of region in
+     *  address order and update their references. Blocks of other
+     *  arrays are dropped. It must run at a global safepoint
+     *
+     ***************************************************************/
+    public synchronized void compact(List<YArray> liveArrays) {
+        ArrayList<YArray> sorted = new ArrayList<>(liveArrays);
+        sorted.sort(Comparator.comparingLong(array -> decompress(array.offHeapReference())));
+        long newTop = ALIGNMENT;
+        for (YArray array : sorted) {
+            long from = decompress(array.offHeapReference());
+            long size = blockSize(elementType(array.offHeapReference()), length(array.offHeapReference()));
+            long to = newTop;
+            if ((to >>> CHUNK_SHIFT) != ((to + size - 1) >>> CHUNK_SHIFT)) {
+                to = ((to >>> CHUNK_SHIFT) + 1) << CHUNK_SHIFT;
+            }
+            if (to != from) {
+                ByteBuffer source = chunkOf(from);
+                ByteBuffer target = chunkOf(to);
+                int sourceBase = positionOf(from);
+                int targetBase = positionOf(to);
+                for (int i = 0; i < size; i += ALIGNMENT) {
+                    target.putLong(targetBase + i, source.getLong(sourceBase + i));
+                }
+                array.offHeapReference(compress(to));
+            }
+            newTop = to + size;
+        }
+        top = newTop;
+    }
+
+    /***************************************************************
+     *  write changes of a memory-mapped region back to its file
+     *
+     ***************************************************************/
+    public void force() {
+        for (ByteBuffer chunk : chunks) {
+            if (chunk instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+    public synchronized long usedBytes() {
+        return top - ALIGNMENT;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public static long blockSize(char elementType, int length) {
+        long size = BLOCK_HEADER_SIZE + (long) length * elementSize(elementType);
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    public static int elementSize(char elementType) {
+        switch (elementType) {
+            case 'Z':
+            case 'B':
+                return 1;
+            case 'C':
+            case 'S':
+                return 2;
+            case 'I':
+            case 'F':
+                return 4;
+            case 'J':
+            case 'D':
+                return 8;
+        }
+        throw new VMExecutionException("invalid primitive array type " + elementType);
+    }
+
+    private int elementPosition(ByteBuffer chunk, int base, char elementType, int index) {
+        if (index < 0 || index >= chunk.getInt(base)) {
+            throw new ArrayIndexOutOfBoundsException("array index out of bounds");
+        }
+        return base + BLOCK_HEADER_SIZE + index * elementSize(elementType);
+    }
+
+    private static int compress(long offset) {
+        return (int) (offset >>> SHIFT);
+    }
+
+    private static long decompress(int reference) {
+        return (reference & 0xFFFFFFFFL) << SHIFT;
+    }
+
+    private ByteBuffer chunkOf(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)];
+    }
+
+    private static int positionOf(long offset) {
+        return (int) (offset & (CHUNK_SIZE - 1));
+    }
+}
@@ -0,0 +1,87 @@
+package runtime.gc;
+
+import runtime.YObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/***************************************************************
+ *  tenured space. Each object records its position in this space
+ *  as the old slot, which is used to index the card table
+ *
+ ***************************************************************/
+public class OldSpace extends Space {
+    private CardTable cardTable;
+
+    public OldSpace(long capacity) {
+        super("old", capacity);
+        cardTable = new CardTable();
+    }
+
+    @Override
+    public void add(YObject object) {
+        object.generation(Generation.OLD);
+        object.oldSlot(objects().size());
+        super.add(object);
+        cardTable.ensureSlots(objects().size());
+    }
+
+    /***************************************************************
+     *  dirty cards are carried over to the new slots of surviving
+     *  objects, thus no scan of the whole old space is needed
+     *
+     ***************************************************************/
+    @Override
+    public long retain(List<YObject> survivors) {
+        ArrayList<YObject> remembered = new ArrayList<>();
+        cardTable.forEachDirtyCard(card -> forEachObjectOfCard(card, remembered::add));
+
+        long freed = super.retain(survivors);
+        List<YObject> live = objects();
+        for (int i = 0; i < live.size(); i++) {
+            live.get(i).oldSlot(i);
+        }
+        cardTable.clean();
+        cardTable.ensureSlots(live.size());
+        for (YObject object : remembered) {
+            int slot = object.oldSlot();
+            if (slot < live.size() && live.get(slot) == object) {
+                cardTable.dirty(slot);
+            }
+        }
+        return freed;
+    }
+
+    public CardTable cardTable() {
+        return cardTable;
+    }
+
+    /***************************************************************
+     *  visit all old objects covered by the given card
+     *
+     ***************************************************************/
+    public void forEachObjectOfCard(int card, Consumer<YObject> visitor) {
+        List<YObject> live = objects();
+        int end = Math.min(live.size(), CardTable.firstSlotOf(card) + CardTable.slotsPerCard());
+        for (int i = CardTable.firstSlotOf(card); i < end; i++) {
+            visitor.accept(live.get(i));
+        }
+    }
+
+    public void rememberIfPointsToYoung(YObject object) {
+        if (pointsToYoung(object)) {
+            cardTable.dirty(object.oldSlot());
+        }
+    }
+
+    static boolean pointsToYoung(YObject object) {
+        boolean[] found = {false};
+        object.visitReferences(child -> {
+            if (child.generation() == Generation.YOUNG) {
+                found[0] = true;
+            }
+        });
+        return found[0];
+    }
+}
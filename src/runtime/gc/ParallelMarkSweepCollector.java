@@ -0,0 +1,145 @@
+package runtime.gc;
+
+import runtime.YHeap;
+import runtime.YObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/***************************************************************
+ *  stop-the-world mark-sweep collector running on a work-stealing
+ *  pool of gc workers.
+ *
+ *  Each marking task drains its own work list, when the list grows
+ *  over SPLIT_THRESHOLD half of it is forked as a new task which
+ *  idle workers can steal. Objects are marked by CAS on the gc
+ *  epoch, so every object is traced exactly once even if several
+ *  workers reach it at the same time.
+ *
+ *  Sweeping splits each space into regions of REGION_SIZE objects
+ *  and filters regions in parallel, live objects keep their order
+ *  in the space.
+ *
+ ***************************************************************/
+public class ParallelMarkSweepCollector implements GarbageCollector {
+    private static final int SPLIT_THRESHOLD = 256;
+    private static final int ROOTS_PER_TASK = 1024;
+    private static final int REGION_SIZE = 4096;
+
+    private ForkJoinPool pool;
+
+    public ParallelMarkSweepCollector(int parallelThreads) {
+        pool = new ForkJoinPool(parallelThreads);
+    }
+
+    @Override
+    public void collect(YHeap heap, RootScanner roots, GCPhaseTimes times) {
+        int epoch = heap.nextEpoch();
+
+        times.begin("roots");
+        ArrayList<YObject> rootObjects = new ArrayList<>();
+        roots.scan(root -> {
+            if (root != null && root.tryMark(epoch)) {
+                rootObjects.add(root);
+            }
+        });
+
+        times.begin("mark");
+        ArrayList<MarkTask> tasks = new ArrayList<>();
+        for (int i = 0; i < rootObjects.size(); i += ROOTS_PER_TASK) {
+            List<YObject> part = rootObjects.subList(i, Math.min(rootObjects.size(), i + ROOTS_PER_TASK));
+            tasks.add(new MarkTask(new ArrayDeque<>(part), epoch));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        times.begin("sweep");
+        for (Space space : heap.spaces()) {
+            List<YObject> objects = space.objects();
+            space.retain(pool.invoke(new SweepTask(objects, 0, objects.size(), epoch)));
+        }
+        heap.forgetRemembered(object -> object.gcEpoch() != epoch);
+        times.end();
+    }
+
+    private static class MarkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private ArrayDeque<YObject> workList;
+        private int epoch;
+
+        MarkTask(ArrayDeque<YObject> workList, int epoch) {
+            this.workList = workList;
+            this.epoch = epoch;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayList<MarkTask> forked = new ArrayList<>();
+            while (!workList.isEmpty()) {
+                workList.pop().visitReferences(child -> {
+                    if (child.tryMark(epoch)) {
+                        workList.push(child);
+                    }
+                });
+                if (workList.size() > SPLIT_THRESHOLD) {
+                    ArrayDeque<YObject> half = new ArrayDeque<>();
+                    for (int i = workList.size() / 2; i > 0; i--) {
+                        half.add(workList.pollLast());
+                    }
+                    MarkTask task = new MarkTask(half, epoch);
+                    task.fork();
+                    forked.add(task);
+                }
+            }
+            for (MarkTask task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    private static class SweepTask extends RecursiveTask<List<YObject>> {
+        private static final long serialVersionUID = 1L;
+
+        private List<YObject> objects;
+        private int from;
+        private int to;
+        private int epoch;
+
+        SweepTask(List<YObject> objects, int from, int to, int epoch) {
+            this.objects = objects;
+            this.from = from;
+            this.to = to;
+            this.epoch = epoch;
+        }
+
+        @Override
+        protected List<YObject> compute() {
+            if (to - from <= REGION_SIZE) {
+                ArrayList<YObject> live = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    if (objects.get(i).gcEpoch() == epoch) {
+                        live.add(objects.get(i));
+                    }
+                }
+                return live;
+            }
+            int middle = (from + to) >>> 1;
+            SweepTask left = new SweepTask(objects, from, middle, epoch);
+            SweepTask right = new SweepTask(objects, middle, to, epoch);
+            ForkJoinTask.invokeAll(left, right);
+            List<YObject> live = left.join();
+            live.addAll(right.join());
+            return live;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package runtime.gc;
+
+import runtime.RuntimeVM;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.meta.MetaClass;
+import runtime.ystack.YStackFrame;
+
+import java.util.function.Consumer;
+
+/***************************************************************
+ *  enumerate precise roots of guest heap, they are
+ *      1. local variables and operands of all stack frames of
+ *         every runtime thread
+ *      2. static variables of all loaded classes
+ *      3. interned strings
+ *      4. objects of allocation regions of running guest tasks,
+ *         a region is freed as a whole, so all its objects are
+ *         kept alive until then
+ *
+ ***************************************************************/
+public class RootScanner {
+    private RuntimeVM runtimeVMRef;
+
+    public RootScanner(RuntimeVM runtimeVM) {
+        this.runtimeVMRef = runtimeVM;
+    }
+
+    public void scan(Consumer<YObject> visitor) {
+        scanStacks(visitor);
+        scanStaticVariables(visitor);
+        runtimeVMRef.heap().internedStrings().forEach(visitor);
+        scanArenas(visitor);
+    }
+
+    private void scanArenas(Consumer<YObject> visitor) {
+        for (YThread thread : runtimeVMRef.threads()) {
+            if (thread.arena() != null) {
+                thread.arena().objects().forEach(visitor);
+            }
+        }
+    }
+
+    private void scanStacks(Consumer<YObject> visitor) {
+        for (YThread thread : runtimeVMRef.threads()) {
+            for (YStackFrame frame : thread.runtimeThread().stack().frames()) {
+                frame.visitReferences(visitor);
+            }
+        }
+    }
+
+    private void scanStaticVariables(Consumer<YObject> visitor) {
+        for (MetaClass meta : runtimeVMRef.methodScope().getAllClasses()) {
+            meta.staticFields().visitReferences(visitor);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package runtime.gc;
+
+import runtime.YObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  thread local buffer of snapshot-at-the-beginning barrier. The
+ *  pre-write barrier logs the old value of every reference store
+ *  while concurrent marking is running, a full buffer is handed
+ *  over to concurrent marker
+ *
+ ***************************************************************/
+public class SATBBuffer {
+    public static final int CAPACITY = 256;
+
+    private ArrayList<YObject> entries;
+
+    public SATBBuffer() {
+        entries = new ArrayList<>(CAPACITY);
+    }
+
+    /***************************************************************
+     *  log an old value, the filled buffer is returned if it's full
+     *  and this buffer starts over, otherwise null is returned
+     *
+     ***************************************************************/
+    public List<YObject> enqueue(YObject oldValue) {
+        entries.add(oldValue);
+        if (entries.size() >= CAPACITY) {
+            return drain();
+        }
+        return null;
+    }
+
+    public List<YObject> drain() {
+        List<YObject> filled = entries;
+        entries = new ArrayList<>(CAPACITY);
+        return filled;
+    }
+}
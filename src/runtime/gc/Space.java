@@ -0,0 +1,102 @@
+package runtime.gc;
+
+import runtime.YObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  a contiguous allocation area of guest heap. Objects live on
+ *  host heap, a space just keeps track of them and accounts
+ *  their estimated size against its capacity
+ *
+ ***************************************************************/
+public class Space {
+    private String name;
+    private long capacity;
+    private long usedBytes;
+    private ArrayList<YObject> objects;
+
+    public Space(String name, long capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        objects = new ArrayList<>();
+    }
+
+    public boolean hasRoom(long size) {
+        return usedBytes + size <= capacity;
+    }
+
+    public void add(YObject object) {
+        objects.add(object);
+        usedBytes += object.shallowSize();
+    }
+
+    /***************************************************************
+     *  reserve bytes without placing any object, it's used when a
+     *  thread local allocation buffer is carved out of this space
+     *
+     ***************************************************************/
+    public void reserve(long size) {
+        usedBytes += size;
+    }
+
+    /***************************************************************
+     *  take objects whose bytes were reserved before
+     *
+     ***************************************************************/
+    public void adopt(List<YObject> allocated) {
+        objects.addAll(allocated);
+    }
+
+    public void clear() {
+        objects.clear();
+        usedBytes = 0;
+    }
+
+    /***************************************************************
+     *  remove all objects which were not marked in given epoch and
+     *  return the number of freed bytes
+     *
+     ***************************************************************/
+    public long sweep(int markEpoch) {
+        ArrayList<YObject> live = new ArrayList<>();
+        for (YObject object : objects) {
+            if (object.gcEpoch() == markEpoch) {
+                live.add(object);
+            }
+        }
+        return retain(live);
+    }
+
+    /***************************************************************
+     *  replace all objects of this space with the given live objects
+     *  and return the number of freed bytes
+     *
+     ***************************************************************/
+    public long retain(List<YObject> live) {
+        long before = usedBytes;
+        objects = new ArrayList<>(live);
+        usedBytes = 0;
+        for (YObject object : objects) {
+            usedBytes += object.shallowSize();
+        }
+        return before - usedBytes;
+    }
+
+    public List<YObject> objects() {
+        return objects;
+    }
+
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public String name() {
+        return name;
+    }
+}
@@ -0,0 +1,53 @@
+package runtime.gc;
+
+import runtime.YObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  thread local allocation buffer. A chunk of eden is reserved
+ *  for one guest thread, then allocation within the chunk is a
+ *  pointer bump without any lock. Allocated objects are handed
+ *  over to eden when the buffer is retired, which always happens
+ *  before a collection
+ *
+ ***************************************************************/
+public class ThreadLocalAllocationBuffer {
+    private long top;
+    private long end;
+    private ArrayList<YObject> allocated;
+
+    public ThreadLocalAllocationBuffer() {
+        allocated = new ArrayList<>();
+    }
+
+    public boolean allocate(YObject object, long size) {
+        if (top + size > end) {
+            return false;
+        }
+        top += size;
+        object.generation(Generation.YOUNG);
+        object.age(0);
+        allocated.add(object);
+        return true;
+    }
+
+    public void refill(long size) {
+        top = 0;
+        end = size;
+    }
+
+    /***************************************************************
+     *  return all objects allocated in this buffer and make it empty,
+     *  the rest of reserved chunk is wasted until next collection
+     *
+     ***************************************************************/
+    public List<YObject> retire() {
+        List<YObject> objects = allocated;
+        allocated = new ArrayList<>();
+        top = 0;
+        end = 0;
+        return objects;
+    }
+}
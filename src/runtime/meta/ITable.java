@@ -0,0 +1,192 @@
+package runtime.meta;
+
+import common.Tuple6;
+import runtime.YMethodScope;
+import ycloader.adt.u1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/***************************************************************
+ *  interface method table of a class.
+ *
+ *  It has one entry for each interface the class implements,
+ *  directly or through its super classes and super interfaces. An
+ *  entry lists, in the order the interface declares its methods,
+ *  the method selected for each of them, i.e. the one in the vtable
+ *  of the class, which is a default method if the class doesn't
+ *  declare or inherit an implementation.
+ *
+ *  So a method ref of invokeinterface is resolved once to the
+ *  interface declaring the method and its index there, then the
+ *  target is selected by scanning the few entries for the interface.
+ *
+ ***************************************************************/
+public class ITable {
+    private static final ITable EMPTY = new ITable(new ArrayList<>());
+
+    private Entry[] entries;
+
+    private ITable(List<Entry> entries) {
+        this.entries = entries.toArray(new Entry[0]);
+    }
+
+    /***************************************************************
+     *  build the table of a class after its vtable is built
+     *
+     ***************************************************************/
+    public static synchronized ITable link(MetaClass meta, YMethodScope methodScope) {
+        if (meta.itable() != null) {
+            return meta.itable();
+        }
+        if (meta.isInterface()) {
+            meta.itable(EMPTY);
+            return EMPTY;
+        }
+        VTable vtable = VTable.link(meta, methodScope);
+        ArrayList<MetaClass> interfaces = new ArrayList<>();
+        for (MetaClass c = meta; c != null; ) {
+            for (MetaClass x : superInterfaces(c, methodScope)) {
+                if (!interfaces.contains(x)) {
+                    interfaces.add(x);
+                }
+            }
+            c = c.hasSuperClass() ? methodScope.getMetaClass(c.superClassName, c.classLoader) : null;
+        }
+
+        ArrayList<Entry> entries = new ArrayList<>();
+        for (MetaClass x : interfaces) {
+            ArrayList<Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                    ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension>> methods = new ArrayList<>();
+            for (Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                    ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method : x.methods.virtualMethods()) {
+                int index = vtable.indexOf(method.get1Placeholder(), method.get2Placeholder());
+                methods.add(index < 0 ? method : vtable.methodAt(index));
+            }
+            entries.add(new Entry(x, methods));
+        }
+        ITable itable = new ITable(entries);
+        meta.itable(itable);
+        return itable;
+    }
+
+    /***************************************************************
+     *  resolve a method ref of invokeinterface, the method is looked
+     *  up in the referenced interface and then its super interfaces.
+     *  Methods of java/lang/Object which are invoked on an interface
+     *  type are resolved to their vtable index instead, with null as
+     *  declaring interface
+     *
+     ***************************************************************/
+    public static InterfaceMethod resolve(MetaClass referencedInterface, String methodName,
+                                          String methodDescriptor, YMethodScope methodScope) {
+        ArrayList<MetaClass> candidates = new ArrayList<>();
+        candidates.add(referencedInterface);
+        candidates.addAll(superInterfaces(referencedInterface, methodScope));
+        for (MetaClass x : candidates) {
+            int index = 0;
+            for (Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                    ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method : x.methods.virtualMethods()) {
+                if (method.get1Placeholder().equals(methodName) && method.get2Placeholder().equals(methodDescriptor)) {
+                    return new InterfaceMethod(x, index);
+                }
+                index++;
+            }
+        }
+        MetaClass object = methodScope.getMetaClass("java/lang/Object", referencedInterface.classLoader);
+        if (object != null) {
+            int index = VTable.link(object, methodScope).indexOf(methodName, methodDescriptor);
+            if (index >= 0) {
+                return new InterfaceMethod(null, index);
+            }
+        }
+        return null;
+    }
+
+    /***************************************************************
+     *  interfaces a class or an interface declares and all their super
+     *  interfaces, nearer ones come first. Interfaces of super classes
+     *  are not included
+     *
+     ***************************************************************/
+    public static List<MetaClass> superInterfaces(MetaClass meta, YMethodScope methodScope) {
+        ArrayList<MetaClass> interfaces = new ArrayList<>();
+        addInterfaces(interfaces, meta, methodScope);
+        for (int i = 0; i < interfaces.size(); i++) {
+            addInterfaces(interfaces, interfaces.get(i), methodScope);
+        }
+        return interfaces;
+    }
+
+    private static void addInterfaces(List<MetaClass> interfaces, MetaClass meta, YMethodScope methodScope) {
+        if (meta.interfaces == null) {
+            return;
+        }
+        Collection<String> names = meta.interfaces.getInterfaceNames();
+        for (String name : names) {
+            MetaClass x = methodScope.getMetaClass(name, meta.classLoader);
+            if (x != null && !interfaces.contains(x)) {
+                interfaces.add(x);
+            }
+        }
+    }
+
+    /***************************************************************
+     *  method selected for the index-th method of given interface, it's
+     *  null if the class doesn't implement the interface
+     *
+     ***************************************************************/
+    public Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> methodAt(MetaClass iface, int index) {
+        for (Entry entry : entries) {
+            if (entry.iface == iface) {
+                return entry.methods.get(index);
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    private static class Entry {
+        private MetaClass iface;
+        private ArrayList<Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension>> methods;
+
+        Entry(MetaClass iface, ArrayList<Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension>> methods) {
+            this.iface = iface;
+            this.methods = methods;
+        }
+    }
+
+    /***************************************************************
+     *  a method ref of invokeinterface after resolution
+     *
+     ***************************************************************/
+    public static class InterfaceMethod {
+        private MetaClass declaringInterface;
+        private int index;
+
+        InterfaceMethod(MetaClass declaringInterface, int index) {
+            this.declaringInterface = declaringInterface;
+            this.index = index;
+        }
+
+        /***************************************************************
+         *  null if it's a method of java/lang/Object, then index() is
+         *  its vtable index
+         *
+         ***************************************************************/
+        public MetaClass declaringInterface() {
+            return declaringInterface;
+        }
+
+        public int index() {
+            return index;
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package runtime.meta;
 
-import common.Tuple5;
 import runtime.YObject;
-import ycloader.adt.attribute.Attribute;
-
-import java.util.HashMap;
-import java.util.Map;
+import runtime.YThread;
+import ycloader.constant.ClassAccessProperty;
 
 public class MetaClass {
+    /***************************************************************
+     *  initialization states of a class, see
+     *  YClassLoader.initializeClass()
+     *
+     ***************************************************************/
+    public static final int UNINITIALIZED = 0;
+    public static final int BEING_INITIALIZED = 1;
+    public static final int INITIALIZED = 2;
+    public static final int ERRONEOUS = 3;
+
     public MetaClassField fields;
     public String superClassName;
     public int accessFlag;
@@ -17,19 +24,97 @@ public class MetaClass {
     public MetaClassConstantPool constantPool;
     public MetaClassMethod methods;
     public boolean isClass;
-    private Map<Integer, Tuple5<String, String, Integer, Attribute[], YObject>> staticVars;
+    private StaticFields staticFields;
+    private YObject mirror;
+    private volatile VTable vtable;
+    private volatile ITable itable;
+    private volatile int initializationState;
+    private YThread initializingThread;
+
+    /***************************************************************
+     *  static variables, they are laid out when fields of the class
+     *  are resolved
+     *
+     ***************************************************************/
+    public StaticFields staticFields() {
+        return staticFields;
+    }
+
+    public void staticFields(StaticFields staticFields) {
+        this.staticFields = staticFields;
+    }
+
+    /***************************************************************
+     *  the object standing for this class, static synchronized
+     *  methods lock its monitor
+     *
+     ***************************************************************/
+    public synchronized YObject mirror() {
+        if (mirror == null) {
+            mirror = new YObject(this);
+        }
+        return mirror;
+    }
+
+    /***************************************************************
+     *  virtual method table, it's null until the class is linked with
+     *  its super classes, see VTable.link()
+     *
+     ***************************************************************/
+    public VTable vtable() {
+        return vtable;
+    }
 
-    public MetaClass() {
-        staticVars = new HashMap<>();
+    public void vtable(VTable vtable) {
+        this.vtable = vtable;
     }
 
+    /***************************************************************
+     *  interface method table, it's null until the class is linked,
+     *  see ITable.link()
+     *
+     ***************************************************************/
+    public ITable itable() {
+        return itable;
+    }
+
+    public void itable(ITable itable) {
+        this.itable = itable;
+    }
+
+    /***************************************************************
+     *  state and the thread running <clinit>, they are changed while
+     *  holding the monitor of this MetaClass
+     *
+     ***************************************************************/
+    public int initializationState() {
+        return initializationState;
+    }
+
+    public YThread initializingThread() {
+        return initializingThread;
+    }
+
+    public void initializationState(int state, YThread initializingThread) {
+        this.initializationState = state;
+        this.initializingThread = initializingThread;
+    }
+
+    public boolean isInitialized() {
+        return initializationState == INITIALIZED;
+    }
 
-    public void addStaticVariables(int index, Tuple5<String, String, Integer, Attribute[], YObject> staticVar) {
-        staticVars.put(index, staticVar);
+    public boolean isInterface() {
+        return (accessFlag & ClassAccessProperty.ACC_INTERFACE) != 0;
     }
 
-    public Map<Integer, Tuple5<String, String, Integer, Attribute[], YObject>> getStaticVariable() {
-        return staticVars;
+    /***************************************************************
+     *  java/lang/Object names itself as its super class, so walking
+     *  up the hierarchy must stop there
+     *
+     ***************************************************************/
+    public boolean hasSuperClass() {
+        return superClassName != null && !superClassName.isEmpty() && !superClassName.equals(qualifiedClassName);
     }
 
     @Override
@@ -1,109 +1,87 @@
 package runtime.meta;
 
-import common.Predicate;
 import common.Tuple2;
 import common.Tuple3;
+import common.Tuple6;
 import ycloader.adt.constantpool.*;
+import ycloader.adt.u1;
 import ycloader.dataobject.ConstantPoolObject;
 import ycloader.exception.ClassLinkingException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/***************************************************************
+ *  run-time constant pool of a class.
+ *
+ *  Entries are kept in one array indexed by cp index together with
+ *  their tags, so looking up an entry is one array read whatever
+ *  its type is. Beside the symbolic entry each index has a slot of
+ *  its resolved form, which is filled lazily by the first thread
+ *  resolving it
+ *      Integer/Float/Long/Double   boxed constant
+ *      String                      interned guest string
+ *      Class                       MetaClass
+ *      Methodref                   MethodEntry
+ *      InterfaceMethodref          MethodEntry
+ *  Threads may race to resolve an entry, they resolve it to the same
+ *  thing and the first one is kept.
+ *
+ ***************************************************************/
 public class MetaClassConstantPool {
-    private HashMap<                    //
-            Integer,                    //cp index
-            String>                     //class name
-            classes;                    //
-
-    private HashMap<                    //
-            Integer,                    //cp index
-            Tuple3<                     //
-                    String,             //class name of class method/field name,or interface name of interface method
-                    String,             //class method/interface method/field name
-                    String>>            //class method/interface method/field descriptor
-            refKind;
-
-    private HashMap<
-            Integer,                    //cp index
-            String>                     //literal string
-            strings;                    //
-
-    private HashMap<                    //
-            Integer,                    //cp index
-            Integer>                    //integer representation
-            integers;                   //
-
-    private HashMap<                    //
-            Integer,                    //cp index
-            Float>                      //float representation
-            floats;                     //
-
-    private HashMap<                    //
-            Integer,                    //cp index
-            Long>                       //long representation
-            longs;                      //
-
-    private HashMap<                    //
-            Integer,                    //cp index
-            Double>                     //double representation
-            doubles;                    //
-
-    private HashMap<
-            Integer,                    //cp index
-            Tuple2<                     //
-                    String              //name
-                    , String>>           //type
-            nameAndTypes;
-
-    private HashMap<                    //
-            Integer,                    //cp index
-            String>                     //utf8 representation
-            utf8s;
-
-    private HashMap<
-            Integer,                    //cp index
-            Tuple2<Integer,             //reference kind
-                    Integer>>           //reference index;
-            methodHandles;
-
-    private HashMap<
-            Integer,                    //cp index
-            String>                     //method type name;
-            methodTypes;
-
-    private HashMap<
-            Integer,                    //cp index
-            Tuple3<                     //
-                    Integer,            //bootstrap method attribute index
-                    String,             //name
-                    String>>            //type
-            invokeDynamics;
+    public static final byte CLASS = 7;
+    public static final byte FIELD_REF = 9;
+    public static final byte METHOD_REF = 10;
+    public static final byte INTERFACE_METHOD_REF = 11;
+    public static final byte STRING = 8;
+    public static final byte INTEGER = 3;
+    public static final byte FLOAT = 4;
+    public static final byte LONG = 5;
+    public static final byte DOUBLE = 6;
+    public static final byte NAME_AND_TYPE = 12;
+    public static final byte UTF8 = 1;
+    public static final byte METHOD_HANDLE = 15;
+    public static final byte METHOD_TYPE = 16;
+    public static final byte INVOKE_DYNAMIC = 18;
+
+    private byte[] tags;                //tag of each entry, 0 if the index is unused
+    private Object[] entries;           //symbolic entry of each index, i.e.
+                                        //  Class                   class name
+                                        //  Field/Method/InterfaceMethodref
+                                        //                          Tuple3<class name, name, descriptor>
+                                        //  String/Utf8             String
+                                        //  Integer/Float/Long/Double
+                                        //                          boxed value
+                                        //  NameAndType             Tuple2<name, descriptor>
+                                        //  MethodHandle            Tuple2<reference kind, reference index>
+                                        //  MethodType              descriptor
+                                        //  InvokeDynamic           Tuple3<bootstrap method attribute index, name, type>
+    private AtomicReferenceArray<Object> resolved;
 
     public MetaClassConstantPool() {
-        classes = new HashMap<>();
-        refKind = new HashMap<>();
-        strings = new HashMap<>();
-        integers = new HashMap<>();
-        floats = new HashMap<>();
-        longs = new HashMap<>();
-        doubles = new HashMap<>();
-        nameAndTypes = new HashMap<>();
-        utf8s = new HashMap<>();
-        methodTypes = new HashMap<>();
-        methodHandles = new HashMap<>();
-        invokeDynamics = new HashMap<>();
+        tags = new byte[0];
+        entries = new Object[0];
+        resolved = new AtomicReferenceArray<>(0);
     }
 
     public void resolve(ConstantPoolObject cp) throws ClassLinkingException {
         ArrayList<AbstractConstantPool> acp = cp.getAbstractConstantPool();
+        int size = 1;
+        for (AbstractConstantPool x : acp) {
+            //a long or double takes two entries
+            size = Math.max(size, x.getTableIndex() + 2);
+        }
+        tags = new byte[size];
+        entries = new Object[size];
+        resolved = new AtomicReferenceArray<>(size);
         for (AbstractConstantPool x : acp) {
             int index = x.getTableIndex();
 
             if (x instanceof ConstantClassInfo) {
                 String qualifiedClassName = cp.at(((ConstantClassInfo) x).nameIndex.getValue()).toString();
 
-                classes.put(index, qualifiedClassName);
+                put(index, CLASS, qualifiedClassName);
             } else if (x instanceof ConstantFieldRefInfo) {
                 int classIndex = ((ConstantFieldRefInfo) x).classIndex.getValue();
                 String qualifiedClassName = cp.at(((ConstantClassInfo) cp.at(classIndex)).nameIndex.getValue()).toString();
@@ -112,7 +90,7 @@ public class MetaClassConstantPool {
                 String name = cp.at(((ConstantNameAndTypeInfo) cp.at(nameAndTypeIndex)).nameIndex.getValue()).toString();
                 String type = cp.at(((ConstantNameAndTypeInfo) cp.at(nameAndTypeIndex)).descriptorIndex.getValue()).toString();
 
-                refKind.put(index, new Tuple3<>(qualifiedClassName, name, type));
+                put(index, FIELD_REF, new Tuple3<>(qualifiedClassName, name, type));
             } else if (x instanceof ConstantMethodRefInfo) {
                 int classIndex = ((ConstantMethodRefInfo) x).classIndex.getValue();
                 String qualifiedClassName = cp.at(((ConstantClassInfo) cp.at(classIndex)).nameIndex.getValue()).toString();
@@ -121,7 +99,7 @@ public class MetaClassConstantPool {
                 String name = cp.at(((ConstantNameAndTypeInfo) cp.at(nameAndTypeIndex)).nameIndex.getValue()).toString();
                 String type = cp.at(((ConstantNameAndTypeInfo) cp.at(nameAndTypeIndex)).descriptorIndex.getValue()).toString();
 
-                refKind.put(index, new Tuple3<>(qualifiedClassName, name, type));
+                put(index, METHOD_REF, new Tuple3<>(qualifiedClassName, name, type));
             } else if (x instanceof ConstantInterfaceMethodRefInfo) {
                 int classIndex = ((ConstantInterfaceMethodRefInfo) x).classIndex.getValue();
                 String qualifiedClassName = cp.at(((ConstantClassInfo) cp.at(classIndex)).nameIndex.getValue()).toString();
@@ -130,15 +108,15 @@ public class MetaClassConstantPool {
                 String name = cp.at(((ConstantNameAndTypeInfo) cp.at(nameAndTypeIndex)).nameIndex.getValue()).toString();
                 String type = cp.at(((ConstantNameAndTypeInfo) cp.at(nameAndTypeIndex)).descriptorIndex.getValue()).toString();
 
-                refKind.put(index, new Tuple3<>(qualifiedClassName, name, type));
+                put(index, INTERFACE_METHOD_REF, new Tuple3<>(qualifiedClassName, name, type));
             } else if (x instanceof ConstantStringInfo) {
                 String literalString = cp.at(((ConstantStringInfo) x).stringIndex.getValue()).toString();
 
-                strings.put(index, literalString);
+                put(index, STRING, literalString);
             } else if (x instanceof ConstantIntegerInfo) {
                 int integer = (int) ((ConstantIntegerInfo) x).bytes.getValue();
 
-                integers.put(index, integer);
+                put(index, INTEGER, integer);
             } else if (x instanceof ConstantFloatInfo) {
                 int bits = (int) ((ConstantFloatInfo) x).bytes.getValue();
                 int s = ((bits >> 31) == 0) ? 1 : -1;
@@ -147,12 +125,12 @@ public class MetaClassConstantPool {
                         (bits & 0x7fffff) << 1 :
                         (bits & 0x7fffff) | 0x800000;
                 float floatV = (float) (s * m * Math.pow(2, e - 150));
-                floats.put(index, floatV);
+                put(index, FLOAT, floatV);
             } else if (x instanceof ConstantLongInfo) {
                 int high = (int) ((ConstantLongInfo) x).highBytes.getValue();
                 int low = (int) ((ConstantLongInfo) x).lowBytes.getValue();
                 long longV = ((long) high << 32) + low;
-                longs.put(index, longV);
+                put(index, LONG, longV);
             } else if (x instanceof ConstantDoubleInfo) {
                 int high = (int) ((ConstantDoubleInfo) x).highBytes.getValue();
                 int low = (int) ((ConstantDoubleInfo) x).lowBytes.getValue();
@@ -163,25 +141,25 @@ public class MetaClassConstantPool {
                         (bits & 0xfffffffffffffL) << 1 :
                         (bits & 0xfffffffffffffL) | 0x10000000000000L;
                 double doubleV = s * m * Math.pow(2.0, e - 1075);
-                doubles.put(index, doubleV);
+                put(index, DOUBLE, doubleV);
             } else if (x instanceof ConstantNameAndTypeInfo) {
                 int nameIndex = ((ConstantNameAndTypeInfo) x).nameIndex.getValue();
                 int descriptorIndex = ((ConstantNameAndTypeInfo) x).descriptorIndex.getValue();
                 String name = cp.at(nameIndex).toString();
                 String descriptor = cp.at(descriptorIndex).toString();
 
-                nameAndTypes.put(index, new Tuple2<>(name, descriptor));
+                put(index, NAME_AND_TYPE, new Tuple2<>(name, descriptor));
             } else if (x instanceof ConstantUtf8Info) {
-                utf8s.put(index, x.toString());
+                put(index, UTF8, x.toString());
             } else if (x instanceof ConstantMethodHandleInfo) {
                 int referenceKind = ((ConstantMethodHandleInfo) x).referenceKind.getValue();
                 int referenceIndex = ((ConstantMethodHandleInfo) x).referenceIndex.getValue();
-                methodHandles.put(index, new Tuple2<>(referenceKind, referenceIndex));
+                put(index, METHOD_HANDLE, new Tuple2<>(referenceKind, referenceIndex));
             } else if (x instanceof ConstantMethodTypeInfo) {
                 int descriptorIndex = ((ConstantMethodTypeInfo) x).descriptorIndex.getValue();
                 String descriptor = cp.at(descriptorIndex).toString();
 
-                methodTypes.put(index, descriptor);
+                put(index, METHOD_TYPE, descriptor);
             } else if (x instanceof ConstantInvokeDynamicInfo) {
                 int bootstrapMethodAttributeIndex = ((ConstantInvokeDynamicInfo) x).bootstrapMethodAttrIndex.getValue();
                 int nameAndTypeIndex = ((ConstantInvokeDynamicInfo) x).nameAndTypeIndex.getValue();
@@ -190,131 +168,229 @@ public class MetaClassConstantPool {
                 String name = cp.at(nameIndex).toString();
                 String type = cp.at(typeIndex).toString();
 
-                invokeDynamics.put(index, new Tuple3<>(bootstrapMethodAttributeIndex, name, type));
+                put(index, INVOKE_DYNAMIC, new Tuple3<>(bootstrapMethodAttributeIndex, name, type));
             } else {
                 throw new ClassLinkingException("unrecognized constant pool type in resolving phase");
             }
         }
     }
 
+    private void put(int index, byte tag, Object entry) {
+        tags[index] = tag;
+        entries[index] = entry;
+    }
+
     public void debug(String thisClassName) {
         System.out.println("########################" + thisClassName + " Constant Pool#################################");
-        System.out.println("#Class#");
-        classes.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Reference#");
-        refKind.forEach((Index, Bundle) -> {
-            System.out.println("#" + Index + "\t" + Bundle.get1Placeholder() + "," + Bundle.get2Placeholder() + "," + Bundle.get3Placeholder() + "#");
-        });
-        System.out.println("#Strings#");
-        strings.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Integer#");
-        integers.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Float#");
-        floats.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Long#");
-        longs.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Double#");
-        doubles.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Name and Type#");
-        nameAndTypes.forEach((Index, Bundle) -> {
-            System.out.println("#" + Index + "\t" + Bundle.get1Placeholder() + "," + Bundle.get2Placeholder() + "#");
-        });
-        System.out.println("#UTF 8#");
-        utf8s.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Method handle#");
-        methodHandles.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Method type#");
-        methodTypes.forEach((Index, Str) -> {
-            System.out.println("#" + Index + "\t" + Str + "#");
-        });
-        System.out.println("#Invoke dynamic#");
-        invokeDynamics.forEach((Index, Bundle) -> {
-            System.out.println("#" + Index + "\t" + Bundle.get1Placeholder() + "," + Bundle.get2Placeholder() + "," + Bundle.get3Placeholder() + "#");
-        });
+        debug("#Class#", CLASS);
+        debug("#Reference#", FIELD_REF, METHOD_REF, INTERFACE_METHOD_REF);
+        debug("#Strings#", STRING);
+        debug("#Integer#", INTEGER);
+        debug("#Float#", FLOAT);
+        debug("#Long#", LONG);
+        debug("#Double#", DOUBLE);
+        debug("#Name and Type#", NAME_AND_TYPE);
+        debug("#UTF 8#", UTF8);
+        debug("#Method handle#", METHOD_HANDLE);
+        debug("#Method type#", METHOD_TYPE);
+        debug("#Invoke dynamic#", INVOKE_DYNAMIC);
         System.out.println("###############################################################################");
     }
 
-    public Integer findInInteger(int index) {
-        Integer a = integers.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
+    private void debug(String title, byte... kinds) {
+        System.out.println(title);
+        for (int index = 0; index < tags.length; index++) {
+            for (byte kind : kinds) {
+                if (tags[index] == kind) {
+                    Object entry = entries[index];
+                    if (entry instanceof Tuple3) {
+                        entry = ((Tuple3) entry).get1Placeholder() + "," + ((Tuple3) entry).get2Placeholder()
+                                + "," + ((Tuple3) entry).get3Placeholder();
+                    } else if (entry instanceof Tuple2) {
+                        entry = ((Tuple2) entry).get1Placeholder() + "," + ((Tuple2) entry).get2Placeholder();
+                    }
+                    System.out.println("#" + index + "\t" + entry + "#");
+                }
+            }
         }
-        return null;
+    }
+
+    /***************************************************************
+     *  tag of the index-th entry, 0 if there is no such entry
+     *
+     ***************************************************************/
+    public byte tag(int index) {
+        return index > 0 && index < tags.length ? tags[index] : 0;
+    }
+
+    private Object entry(int index, byte tag) {
+        return tag(index) == tag ? entries[index] : null;
+    }
+
+    public Integer findInInteger(int index) {
+        return (Integer) entry(index, INTEGER);
     }
 
     public Float findInFloat(int index) {
-        Float a = floats.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
-        }
-        return null;
+        return (Float) entry(index, FLOAT);
     }
 
     public String findInString(int index) {
-        String a = strings.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
-        }
-        return null;
+        return (String) entry(index, STRING);
     }
 
     public Double findInDouble(int index) {
-        Double a = doubles.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
-        }
-        return null;
+        return (Double) entry(index, DOUBLE);
     }
 
     public Long findInLong(int index) {
-        Long a = longs.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
-        }
-        return null;
+        return (Long) entry(index, LONG);
     }
 
     public String findInClass(int index) {
-        String a = classes.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
-        }
-        return null;
+        return (String) entry(index, CLASS);
     }
 
     public Tuple3 findInSymbolicReference(int index) {
-        Tuple3 a = refKind.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
+        byte tag = tag(index);
+        if (tag == FIELD_REF || tag == METHOD_REF || tag == INTERFACE_METHOD_REF) {
+            return (Tuple3) entries[index];
         }
         return null;
     }
 
     public Tuple3 findInCallSite(int index) {
-        Tuple3 a = invokeDynamics.get(index);
-        if (!Predicate.isNull(a)) {
-            return a;
+        return (Tuple3) entry(index, INVOKE_DYNAMIC);
+    }
+
+    /***************************************************************
+     *  resolved form of the index-th entry, null if it's not resolved
+     *  yet
+     *
+     ***************************************************************/
+    @SuppressWarnings("unchecked")
+    public <T> T resolved(int index) {
+        return (T) resolved.get(index);
+    }
+
+    /***************************************************************
+     *  record the resolved form of the index-th entry unless another
+     *  thread has done it, the one which is kept is returned
+     *
+     ***************************************************************/
+    @SuppressWarnings("unchecked")
+    public <T> T resolve(int index, T value) {
+        if (value == null || resolved.compareAndSet(index, null, value)) {
+            return value;
         }
-        return null;
+        return (T) resolved.get(index);
+    }
+
+    /***************************************************************
+     *  vtable index a method ref of invokevirtual is resolved to, -1
+     *  if it's not resolved yet
+     *
+     ***************************************************************/
+    public int vtableIndex(int index) {
+        MethodEntry entry = resolved(index);
+        return entry == null ? -1 : entry.vtableIndex;
+    }
+
+    public void vtableIndex(int index, int vtableIndex) {
+        MethodEntry entry;
+        do {
+            entry = resolved(index);
+        } while (!resolved.compareAndSet(index, entry, MethodEntry.of(entry).withVtableIndex(vtableIndex)));
+    }
+
+    /***************************************************************
+     *  what an interface method ref of invokeinterface is resolved to,
+     *  null if it's not resolved yet
+     *
+     ***************************************************************/
+    public ITable.InterfaceMethod interfaceMethod(int index) {
+        MethodEntry entry = resolved(index);
+        return entry == null ? null : entry.interfaceMethod;
+    }
+
+    public void interfaceMethod(int index, ITable.InterfaceMethod interfaceMethod) {
+        MethodEntry entry;
+        do {
+            entry = resolved(index);
+        } while (!resolved.compareAndSet(index, entry, MethodEntry.of(entry).withInterfaceMethod(interfaceMethod)));
+    }
+
+    /***************************************************************
+     *  method a method ref of invokestatic or invokespecial is
+     *  resolved to, null if it's not resolved yet
+     *
+     ***************************************************************/
+    public Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method(int index) {
+        MethodEntry entry = resolved(index);
+        return entry == null ? null : entry.method;
+    }
+
+    public void method(int index, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method) {
+        MethodEntry entry;
+        do {
+            entry = resolved(index);
+        } while (!resolved.compareAndSet(index, entry, MethodEntry.of(entry).withMethod(method)));
     }
 
+    /***************************************************************
+     *  class names by cp index
+     *
+     ***************************************************************/
     public HashMap<Integer, String> getClassNames() {
+        HashMap<Integer, String> classes = new HashMap<>();
+        for (int index = 0; index < tags.length; index++) {
+            if (tags[index] == CLASS) {
+                classes.put(index, (String) entries[index]);
+            }
+        }
         return classes;
     }
+
+    /***************************************************************
+     *  resolved form of a method ref. One ref may be used by several
+     *  invocation opcodes, e.g. by invokevirtual and by invokespecial
+     *  of a super call, so it holds what each of them resolves to.
+     *  It's immutable, each resolution replaces the entry
+     *
+     ***************************************************************/
+    public static final class MethodEntry {
+        private static final MethodEntry EMPTY = new MethodEntry(null, -1, null);
+
+        private final Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method;
+        private final int vtableIndex;
+        private final ITable.InterfaceMethod interfaceMethod;
+
+        private MethodEntry(Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method,
+                            int vtableIndex, ITable.InterfaceMethod interfaceMethod) {
+            this.method = method;
+            this.vtableIndex = vtableIndex;
+            this.interfaceMethod = interfaceMethod;
+        }
+
+        private static MethodEntry of(MethodEntry entry) {
+            return entry == null ? EMPTY : entry;
+        }
+
+        private MethodEntry withMethod(Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method) {
+            return new MethodEntry(method, vtableIndex, interfaceMethod);
+        }
+
+        private MethodEntry withVtableIndex(int vtableIndex) {
+            return new MethodEntry(method, vtableIndex, interfaceMethod);
+        }
+
+        private MethodEntry withInterfaceMethod(ITable.InterfaceMethod interfaceMethod) {
+            return new MethodEntry(method, vtableIndex, interfaceMethod);
+        }
+    }
 }
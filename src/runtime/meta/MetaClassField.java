@@ -1,8 +1,6 @@
 package runtime.meta;
 
 import common.Tuple4;
-import common.Tuple5;
-import runtime.YObject;
 import ycloader.adt.attribute.Attribute;
 import ycloader.adt.field.FieldInfo;
 import ycloader.dataobject.ConstantPoolObject;
@@ -12,6 +10,7 @@ import yvm.constant.MetaClassConstant;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class MetaClassField implements Resolvable<FieldObject>, DebugExtension {
@@ -39,6 +38,7 @@ public class MetaClassField implements Resolvable<FieldObject>, DebugExtension {
     @Override
     public void resolve(FieldObject r, ConstantPoolObject cp) {
         ArrayList<FieldInfo> fs = r.getRawData();
+        List<Tuple4<String, String, Integer, Attribute[]>> staticVars = new ArrayList<>();
         for (int i = 0; i < r.getFieldCount(); i++) {
             int fieldNameIndex = fs.get(i).nameIndex.getValue();//constant pool index,it's necessary for code execution engine later
             int fieldDescriptorIndex = fs.get(i).descriptorIndex.getValue();
@@ -49,23 +49,24 @@ public class MetaClassField implements Resolvable<FieldObject>, DebugExtension {
 
             //if it's a static variable
             if ((accessFlag & MetaClassConstant.Access.ACC_STATIC) == 8) {
-                YObject object = new YObject(meta);
-                meta.addStaticVariables(fieldNameIndex, new Tuple5<>(fieldName, fieldDescriptor, accessFlag, fs.get(i).attributes, object));
+                staticVars.add(new Tuple4<>(fieldName, fieldDescriptor, accessFlag, fs.get(i).attributes));
             } else {
                 fields.put(fieldNameIndex, new Tuple4<>(fieldName, fieldDescriptor, accessFlag, fs.get(i).attributes));
             }
             //todo:optimize attribute[] to more concrete information[enhance]
             //todo:just we can merge synthetic and deprecated so on to one byte[enhance]
         }
+        meta.staticFields(new StaticFields(staticVars));
     }
 
     @Override
     public synchronized void debug() {
-        meta.getStaticVariable().forEach((A, B) -> {
-            System.out.println("static index:" + A + "\n" +
-                    "static field name:" + B.get1Placeholder() + "\n" +
-                    "static field descriptor:" + B.get2Placeholder() + "\n");
-        });
+        StaticFields staticFields = meta.staticFields();
+        for (int i = 0; i < staticFields.size(); i++) {
+            System.out.println("static slot:" + i + "\n" +
+                    "static field name:" + staticFields.name(i) + "\n" +
+                    "static field descriptor:" + staticFields.descriptor(i) + "\n");
+        }
 
         fields.forEach((A, B) -> {
             System.out.println("index:" + A + "\n" +
@@ -5,21 +5,21 @@ import ycloader.dataobject.ConstantPoolObject;
 import ycloader.dataobject.InterfacesObject;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class MetaClassInterface implements Resolvable<InterfacesObject> {
     private Map<Integer, String> interfaceMap;
 
     public MetaClassInterface() {
-        interfaceMap = new HashMap<>();
+        interfaceMap = new LinkedHashMap<>();
     }
 
     @Override
     public void resolve(InterfacesObject interfaces, ConstantPoolObject cp) {
         for (u2 i : interfaces.getInterfaces()) {
-            int index = cp.at(i.getValue()).getTableIndex();
-            String name = cp.at(index).toString();
+            int index = i.getValue();
+            String name = cp.getClassName(index);
             interfaceMap.put(index, name);
         }
     }
@@ -3,13 +3,18 @@ package runtime.meta;
 import common.Tuple6;
 import ycloader.adt.attribute.Attribute;
 import ycloader.adt.attribute.CodeAttribute;
+import ycloader.adt.attribute.stackmaptable.StackMapTableAttribute;
 import ycloader.adt.field.FieldInfo;
 import ycloader.adt.u1;
 import ycloader.dataobject.ConstantPoolObject;
 import ycloader.dataobject.MethodObject;
+import ycloader.exception.ClassInitializingException;
+import yvm.adt.Opcode;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 class MethodAccessProperty {
@@ -22,9 +27,20 @@ class MethodAccessProperty {
     public static final int ACC_PRIVATE = 0x0002;
 }
 
+/***************************************************************
+ *  methods declared by a class, indexed by name and descriptor.
+ *
+ *  Besides the table of all methods, three tables are built at
+ *  link time for each kind of invocation
+ *      static      static methods, for invokestatic
+ *      virtual     non-private instance methods except <init>, they
+ *                  can be selected by invokevirtual/invokeinterface
+ *      special     all instance methods, for invokespecial
+ *
+ ***************************************************************/
 public class MetaClassMethod implements Resolvable<MethodObject> {
     private
-    Map<Integer,                                //method index at constant pool
+    Map<MethodKey,                              //name and descriptor
             Tuple6<                             //
                     String,                     //method name
                     String,                     //method descriptor
@@ -33,9 +49,18 @@ public class MetaClassMethod implements Resolvable<MethodObject> {
                     ArrayList<ExceptionTable>,  //method exception tables,they are differ from checked exception in function signature
                     MethodExtension             //it would be change frequently, so there we create a flexible class to store data
                     >> methods;
+    private HashMap<MethodKey, Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>> staticMethods;
+    private LinkedHashMap<MethodKey, Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>> virtualMethods;
+    private HashMap<MethodKey, Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>> specialMethods;
 
-    public MetaClassMethod() {
-        methods = new HashMap<>();
+    private MetaClass meta;
+
+    public MetaClassMethod(MetaClass meta) {
+        methods = new LinkedHashMap<>();
+        staticMethods = new HashMap<>();
+        virtualMethods = new LinkedHashMap<>();
+        specialMethods = new HashMap<>();
+        this.meta = meta;
     }
 
     public synchronized void debug() {
@@ -52,6 +77,12 @@ public class MetaClassMethod implements Resolvable<MethodObject> {
         });
     }
 
+    /***************************************************************
+     *  the first declared method with given name whatever descriptor
+     *  it has, it's only for entry points such as <clinit> and run
+     *  which are looked up by name
+     *
+     ***************************************************************/
     public Tuple6 findMethod(String methodName) {
         for (Tuple6 t : methods.values()) {
             if (t.get1Placeholder().equals(methodName)) {
@@ -61,6 +92,79 @@ public class MetaClassMethod implements Resolvable<MethodObject> {
         return null;
     }
 
+    public Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>
+    findMethod(String methodName, String methodDescriptor) {
+        return methods.get(MethodKey.of(methodName, methodDescriptor));
+    }
+
+    public Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>
+    findStaticMethod(String methodName, String methodDescriptor) {
+        return staticMethods.get(MethodKey.of(methodName, methodDescriptor));
+    }
+
+    public Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>
+    findVirtualMethod(String methodName, String methodDescriptor) {
+        return virtualMethods.get(MethodKey.of(methodName, methodDescriptor));
+    }
+
+    /***************************************************************
+     *  virtual methods in declaration order, the vtable of this class
+     *  is built from them
+     *
+     ***************************************************************/
+    public Collection<Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>>
+    virtualMethods() {
+        return virtualMethods.values();
+    }
+
+    public Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension>
+    findSpecialMethod(String methodName, String methodDescriptor) {
+        return specialMethods.get(MethodKey.of(methodName, methodDescriptor));
+    }
+
+    /***************************************************************
+     *  reference map of given method, it's computed at the first
+     *  call and cached in method extension. Abstract and native
+     *  methods have no reference map
+     *
+     ***************************************************************/
+    public static ReferenceMap referenceMap(Tuple6<String, String, u1[], StackRequirement,
+            ArrayList<ExceptionTable>, MethodExtension> method) {
+        MethodExtension extension = method.get6Placeholder();
+        ReferenceMap referenceMap = extension.referenceMap;
+        if (referenceMap == null && method.get3Placeholder() != null) {
+            referenceMap = new ReferenceMapBuilder(
+                    method.get3Placeholder(),
+                    method.get4Placeholder().maxLocals,
+                    method.get4Placeholder().maxStack,
+                    method.get2Placeholder(),
+                    extension.isStatic,
+                    method.get5Placeholder(),
+                    extension.stackMapTable,
+                    extension.declaringClass.constantPool).build();
+            extension.referenceMap = referenceMap;
+        }
+        return referenceMap;
+    }
+
+    /***************************************************************
+     *  decoded opcodes of given method, they're decoded at the first
+     *  call and cached in method extension, so inline caches of its
+     *  invoke sites survive across calls
+     *
+     ***************************************************************/
+    public static Opcode decoded(Tuple6<String, String, u1[], StackRequirement,
+            ArrayList<ExceptionTable>, MethodExtension> method) throws ClassInitializingException {
+        MethodExtension extension = method.get6Placeholder();
+        Opcode decoded = extension.decoded;
+        if (decoded == null) {
+            decoded = new Opcode(method.get3Placeholder());
+            decoded.codes2Opcodes();
+            extension.decoded = decoded;
+        }
+        return decoded;
+    }
+
     @Override
     public void resolve(MethodObject r, ConstantPoolObject cp) {
         ArrayList<FieldInfo> allMethods = r.getRawData();
@@ -71,7 +175,13 @@ public class MetaClassMethod implements Resolvable<MethodObject> {
             int methodDescriptorIndex = allMethods.get(i).descriptorIndex.getValue();
 
             MethodExtension extension = new MethodExtension();
-            extension.attrs = r.getAttributes();
+            extension.declaringClass = meta;
+            extension.attrs = new ArrayList<>();
+            for (Attribute attribute : allMethods.get(i).attributes) {
+                if (attribute != null) {
+                    extension.attrs.add(attribute);
+                }
+            }
             extension.isSynchronized = getFlag(allMethods.get(i).accessFlags.getValue(), MethodAccessProperty.ACC_SYNCHRONIZED);
             extension.isStatic = getFlag(allMethods.get(i).accessFlags.getValue(), MethodAccessProperty.ACC_STATIC);
             extension.isAbstract = getFlag(allMethods.get(i).accessFlags.getValue(), MethodAccessProperty.ACC_ABSTRACT);
@@ -100,35 +210,34 @@ public class MetaClassMethod implements Resolvable<MethodObject> {
                     }
                     codes = ((CodeAttribute) attribute).code;
 
+                    for (Attribute codeAttribute : ((CodeAttribute) attribute).getAttributes()) {
+                        if (codeAttribute instanceof StackMapTableAttribute) {
+                            extension.stackMapTable = (StackMapTableAttribute) codeAttribute;
+                        }
+                    }
+
+                }
+            }
+            String methodName = cp.at(methodNameIndex).toString();
+            String methodDescriptor = cp.at(methodDescriptorIndex).toString();
+            extension.qualifiedName = meta.qualifiedClassName + "." + methodName + methodDescriptor;
+            MethodKey key = MethodKey.of(methodName, methodDescriptor);
+            Tuple6<String, String, u1[], StackRequirement, ArrayList<ExceptionTable>, MethodExtension> method =
+                    new Tuple6<>(methodName, methodDescriptor, codes, sr, table, extension);
+            methods.put(key, method);
+            if (extension.isStatic) {
+                staticMethods.put(key, method);
+            } else {
+                specialMethods.put(key, method);
+                if (!extension.isPrivate && !methodName.equals("<init>")) {
+                    virtualMethods.put(key, method);
                 }
             }
-            methods.put(methodNameIndex,
-                    new Tuple6<>(
-                            cp.at(methodNameIndex).toString(),
-                            cp.at(methodDescriptorIndex).toString(),
-                            codes,
-                            sr,
-                            table,
-                            extension));
         }
     }
 
     private boolean getFlag(int value, int flag) {
-        switch (flag) {
-            case MethodAccessProperty.ACC_ABSTRACT:
-                return (value & MethodAccessProperty.ACC_ABSTRACT) == 400;
-            case MethodAccessProperty.ACC_STATIC:
-                return (value & MethodAccessProperty.ACC_STATIC) == 8;
-            case MethodAccessProperty.ACC_SYNCHRONIZED:
-                return (value & MethodAccessProperty.ACC_SYNCHRONIZED) == 20;
-            case MethodAccessProperty.ACC_NATIVE:
-                return (value & MethodAccessProperty.ACC_NATIVE) == 0x100;
-            case MethodAccessProperty.ACC_PROTECTED:
-                return (value & MethodAccessProperty.ACC_PROTECTED) == 4;
-            case MethodAccessProperty.ACC_PRIVATE:
-                return (value & MethodAccessProperty.ACC_PRIVATE) == 2;
-        }
-        return false;
+        return (value & flag) != 0;
     }
     public class StackRequirement {
         public int maxStack;
@@ -150,5 +259,10 @@ public class MetaClassMethod implements Resolvable<MethodObject> {
         public boolean isNative;
         public boolean isProtected;
         public boolean isPrivate;
+        public MetaClass declaringClass;
+        public String qualifiedName;
+        public StackMapTableAttribute stackMapTable;
+        public volatile ReferenceMap referenceMap;
+        public volatile Opcode decoded;
     }
 }
@@ -0,0 +1,50 @@
+package runtime.meta;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/***************************************************************
+ *  name and descriptor of a method, which identify it within its
+ *  class. Keys are interned, so there is exactly one key for each
+ *  pair, its hash is computed once and equality is identity
+ *
+ ***************************************************************/
+public final class MethodKey {
+    private static final ConcurrentHashMap<String, MethodKey> keys = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String descriptor;
+    private final int hash;
+
+    private MethodKey(String name, String descriptor) {
+        this.name = name;
+        this.descriptor = descriptor;
+        hash = name.hashCode() * 31 + descriptor.hashCode();
+    }
+
+    public static MethodKey of(String name, String descriptor) {
+        return keys.computeIfAbsent(name + descriptor, k -> new MethodKey(name, descriptor));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String descriptor() {
+        return descriptor;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public String toString() {
+        return name + descriptor;
+    }
+}
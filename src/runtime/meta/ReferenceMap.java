@@ -0,0 +1,42 @@
+package runtime.meta;
+
+/***************************************************************
+ *  reference map of one method, it tells which slots of a stack
+ *  frame hold references before the instruction at each pc is
+ *  executed.
+ *
+ *  Slots are numbered as
+ *      [0, maxLocals)              local variables
+ *      maxLocals + n               the n-th operand from the bottom
+ *                                  of operand stack
+ *
+ *  An operand stack entry holds one value no matter whether it's
+ *  a category 1 or category 2 value, while a long or double local
+ *  variable takes two local slots as the class file specifies.
+ *
+ ***************************************************************/
+public class ReferenceMap {
+    private int maxLocals;
+    private int[][] referenceSlots;
+
+    ReferenceMap(int maxLocals, int[][] referenceSlots) {
+        this.maxLocals = maxLocals;
+        this.referenceSlots = referenceSlots;
+    }
+
+    /***************************************************************
+     *  reference slots at pc, null if pc is not the beginning of a
+     *  reachable instruction
+     *
+     ***************************************************************/
+    public int[] referenceSlots(int pc) {
+        if (pc < 0 || pc >= referenceSlots.length) {
+            return null;
+        }
+        return referenceSlots[pc];
+    }
+
+    public int maxLocals() {
+        return maxLocals;
+    }
+}
@@ -0,0 +1,865 @@
+package runtime.meta;
+
+import runtime.rtexception.VMExecutionException;
+import ycloader.adt.attribute.stackmaptable.StackMapFrame;
+import ycloader.adt.attribute.stackmaptable.StackMapTableAttribute;
+import ycloader.adt.attribute.stackmaptable.VerificationTypeInfo;
+import ycloader.adt.u1;
+import yvm.adt.Mnemonic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  compute reference map of a method.
+ *
+ *  Frames of StackMapTable give the exact slot types at branch
+ *  targets and exception handlers, types of other instructions are
+ *  derived by interpreting the bytecode abstractly from the nearest
+ *  preceding frame. Methods of old class files which do not carry
+ *  a StackMapTable are analyzed from the method entry alone, types
+ *  are merged at join points until they don't change any more.
+ *
+ *  Only four kinds of slots are distinguished, since the garbage
+ *  collector merely needs to know whether a slot holds a reference.
+ *  Uninitialized objects created by <new> are references as well.
+ *
+ ***************************************************************/
+class ReferenceMapBuilder {
+    private static final byte TOP = 0;
+    private static final byte CATEGORY1 = 1;
+    private static final byte CATEGORY2 = 2;
+    private static final byte REFERENCE = 3;
+
+    private int[] code;
+    private int maxLocals;
+    private int maxStack;
+    private String descriptor;
+    private boolean isStatic;
+    private List<MetaClassMethod.ExceptionTable> exceptionTable;
+    private StackMapTableAttribute stackMapTable;
+    private MetaClassConstantPool constantPool;
+
+    private State[] states;
+    private boolean[] explicit;
+
+    ReferenceMapBuilder(u1[] code, int maxLocals, int maxStack, String descriptor, boolean isStatic,
+                        List<MetaClassMethod.ExceptionTable> exceptionTable,
+                        StackMapTableAttribute stackMapTable,
+                        MetaClassConstantPool constantPool) {
+        this.code = new int[code.length];
+        for (int i = 0; i < code.length; i++) {
+            this.code[i] = code[i].getValue() & 0xff;
+        }
+        this.maxLocals = maxLocals;
+        this.maxStack = maxStack;
+        this.descriptor = descriptor;
+        this.isStatic = isStatic;
+        this.exceptionTable = exceptionTable;
+        this.stackMapTable = stackMapTable;
+        this.constantPool = constantPool;
+    }
+
+    ReferenceMap build() {
+        states = new State[code.length];
+        explicit = new boolean[code.length];
+        ArrayDeque<Integer> workList = new ArrayDeque<>();
+
+        State entry = entryState();
+        if (code.length > 0) {
+            states[0] = entry;
+            workList.add(0);
+        }
+        if (stackMapTable != null) {
+            applyStackMapFrames(workList);
+        }
+
+        while (!workList.isEmpty()) {
+            int pc = workList.poll();
+            State in = states[pc];
+            State out = in.copy();
+            for (int successor : interpret(pc, out)) {
+                flow(successor, out, workList);
+            }
+            for (MetaClassMethod.ExceptionTable handler : exceptionTable) {
+                if (handler.startPC <= pc && pc < handler.endPC) {
+                    flow(handler.handlePC, in.handlerState(), workList);
+                    flow(handler.handlePC, out.handlerState(), workList);
+                }
+            }
+        }
+
+        int[][] referenceSlots = new int[code.length][];
+        for (int pc = 0; pc < code.length; pc++) {
+            if (states[pc] != null) {
+                referenceSlots[pc] = states[pc].referenceSlots();
+            }
+        }
+        return new ReferenceMap(maxLocals, referenceSlots);
+    }
+
+    /***************************************************************
+     *  the implicit frame at method entry, i.e. receiver and
+     *  parameters in local variables and an empty operand stack
+     *
+     ***************************************************************/
+    private State entryState() {
+        State state = new State();
+        int slot = 0;
+        if (!isStatic) {
+            state.locals[slot++] = REFERENCE;
+        }
+        for (byte kind : parameterKinds(descriptor)) {
+            slot = state.store(slot, kind);
+        }
+        return state;
+    }
+
+    /***************************************************************
+     *  decompress stack map frames. Each frame is relative to the
+     *  previous one, locals are listed in verification types where
+     *  long and double take a single entry
+     *
+     ***************************************************************/
+    private void applyStackMapFrames(ArrayDeque<Integer> workList) {
+        ArrayList<Byte> locals = new ArrayList<>();
+        if (!isStatic) {
+            locals.add(REFERENCE);
+        }
+        locals.addAll(parameterKinds(descriptor));
+
+        int offset = -1;
+        for (StackMapFrame frame : stackMapTable.getEntries()) {
+            ArrayList<Byte> stack = new ArrayList<>();
+            int delta;
+            if (frame instanceof StackMapTableAttribute.SMF_SameFrame) {
+                delta = ((StackMapTableAttribute.SMF_SameFrame) frame).frameType.getValue();
+            } else if (frame instanceof StackMapTableAttribute.SMF_SameLocals1StackItemFrame) {
+                StackMapTableAttribute.SMF_SameLocals1StackItemFrame f = (StackMapTableAttribute.SMF_SameLocals1StackItemFrame) frame;
+                delta = f.frameType.getValue() - 64;
+                stack.add(kindOf(f.vti));
+            } else if (frame instanceof StackMapTableAttribute.SMF_SameLocals1StackItemFrameExtended) {
+                StackMapTableAttribute.SMF_SameLocals1StackItemFrameExtended f = (StackMapTableAttribute.SMF_SameLocals1StackItemFrameExtended) frame;
+                delta = f.offsetDelta.getValue();
+                stack.add(kindOf(f.vti));
+            } else if (frame instanceof StackMapTableAttribute.SMF_ChopFrame) {
+                StackMapTableAttribute.SMF_ChopFrame f = (StackMapTableAttribute.SMF_ChopFrame) frame;
+                delta = f.offsetDelta.getValue();
+                for (int k = 251 - f.frameType.getValue(); k > 0 && !locals.isEmpty(); k--) {
+                    locals.remove(locals.size() - 1);
+                }
+            } else if (frame instanceof StackMapTableAttribute.SMF_SameFrameExtended) {
+                delta = ((StackMapTableAttribute.SMF_SameFrameExtended) frame).offsetDelta.getValue();
+            } else if (frame instanceof StackMapTableAttribute.SMF_AppendFrame) {
+                StackMapTableAttribute.SMF_AppendFrame f = (StackMapTableAttribute.SMF_AppendFrame) frame;
+                delta = f.offsetDelta.getValue();
+                for (VerificationTypeInfo vti : f.locals) {
+                    locals.add(kindOf(vti));
+                }
+            } else {
+                StackMapTableAttribute.SMF_FullFrame f = (StackMapTableAttribute.SMF_FullFrame) frame;
+                delta = f.offsetDelta.getValue();
+                locals.clear();
+                for (VerificationTypeInfo vti : f.locals) {
+                    locals.add(kindOf(vti));
+                }
+                for (VerificationTypeInfo vti : f.stack) {
+                    stack.add(kindOf(vti));
+                }
+            }
+            offset += delta + 1;
+            checkTarget(offset);
+
+            State state = new State();
+            int slot = 0;
+            for (byte kind : locals) {
+                slot = state.store(slot, kind);
+            }
+            for (byte kind : stack) {
+                state.push(kind);
+            }
+            states[offset] = state;
+            explicit[offset] = true;
+            workList.add(offset);
+        }
+    }
+
+    private void flow(int target, State state, ArrayDeque<Integer> workList) {
+        checkTarget(target);
+        if (explicit[target]) {
+            return;
+        }
+        if (states[target] == null) {
+            states[target] = state.copy();
+            workList.add(target);
+        } else if (states[target].merge(state, target)) {
+            workList.add(target);
+        }
+    }
+
+    /***************************************************************
+     *  apply the effect of instruction at pc to state, and return
+     *  the pcs which may be executed next
+     *
+     ***************************************************************/
+    private int[] interpret(int pc, State state) {
+        int opcode = code[pc];
+        int next = pc + 1;
+        switch (opcode) {
+            case Mnemonic.nop:
+                break;
+            case Mnemonic.aconst_null:
+                state.push(REFERENCE);
+                break;
+            case Mnemonic.iconst_m1:
+            case Mnemonic.iconst_0:
+            case Mnemonic.iconst_1:
+            case Mnemonic.iconst_2:
+            case Mnemonic.iconst_3:
+            case Mnemonic.iconst_4:
+            case Mnemonic.iconst_5:
+            case Mnemonic.fconst_0:
+            case Mnemonic.fconst_1:
+            case Mnemonic.fconst_2:
+                state.push(CATEGORY1);
+                break;
+            case Mnemonic.lconst_0:
+            case Mnemonic.lconst_1:
+            case Mnemonic.dconst_0:
+            case Mnemonic.dconst_1:
+                state.push(CATEGORY2);
+                break;
+            case Mnemonic.bipush:
+                state.push(CATEGORY1);
+                next = pc + 2;
+                break;
+            case Mnemonic.sipush:
+                state.push(CATEGORY1);
+                next = pc + 3;
+                break;
+            case Mnemonic.ldc:
+                state.push(constantKind(u1(pc + 1)));
+                next = pc + 2;
+                break;
+            case Mnemonic.ldc_w:
+                state.push(constantKind(u2(pc + 1)));
+                next = pc + 3;
+                break;
+            case Mnemonic.ldc2_w:
+                state.push(CATEGORY2);
+                next = pc + 3;
+                break;
+
+            case Mnemonic.iload:
+            case Mnemonic.fload:
+                state.push(CATEGORY1);
+                next = pc + 2;
+                break;
+            case Mnemonic.lload:
+            case Mnemonic.dload:
+                state.push(CATEGORY2);
+                next = pc + 2;
+                break;
+            case Mnemonic.aload:
+                state.push(REFERENCE);
+                next = pc + 2;
+                break;
+            case Mnemonic.iload_0:
+            case Mnemonic.iload_1:
+            case Mnemonic.iload_2:
+            case Mnemonic.iload_3:
+            case Mnemonic.fload_0:
+            case Mnemonic.fload_1:
+            case Mnemonic.fload_2:
+            case Mnemonic.fload_3:
+                state.push(CATEGORY1);
+                break;
+            case Mnemonic.lload_0:
+            case Mnemonic.lload_1:
+            case Mnemonic.lload_2:
+            case Mnemonic.lload_3:
+            case Mnemonic.dload_0:
+            case Mnemonic.dload_1:
+            case Mnemonic.dload_2:
+            case Mnemonic.dload_3:
+                state.push(CATEGORY2);
+                break;
+            case Mnemonic.aload_0:
+            case Mnemonic.aload_1:
+            case Mnemonic.aload_2:
+            case Mnemonic.aload_3:
+                state.push(REFERENCE);
+                break;
+
+            case Mnemonic.iaload:
+            case Mnemonic.faload:
+            case Mnemonic.baload:
+            case Mnemonic.caload:
+            case Mnemonic.saload:
+                state.pop(2);
+                state.push(CATEGORY1);
+                break;
+            case Mnemonic.laload:
+            case Mnemonic.daload:
+                state.pop(2);
+                state.push(CATEGORY2);
+                break;
+            case Mnemonic.aaload:
+                state.pop(2);
+                state.push(REFERENCE);
+                break;
+
+            case Mnemonic.istore:
+            case Mnemonic.fstore:
+            case Mnemonic.lstore:
+            case Mnemonic.dstore:
+            case Mnemonic.astore:
+                state.store(u1(pc + 1), state.pop());
+                next = pc + 2;
+                break;
+            case Mnemonic.istore_0:
+            case Mnemonic.istore_1:
+            case Mnemonic.istore_2:
+            case Mnemonic.istore_3:
+                state.store(opcode - Mnemonic.istore_0, state.pop());
+                break;
+            case Mnemonic.lstore_0:
+            case Mnemonic.lstore_1:
+            case Mnemonic.lstore_2:
+            case Mnemonic.lstore_3:
+                state.store(opcode - Mnemonic.lstore_0, state.pop());
+                break;
+            case Mnemonic.fstore_0:
+            case Mnemonic.fstore_1:
+            case Mnemonic.fstore_2:
+            case Mnemonic.fstore_3:
+                state.store(opcode - Mnemonic.fstore_0, state.pop());
+                break;
+            case Mnemonic.dstore_0:
+            case Mnemonic.dstore_1:
+            case Mnemonic.dstore_2:
+            case Mnemonic.dstore_3:
+                state.store(opcode - Mnemonic.dstore_0, state.pop());
+                break;
+            case Mnemonic.astore_0:
+            case Mnemonic.astore_1:
+            case Mnemonic.astore_2:
+            case Mnemonic.astore_3:
+                state.store(opcode - Mnemonic.astore_0, state.pop());
+                break;
+
+            case Mnemonic.iastore:
+            case Mnemonic.lastore:
+            case Mnemonic.fastore:
+            case Mnemonic.dastore:
+            case Mnemonic.aastore:
+            case Mnemonic.bastore:
+            case Mnemonic.castore:
+            case Mnemonic.sastore:
+                state.pop(3);
+                break;
+
+            case Mnemonic.pop:
+                state.dup(0, 0, 1);
+                break;
+            case Mnemonic.pop2:
+                state.dup(0, 0, 2);
+                break;
+            case Mnemonic.dup:
+                state.dup(1, 0, 0);
+                break;
+            case Mnemonic.dup_x1:
+                state.dup(1, 1, 0);
+                break;
+            case Mnemonic.dup_x2:
+                state.dup(1, 2, 0);
+                break;
+            case Mnemonic.dup2:
+                state.dup(2, 0, 0);
+                break;
+            case Mnemonic.dup2_x1:
+                state.dup(2, 1, 0);
+                break;
+            case Mnemonic.dup2_x2:
+                state.dup(2, 2, 0);
+                break;
+            case Mnemonic.swap: {
+                byte value1 = state.pop();
+                byte value2 = state.pop();
+                state.push(value1);
+                state.push(value2);
+            }
+            break;
+
+            case Mnemonic.iadd:
+            case Mnemonic.fadd:
+            case Mnemonic.isub:
+            case Mnemonic.fsub:
+            case Mnemonic.imul:
+            case Mnemonic.fmul:
+            case Mnemonic.idiv:
+            case Mnemonic.fdiv:
+            case Mnemonic.irem:
+            case Mnemonic.frem:
+            case Mnemonic.ishl:
+            case Mnemonic.ishr:
+            case Mnemonic.iushr:
+            case Mnemonic.iand:
+            case Mnemonic.ior:
+            case Mnemonic.ixor:
+            case Mnemonic.lcmp:
+            case Mnemonic.fcmpl:
+            case Mnemonic.fcmpg:
+            case Mnemonic.dcmpl:
+            case Mnemonic.dcmpg:
+                state.pop(2);
+                state.push(CATEGORY1);
+                break;
+            case Mnemonic.ladd:
+            case Mnemonic.dadd:
+            case Mnemonic.lsub:
+            case Mnemonic.dsub:
+            case Mnemonic.lmul:
+            case Mnemonic.dmul:
+            case Mnemonic.ldiv:
+            case Mnemonic.ddiv:
+            case Mnemonic.lrem:
+            case Mnemonic.drem:
+            case Mnemonic.lshl:
+            case Mnemonic.lshr:
+            case Mnemonic.lushr:
+            case Mnemonic.land:
+            case Mnemonic.lor:
+            case Mnemonic.lxor:
+                state.pop(2);
+                state.push(CATEGORY2);
+                break;
+            case Mnemonic.ineg:
+            case Mnemonic.fneg:
+            case Mnemonic.i2f:
+            case Mnemonic.l2i:
+            case Mnemonic.l2f:
+            case Mnemonic.f2i:
+            case Mnemonic.d2i:
+            case Mnemonic.d2f:
+            case Mnemonic.i2b:
+            case Mnemonic.i2c:
+            case Mnemonic.i2s:
+            case Mnemonic.arraylength:
+            case Mnemonic.instanceof$:
+                state.pop(1);
+                state.push(CATEGORY1);
+                next = opcode == Mnemonic.instanceof$ ? pc + 3 : pc + 1;
+                break;
+            case Mnemonic.lneg:
+            case Mnemonic.dneg:
+            case Mnemonic.i2l:
+            case Mnemonic.i2d:
+            case Mnemonic.l2d:
+            case Mnemonic.f2l:
+            case Mnemonic.f2d:
+            case Mnemonic.d2l:
+                state.pop(1);
+                state.push(CATEGORY2);
+                break;
+            case Mnemonic.iinc:
+                next = pc + 3;
+                break;
+
+            case Mnemonic.ifeq:
+            case Mnemonic.ifne:
+            case Mnemonic.iflt:
+            case Mnemonic.ifge:
+            case Mnemonic.ifgt:
+            case Mnemonic.ifle:
+            case Mnemonic.ifnull:
+            case Mnemonic.ifnonnull:
+                state.pop(1);
+                return new int[]{pc + 3, pc + s2(pc + 1)};
+            case Mnemonic.if_icmpeq:
+            case Mnemonic.if_icmpne:
+            case Mnemonic.if_icmplt:
+            case Mnemonic.if_icmpge:
+            case Mnemonic.if_icmpgt:
+            case Mnemonic.if_icmple:
+            case Mnemonic.if_acmpeq:
+            case Mnemonic.if_acmpne:
+                state.pop(2);
+                return new int[]{pc + 3, pc + s2(pc + 1)};
+            case Mnemonic.goto$:
+                return new int[]{pc + s2(pc + 1)};
+            case Mnemonic.goto_w:
+                return new int[]{pc + s4(pc + 1)};
+            case Mnemonic.jsr:
+                state.push(CATEGORY1);
+                return new int[]{pc + s2(pc + 1)};
+            case Mnemonic.jsr_w:
+                state.push(CATEGORY1);
+                return new int[]{pc + s4(pc + 1)};
+            case Mnemonic.ret:
+                return new int[0];
+            case Mnemonic.tableswitch: {
+                state.pop(1);
+                int base = (pc + 4) & ~3;
+                int low = s4(base + 4);
+                int high = s4(base + 8);
+                int[] targets = new int[high - low + 2];
+                targets[0] = pc + s4(base);
+                for (int k = 0; k <= high - low; k++) {
+                    targets[k + 1] = pc + s4(base + 12 + 4 * k);
+                }
+                return targets;
+            }
+            case Mnemonic.lookupswitch: {
+                state.pop(1);
+                int base = (pc + 4) & ~3;
+                int pairs = s4(base + 4);
+                int[] targets = new int[pairs + 1];
+                targets[0] = pc + s4(base);
+                for (int k = 0; k < pairs; k++) {
+                    targets[k + 1] = pc + s4(base + 12 + 8 * k);
+                }
+                return targets;
+            }
+            case Mnemonic.ireturn:
+            case Mnemonic.lreturn:
+            case Mnemonic.freturn:
+            case Mnemonic.dreturn:
+            case Mnemonic.areturn:
+            case Mnemonic.return$:
+            case Mnemonic.athrow:
+                return new int[0];
+
+            case Mnemonic.getstatic:
+                state.push(fieldKind(u2(pc + 1)));
+                next = pc + 3;
+                break;
+            case Mnemonic.putstatic:
+                state.pop(1);
+                next = pc + 3;
+                break;
+            case Mnemonic.getfield:
+                state.pop(1);
+                state.push(fieldKind(u2(pc + 1)));
+                next = pc + 3;
+                break;
+            case Mnemonic.putfield:
+                state.pop(2);
+                next = pc + 3;
+                break;
+            case Mnemonic.invokevirtual:
+            case Mnemonic.invokespecial:
+            case Mnemonic.invokestatic:
+            case Mnemonic.invokeinterface:
+            case Mnemonic.invokedynamic: {
+                String methodDescriptor = opcode == Mnemonic.invokedynamic
+                        ? constantPool.findInCallSite(u2(pc + 1)).get3Placeholder().toString()
+                        : constantPool.findInSymbolicReference(u2(pc + 1)).get3Placeholder().toString();
+                state.pop(parameterKinds(methodDescriptor).size());
+                if (opcode != Mnemonic.invokestatic && opcode != Mnemonic.invokedynamic) {
+                    state.pop(1);
+                }
+                char returnType = methodDescriptor.charAt(methodDescriptor.indexOf(')') + 1);
+                if (returnType != 'V') {
+                    state.push(kindOf(returnType));
+                }
+                next = opcode == Mnemonic.invokeinterface || opcode == Mnemonic.invokedynamic ? pc + 5 : pc + 3;
+            }
+            break;
+
+            case Mnemonic.new$:
+                state.push(REFERENCE);
+                next = pc + 3;
+                break;
+            case Mnemonic.newarray:
+                state.pop(1);
+                state.push(REFERENCE);
+                next = pc + 2;
+                break;
+            case Mnemonic.anewarray:
+                state.pop(1);
+                state.push(REFERENCE);
+                next = pc + 3;
+                break;
+            case Mnemonic.checkcast:
+                next = pc + 3;
+                break;
+            case Mnemonic.monitorenter:
+            case Mnemonic.monitorexit:
+                state.pop(1);
+                break;
+            case Mnemonic.multianewarray:
+                state.pop(u1(pc + 3));
+                state.push(REFERENCE);
+                next = pc + 4;
+                break;
+
+            case Mnemonic.wide: {
+                int modified = code[pc + 1];
+                int index = u2(pc + 2);
+                switch (modified) {
+                    case Mnemonic.iload:
+                    case Mnemonic.fload:
+                        state.push(CATEGORY1);
+                        break;
+                    case Mnemonic.lload:
+                    case Mnemonic.dload:
+                        state.push(CATEGORY2);
+                        break;
+                    case Mnemonic.aload:
+                        state.push(REFERENCE);
+                        break;
+                    case Mnemonic.istore:
+                    case Mnemonic.fstore:
+                    case Mnemonic.lstore:
+                    case Mnemonic.dstore:
+                    case Mnemonic.astore:
+                        state.store(index, state.pop());
+                        break;
+                    case Mnemonic.ret:
+                        return new int[0];
+                    case Mnemonic.iinc:
+                        return new int[]{pc + 6};
+                    default:
+                        throw new VMExecutionException("invalid opcode " + modified + " modified by <wide>");
+                }
+                next = pc + 4;
+            }
+            break;
+
+            default:
+                throw new VMExecutionException("unknown opcode " + opcode + " at pc " + pc + " in method " + descriptor);
+        }
+        return new int[]{next};
+    }
+
+    private byte constantKind(int index) {
+        if (constantPool.findInInteger(index) != null || constantPool.findInFloat(index) != null) {
+            return CATEGORY1;
+        }
+        return REFERENCE;
+    }
+
+    private byte fieldKind(int index) {
+        return kindOf(constantPool.findInSymbolicReference(index).get3Placeholder().toString().charAt(0));
+    }
+
+    private void checkTarget(int pc) {
+        if (pc < 0 || pc >= code.length) {
+            throw new VMExecutionException("branch target " + pc + " out of code range");
+        }
+    }
+
+    private int u1(int pc) {
+        return code[pc];
+    }
+
+    private int u2(int pc) {
+        return (code[pc] << 8) | code[pc + 1];
+    }
+
+    private int s2(int pc) {
+        return (short) u2(pc);
+    }
+
+    private int s4(int pc) {
+        return (code[pc] << 24) | (code[pc + 1] << 16) | (code[pc + 2] << 8) | code[pc + 3];
+    }
+
+    private static ArrayList<Byte> parameterKinds(String methodDescriptor) {
+        ArrayList<Byte> kinds = new ArrayList<>();
+        for (int i = 1; methodDescriptor.charAt(i) != ')'; i++) {
+            char c = methodDescriptor.charAt(i);
+            kinds.add(kindOf(c));
+            while (c == '[') {
+                c = methodDescriptor.charAt(++i);
+            }
+            if (c == 'L') {
+                i = methodDescriptor.indexOf(';', i);
+            }
+        }
+        return kinds;
+    }
+
+    private static byte kindOf(char type) {
+        switch (type) {
+            case 'J':
+            case 'D':
+                return CATEGORY2;
+            case 'L':
+            case '[':
+                return REFERENCE;
+            default:
+                return CATEGORY1;
+        }
+    }
+
+    private static byte kindOf(VerificationTypeInfo vti) {
+        if (vti instanceof StackMapTableAttribute.VTI_TopVariableInfo) {
+            return TOP;
+        } else if (vti instanceof StackMapTableAttribute.VTI_IntegerVariableInfo
+                || vti instanceof StackMapTableAttribute.VTI_FloatVariableInfo) {
+            return CATEGORY1;
+        } else if (vti instanceof StackMapTableAttribute.VTI_LongVariableInfo
+                || vti instanceof StackMapTableAttribute.VTI_DoubleVariableInfo) {
+            return CATEGORY2;
+        }
+        return REFERENCE;
+    }
+
+    /***************************************************************
+     *  kinds of local variables and operands before an instruction
+     *
+     ***************************************************************/
+    private class State {
+        private byte[] locals;
+        private byte[] stack;
+        private int depth;
+
+        State() {
+            locals = new byte[maxLocals];
+            stack = new byte[maxStack];
+        }
+
+        State copy() {
+            State state = new State();
+            System.arraycopy(locals, 0, state.locals, 0, locals.length);
+            System.arraycopy(stack, 0, state.stack, 0, depth);
+            state.depth = depth;
+            return state;
+        }
+
+        void push(byte kind) {
+            if (depth >= stack.length) {
+                throw new VMExecutionException("operand stack overflow in method " + descriptor);
+            }
+            stack[depth++] = kind;
+        }
+
+        byte pop() {
+            if (depth == 0) {
+                throw new VMExecutionException("operand stack underflow in method " + descriptor);
+            }
+            return stack[--depth];
+        }
+
+        void pop(int count) {
+            for (int i = 0; i < count; i++) {
+                pop();
+            }
+        }
+
+        /***************************************************************
+         *  store a value into local slot and return the next slot, a
+         *  category 2 value takes two slots. Storing into the second
+         *  half of a category 2 value invalidates it
+         *
+         ***************************************************************/
+        int store(int slot, byte kind) {
+            if (slot > 0 && locals[slot - 1] == CATEGORY2) {
+                locals[slot - 1] = TOP;
+            }
+            locals[slot] = kind;
+            if (kind == CATEGORY2) {
+                locals[slot + 1] = TOP;
+                return slot + 2;
+            }
+            return slot + 1;
+        }
+
+        /***************************************************************
+         *  the family of dup and pop instructions work on words where
+         *  a category 2 value takes two words. Copy values of the top
+         *  dupWords words below the next skipWords words, or drop
+         *  values of the top popWords words
+         *
+         ***************************************************************/
+        void dup(int dupWords, int skipWords, int popWords) {
+            if (popWords > 0) {
+                depth -= valuesOfWords(depth, popWords);
+                return;
+            }
+            int dupValues = valuesOfWords(depth, dupWords);
+            int skipValues = valuesOfWords(depth - dupValues, skipWords);
+            byte[] copied = new byte[dupValues];
+            System.arraycopy(stack, depth - dupValues, copied, 0, dupValues);
+            int insertAt = depth - dupValues - skipValues;
+            if (depth + dupValues > stack.length) {
+                throw new VMExecutionException("operand stack overflow in method " + descriptor);
+            }
+            System.arraycopy(stack, insertAt, stack, insertAt + dupValues, dupValues + skipValues);
+            System.arraycopy(copied, 0, stack, insertAt, dupValues);
+            depth += dupValues;
+        }
+
+        private int valuesOfWords(int top, int words) {
+            int values = 0;
+            while (words > 0) {
+                if (top - values <= 0) {
+                    throw new VMExecutionException("operand stack underflow in method " + descriptor);
+                }
+                words -= stack[top - values - 1] == CATEGORY2 ? 2 : 1;
+                values++;
+            }
+            return values;
+        }
+
+        State handlerState() {
+            State state = copy();
+            state.depth = 0;
+            state.push(REFERENCE);
+            return state;
+        }
+
+        /***************************************************************
+         *  merge types of another path, a slot holding different kinds
+         *  on different paths is unusable. Return true if anything
+         *  changed
+         *
+         ***************************************************************/
+        boolean merge(State other, int pc) {
+            if (depth != other.depth) {
+                throw new VMExecutionException("inconsistent operand stack depth at pc " + pc
+                        + " in method " + descriptor);
+            }
+            boolean changed = false;
+            for (int i = 0; i < locals.length; i++) {
+                if (locals[i] != other.locals[i] && locals[i] != TOP) {
+                    locals[i] = TOP;
+                    changed = true;
+                }
+            }
+            for (int i = 0; i < depth; i++) {
+                if (stack[i] != other.stack[i] && stack[i] != TOP) {
+                    stack[i] = TOP;
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+
+        int[] referenceSlots() {
+            int count = 0;
+            for (byte kind : locals) {
+                count += kind == REFERENCE ? 1 : 0;
+            }
+            for (int i = 0; i < depth; i++) {
+                count += stack[i] == REFERENCE ? 1 : 0;
+            }
+            int[] slots = new int[count];
+            int n = 0;
+            for (int i = 0; i < locals.length; i++) {
+                if (locals[i] == REFERENCE) {
+                    slots[n++] = i;
+                }
+            }
+            for (int i = 0; i < depth; i++) {
+                if (stack[i] == REFERENCE) {
+                    slots[n++] = maxLocals + i;
+                }
+            }
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package runtime.meta;
+
+import common.Tuple4;
+import runtime.YMethodScope;
+import runtime.YObject;
+import ycloader.adt.attribute.Attribute;
+import ycloader.adt.attribute.ConstantValueAttribute;
+import yvm.constant.MetaClassConstant;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/***************************************************************
+ *  static variables of a class.
+ *
+ *  They are laid out into one slot array when the class is linked,
+ *  reference slots come first and primitive ones follow, so roots
+ *  are scanned by walking a prefix of the array. A primitive slot
+ *  holds an immutable boxed value as the operand stack does, so
+ *  boolean, byte, char and short fields hold ints.
+ *
+ *  Each slot gets its default value when the class is prepared, or
+ *  its ConstantValue if the field has one. String constants need
+ *  the heap to be interned, they are stored when the class is
+ *  initialized, right before its <clinit> runs.
+ *
+ *  A field ref of getstatic/putstatic is resolved once to the class
+ *  declaring the field and its slot there, see resolve(). Slots of
+ *  volatile fields are read and written with volatile semantics
+ *  through an array element VarHandle, other slots plainly.
+ *
+ ***************************************************************/
+public class StaticFields {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(YObject[].class);
+
+    private String[] names;
+    private String[] descriptors;
+    private int[] accessFlags;
+    private int[] constantValueIndices;
+    private YObject[] slots;
+    private int referenceCount;
+    private HashMap<String, Integer> indices;
+
+    public StaticFields(List<Tuple4<String, String, Integer, Attribute[]>> declared) {
+        ArrayList<Tuple4<String, String, Integer, Attribute[]>> layout = new ArrayList<>();
+        for (Tuple4<String, String, Integer, Attribute[]> field : declared) {
+            if (isReference(field.get2Placeholder().charAt(0))) {
+                layout.add(field);
+            }
+        }
+        referenceCount = layout.size();
+        for (Tuple4<String, String, Integer, Attribute[]> field : declared) {
+            if (!isReference(field.get2Placeholder().charAt(0))) {
+                layout.add(field);
+            }
+        }
+
+        names = new String[layout.size()];
+        descriptors = new String[layout.size()];
+        accessFlags = new int[layout.size()];
+        constantValueIndices = new int[layout.size()];
+        slots = new YObject[layout.size()];
+        indices = new HashMap<>();
+        for (int i = 0; i < layout.size(); i++) {
+            Tuple4<String, String, Integer, Attribute[]> field = layout.get(i);
+            names[i] = field.get1Placeholder();
+            descriptors[i] = field.get2Placeholder();
+            accessFlags[i] = field.get3Placeholder();
+            if (field.get4Placeholder() != null) {
+                for (Attribute attribute : field.get4Placeholder()) {
+                    if (attribute instanceof ConstantValueAttribute) {
+                        constantValueIndices[i] = ((ConstantValueAttribute) attribute).constantValueIndex.getValue();
+                    }
+                }
+            }
+            indices.put(names[i], i);
+        }
+    }
+
+    private static boolean isReference(char kind) {
+        return kind == 'L' || kind == '[';
+    }
+
+    /***************************************************************
+     *  store default values and ConstantValue attributes of primitive
+     *  fields into the slots, after constant pool of the class is
+     *  resolved
+     *
+     ***************************************************************/
+    public void prepare(MetaClassConstantPool constantPool) {
+        for (int i = 0; i < slots.length; i++) {
+            int index = constantValueIndices[i];
+            switch (descriptors[i].charAt(0)) {
+                case 'B':
+                case 'C':
+                case 'I':
+                case 'S':
+                case 'Z':
+                    slots[i] = YObject.derivedFrom(index == 0 ? 0 : constantPool.findInInteger(index));
+                    break;
+                case 'J':
+                    slots[i] = YObject.derivedFrom(index == 0 ? 0L : constantPool.findInLong(index));
+                    break;
+                case 'F':
+                    slots[i] = YObject.derivedFrom(index == 0 ? 0f : constantPool.findInFloat(index));
+                    break;
+                case 'D':
+                    slots[i] = YObject.derivedFrom(index == 0 ? 0d : constantPool.findInDouble(index));
+                    break;
+                default:
+                    slots[i] = null;
+                    break;
+            }
+        }
+    }
+
+    /***************************************************************
+     *  store String constants of ConstantValue attributes, intern maps
+     *  a literal to the interned string object
+     *
+     ***************************************************************/
+    public void initializeStrings(MetaClassConstantPool constantPool, Function<String, YObject> intern) {
+        for (int i = 0; i < referenceCount; i++) {
+            if (constantValueIndices[i] != 0) {
+                slots[i] = intern.apply(constantPool.findInString(constantValueIndices[i]));
+            }
+        }
+    }
+
+    /***************************************************************
+     *  resolve a field ref of getstatic/putstatic, the field is looked
+     *  up in the referenced class, then its super interfaces, then its
+     *  super classes in the same way. It's null if there is no such
+     *  field
+     *
+     ***************************************************************/
+    public static FieldRef resolve(MetaClass referencedClass, String fieldName,
+                                   String fieldDescriptor, YMethodScope methodScope) {
+        for (MetaClass c = referencedClass; c != null; ) {
+            FieldRef ref = c.staticFields().lookup(c, fieldName, fieldDescriptor);
+            if (ref != null) {
+                return ref;
+            }
+            for (MetaClass x : ITable.superInterfaces(c, methodScope)) {
+                ref = x.staticFields().lookup(x, fieldName, fieldDescriptor);
+                if (ref != null) {
+                    return ref;
+                }
+            }
+            c = c.hasSuperClass() ? methodScope.getMetaClass(c.superClassName, c.classLoader) : null;
+        }
+        return null;
+    }
+
+    private FieldRef lookup(MetaClass owner, String fieldName, String fieldDescriptor) {
+        Integer slot = indices.get(fieldName);
+        if (slot == null || !descriptors[slot].equals(fieldDescriptor)) {
+            return null;
+        }
+        return new FieldRef(owner, slot, fieldDescriptor.charAt(0));
+    }
+
+    public YObject get(int slot) {
+        if (isVolatile(slot)) {
+            return (YObject) SLOTS.getVolatile(slots, slot);
+        }
+        return slots[slot];
+    }
+
+    public void set(int slot, YObject value) {
+        if (isVolatile(slot)) {
+            SLOTS.setVolatile(slots, slot, value);
+            return;
+        }
+        slots[slot] = value;
+    }
+
+    public boolean isVolatile(int slot) {
+        return (accessFlags[slot] & MetaClassConstant.Access.ACC_VOLATILE) != 0;
+    }
+
+    public void visitReferences(Consumer<YObject> visitor) {
+        for (int i = 0; i < referenceCount; i++) {
+            if (slots[i] != null) {
+                visitor.accept(slots[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    public int referenceCount() {
+        return referenceCount;
+    }
+
+    public String name(int slot) {
+        return names[slot];
+    }
+
+    public String descriptor(int slot) {
+        return descriptors[slot];
+    }
+
+    public int accessFlag(int slot) {
+        return accessFlags[slot];
+    }
+
+    /***************************************************************
+     *  a field ref of getstatic/putstatic after resolution, kind is
+     *  the first character of field descriptor
+     *
+     ***************************************************************/
+    public static class FieldRef {
+        private MetaClass owner;
+        private int slot;
+        private char kind;
+
+        FieldRef(MetaClass owner, int slot, char kind) {
+            this.owner = owner;
+            this.slot = slot;
+            this.kind = kind;
+        }
+
+        public MetaClass owner() {
+            return owner;
+        }
+
+        public int slot() {
+            return slot;
+        }
+
+        public char kind() {
+            return kind;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package runtime.meta;
+
+import common.Tuple6;
+import runtime.YMethodScope;
+import ycloader.adt.u1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/***************************************************************
+ *  virtual method table of a class.
+ *
+ *  It starts as a copy of the table of super class, then each
+ *  virtual method declared by the class either overrides the entry
+ *  with the same name and descriptor or is appended. So a method
+ *  keeps its index in every subclass, and a method ref resolved to
+ *  an index once selects the target of any receiver by one array
+ *  load from the table of its class.
+ *
+ *  Methods of the interfaces the class declares follow, a default
+ *  method is appended or replaces an abstract interface method, and
+ *  abstract ones which are not implemented are appended as well, so
+ *  invokevirtual can select inherited default methods too.
+ *
+ ***************************************************************/
+public class VTable {
+    private ArrayList<Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension>> entries;
+    private HashMap<MethodKey, Integer> indices;
+
+    private VTable(VTable superTable, Collection<Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension>> declared,
+                   List<MetaClass> interfaces, YMethodScope methodScope) {
+        if (superTable == null) {
+            entries = new ArrayList<>();
+            indices = new HashMap<>();
+        } else {
+            entries = new ArrayList<>(superTable.entries);
+            indices = new HashMap<>(superTable.indices);
+        }
+        for (Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method : declared) {
+            MethodKey key = MethodKey.of(method.get1Placeholder(), method.get2Placeholder());
+            Integer index = indices.get(key);
+            if (index != null) {
+                entries.set(index, method);
+            } else {
+                indices.put(key, entries.size());
+                entries.add(method);
+            }
+        }
+        for (MetaClass x : interfaces) {
+            for (Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                    ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method : x.methods.virtualMethods()) {
+                MethodKey key = MethodKey.of(method.get1Placeholder(), method.get2Placeholder());
+                Integer index = indices.get(key);
+                if (index == null) {
+                    indices.put(key, entries.size());
+                    entries.add(method);
+                } else if (moreSpecific(method, entries.get(index), methodScope)) {
+                    entries.set(index, method);
+                }
+            }
+        }
+    }
+
+    /***************************************************************
+     *  a method of a class always wins, otherwise a method of an
+     *  interface wins over one of its super interfaces, and a default
+     *  method wins over an abstract method of an unrelated interface
+     *
+     ***************************************************************/
+    private static boolean moreSpecific(Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method,
+                                        Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> existing,
+                                        YMethodScope methodScope) {
+        MetaClass owner = existing.get6Placeholder().declaringClass;
+        MetaClass candidate = method.get6Placeholder().declaringClass;
+        if (!owner.isInterface() || owner == candidate) {
+            return false;
+        }
+        if (ITable.superInterfaces(candidate, methodScope).contains(owner)) {
+            return true;
+        }
+        if (ITable.superInterfaces(owner, methodScope).contains(candidate)) {
+            return false;
+        }
+        return existing.get6Placeholder().isAbstract && !method.get6Placeholder().isAbstract;
+    }
+
+    /***************************************************************
+     *  build the table of a class after its super classes are loaded,
+     *  tables of super classes which are not built yet are built first
+     *
+     ***************************************************************/
+    public static synchronized VTable link(MetaClass meta, YMethodScope methodScope) {
+        if (meta.vtable() != null) {
+            return meta.vtable();
+        }
+        VTable superTable = null;
+        if (meta.hasSuperClass()) {
+            MetaClass superClass = methodScope.getMetaClass(meta.superClassName, meta.classLoader);
+            if (superClass != null) {
+                superTable = link(superClass, methodScope);
+            }
+        }
+        VTable vtable = new VTable(superTable, meta.methods.virtualMethods(),
+                meta.isInterface() ? new ArrayList<>() : ITable.superInterfaces(meta, methodScope), methodScope);
+        meta.vtable(vtable);
+        return vtable;
+    }
+
+    /***************************************************************
+     *  index of the method with given name and descriptor, -1 if it's
+     *  not a virtual method of this class
+     *
+     ***************************************************************/
+    public int indexOf(String methodName, String methodDescriptor) {
+        Integer index = indices.get(MethodKey.of(methodName, methodDescriptor));
+        return index == null ? -1 : index;
+    }
+
+    public Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> methodAt(int index) {
+        return entries.get(index);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,315 @@
+package runtime.monitor;
+
+import runtime.RuntimeVM;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.profile.LockProfiler;
+import runtime.rtexception.VMExecutionException;
+import runtime.safepoint.Safepoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/***************************************************************
+ *  monitors of guest objects.
+ *
+ *  The lock word in object header is one of
+ *      UNLOCKED    nobody holds the monitor
+ *      THIN        bits 2-15 hold the owner thread id and bits 16-23
+ *                  the recursion count minus one, it's taken and
+ *                  released by a single CAS
+ *      INFLATED    bits 2-23 hold the index of an ObjectMonitor
+ *
+ *  A thin lock is inflated when another thread contends for it,
+ *  when its recursion count overflows, or when the owner id can
+ *  not fit in the lock word, or when its owner waits on it.
+ *  Inflated monitors which became idle are deflated at a
+ *  safepoint, see deflateIdleMonitors(). Looking up an inflated
+ *  monitor takes no lock.
+ *
+ *  Every acquisition which blocks is recorded by lock profiler,
+ *  including taking the monitor again after Object.wait(). With
+ *  -Dyvm.monitor.lockReport=true its report and the monitors held
+ *  or contended at that moment are printed when the host vm exits.
+ *
+ ***************************************************************/
+public class Monitors {
+    public static final int UNLOCKED = 0;
+    public static final int THIN = 1;
+    public static final int INFLATED = 2;
+
+    private static final int STATE_MASK = 0x3;
+    private static final int OWNER_SHIFT = 2;
+    private static final int MAX_OWNER = (1 << 14) - 1;
+    private static final int RECURSION_SHIFT = 16;
+    private static final int MAX_RECURSION = (1 << (YObject.LOCK_WORD_BITS - RECURSION_SHIFT)) - 1;
+    private static final int INDEX_SHIFT = 2;
+    private static final int MAX_MONITORS = 1 << (YObject.LOCK_WORD_BITS - INDEX_SHIFT);
+
+    private RuntimeVM runtimeVMRef;
+    private volatile AtomicReferenceArray<ObjectMonitor> table;
+    private int tableSize;
+    private ArrayDeque<Integer> freeIndices;
+    private LockProfiler lockProfiler;
+
+    public Monitors(RuntimeVM runtimeVM) {
+        this.runtimeVMRef = runtimeVM;
+        lockProfiler = new LockProfiler(runtimeVM);
+        if (Boolean.getBoolean(LockProfiler.LOCK_REPORT)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> System.err.print(lockProfiler.report() + "\n" + lockProfiler.snapshotReport(snapshot())),
+                    "yvm-lock-report"));
+        }
+        table = new AtomicReferenceArray<>(64);
+        freeIndices = new ArrayDeque<>();
+    }
+
+    /***************************************************************
+     *  monitorenter, the uncontended case is a CAS on object header
+     *
+     ***************************************************************/
+    public void enter(YThread thread, YObject object) {
+        int id = thread.threadId();
+        while (true) {
+            int word = object.lockWord();
+            switch (word & STATE_MASK) {
+                case UNLOCKED:
+                    if (id <= MAX_OWNER && object.casLockWord(word, thin(id, 0))) {
+                        return;
+                    }
+                    if (id > MAX_OWNER) {
+                        inflate(object);
+                    }
+                    break;
+                case THIN:
+                    if (ownerOf(word) == id && recursionsOf(word) < MAX_RECURSION) {
+                        if (object.casLockWord(word, thin(id, recursionsOf(word) + 1))) {
+                            return;
+                        }
+                    } else {
+                        inflate(object);
+                    }
+                    break;
+                default:
+                    enterInflated(thread, monitorAt(word >>> INDEX_SHIFT));
+                    return;
+            }
+        }
+    }
+
+    /***************************************************************
+     *  monitorexit, an IllegalMonitorStateException is thrown if
+     *  current thread doesn't hold the monitor
+     *
+     ***************************************************************/
+    public void exit(YThread thread, YObject object) {
+        int id = thread.threadId();
+        while (true) {
+            int word = object.lockWord();
+            switch (word & STATE_MASK) {
+                case UNLOCKED:
+                    throw new IllegalMonitorStateException("current thread is not owner of the monitor");
+                case THIN:
+                    if (ownerOf(word) != id) {
+                        throw new IllegalMonitorStateException("current thread is not owner of the monitor");
+                    }
+                    int recursions = recursionsOf(word);
+                    if (object.casLockWord(word, recursions == 0 ? UNLOCKED : thin(id, recursions - 1))) {
+                        return;
+                    }
+                    //it's inflated by a contending thread
+                    break;
+                default:
+                    monitorAt(word >>> INDEX_SHIFT).exit(thread);
+                    return;
+            }
+        }
+    }
+
+    /***************************************************************
+     *  Object.wait(), the lock is inflated so that current thread can
+     *  park in the wait set of its monitor
+     *
+     ***************************************************************/
+    public void wait(YThread thread, YObject object, long millis) throws InterruptedException {
+        if (!holdsLock(thread, object)) {
+            throw new IllegalMonitorStateException("current thread is not owner of the monitor");
+        }
+        ObjectMonitor monitor = inflate(object);
+        Safepoint safepoint = runtimeVMRef.safepoint();
+        safepoint.enterSafeRegion(thread);
+        try {
+            monitor.await(thread, millis, lockProfiler);
+        } finally {
+            safepoint.leaveSafeRegion(thread);
+        }
+    }
+
+    /***************************************************************
+     *  Object.notify(), nobody can be waiting on a thin lock
+     *
+     ***************************************************************/
+    public void notify(YThread thread, YObject object) {
+        ObjectMonitor monitor = inflatedMonitorOwnedBy(thread, object);
+        if (monitor != null) {
+            monitor.notify(thread);
+        }
+    }
+
+    public void notifyAll(YThread thread, YObject object) {
+        ObjectMonitor monitor = inflatedMonitorOwnedBy(thread, object);
+        if (monitor != null) {
+            monitor.notifyAll(thread);
+        }
+    }
+
+    private ObjectMonitor inflatedMonitorOwnedBy(YThread thread, YObject object) {
+        if (!holdsLock(thread, object)) {
+            throw new IllegalMonitorStateException("current thread is not owner of the monitor");
+        }
+        int word = object.lockWord();
+        return (word & STATE_MASK) == INFLATED ? monitorAt(word >>> INDEX_SHIFT) : null;
+    }
+
+    public boolean holdsLock(YThread thread, YObject object) {
+        int word = object.lockWord();
+        switch (word & STATE_MASK) {
+            case THIN:
+                return ownerOf(word) == thread.threadId();
+            case INFLATED:
+                return monitorAt(word >>> INDEX_SHIFT).isOwnedBy(thread);
+        }
+        return false;
+    }
+
+    /***************************************************************
+     *  turn the lock of an object into an ObjectMonitor, a thin lock
+     *  keeps its owner and recursion count
+     *
+     ***************************************************************/
+    public ObjectMonitor inflate(YObject object) {
+        while (true) {
+            int word = object.lockWord();
+            int state = word & STATE_MASK;
+            if (state == INFLATED) {
+                return monitorAt(word >>> INDEX_SHIFT);
+            }
+            ObjectMonitor monitor = state == THIN
+                    ? register(object, ownerOf(word), recursionsOf(word) + 1)
+                    : register(object, 0, 0);
+            if (object.casLockWord(word, (monitor.index() << INDEX_SHIFT) | INFLATED)) {
+                return monitor;
+            }
+            unregister(monitor);
+        }
+    }
+
+    /***************************************************************
+     *  turn idle monitors back into unlocked headers and recycle
+     *  their indices, it must run at a global safepoint
+     *
+     ***************************************************************/
+    public synchronized int deflateIdleMonitors() {
+        int deflated = 0;
+        for (int i = 0; i < tableSize; i++) {
+            ObjectMonitor monitor = table.get(i);
+            if (monitor != null && monitor.isIdle()
+                    && monitor.object().casLockWord((monitor.index() << INDEX_SHIFT) | INFLATED, UNLOCKED)) {
+                unregister(monitor);
+                deflated++;
+            }
+        }
+        return deflated;
+    }
+
+    public synchronized int inflatedCount() {
+        return tableSize - freeIndices.size();
+    }
+
+    public LockProfiler lockProfiler() {
+        return lockProfiler;
+    }
+
+    /***************************************************************
+     *  inflated monitors which are held or contended now, they are
+     *  read without stopping the world, so it's a live view rather
+     *  than a consistent one
+     *
+     ***************************************************************/
+    public List<LockProfiler.MonitorState> snapshot() {
+        ArrayList<LockProfiler.MonitorState> states = new ArrayList<>();
+        AtomicReferenceArray<ObjectMonitor> current = table;
+        for (int i = 0; i < current.length(); i++) {
+            ObjectMonitor monitor = current.get(i);
+            if (monitor != null) {
+                LockProfiler.MonitorState state = monitor.snapshot();
+                if (state.owner() != 0 || state.entrants() > 0 || state.waiters() > 0) {
+                    states.add(state);
+                }
+            }
+        }
+        return states;
+    }
+
+    private void enterInflated(YThread thread, ObjectMonitor monitor) {
+        if (monitor.tryEnter(thread)) {
+            return;
+        }
+        int owner = monitor.owner();
+        long start = System.nanoTime();
+        Safepoint safepoint = runtimeVMRef.safepoint();
+        safepoint.enterSafeRegion(thread);
+        try {
+            monitor.enterContended(thread);
+        } finally {
+            safepoint.leaveSafeRegion(thread);
+        }
+        lockProfiler.contended(thread, monitor.object(), owner, System.nanoTime() - start);
+    }
+
+    /***************************************************************
+     *  the table grows by copying, a monitor is stored before its
+     *  index is published by CAS on object header, so a thread which
+     *  reads the header sees the monitor as well
+     *
+     ***************************************************************/
+    private synchronized ObjectMonitor register(YObject object, int owner, int recursions) {
+        int index = freeIndices.isEmpty() ? tableSize++ : freeIndices.pop();
+        if (index >= MAX_MONITORS) {
+            throw new VMExecutionException("too many inflated monitors");
+        }
+        if (index >= table.length()) {
+            AtomicReferenceArray<ObjectMonitor> grown = new AtomicReferenceArray<>(table.length() * 2);
+            for (int i = 0; i < table.length(); i++) {
+                grown.set(i, table.get(i));
+            }
+            table = grown;
+        }
+        ObjectMonitor monitor = new ObjectMonitor(object, index, owner, recursions);
+        table.set(index, monitor);
+        return monitor;
+    }
+
+    private synchronized void unregister(ObjectMonitor monitor) {
+        table.set(monitor.index(), null);
+        freeIndices.push(monitor.index());
+    }
+
+    private ObjectMonitor monitorAt(int index) {
+        return table.get(index);
+    }
+
+    private static int thin(int owner, int recursions) {
+        return (recursions << RECURSION_SHIFT) | (owner << OWNER_SHIFT) | THIN;
+    }
+
+    private static int ownerOf(int word) {
+        return (word >>> OWNER_SHIFT) & MAX_OWNER;
+    }
+
+    private static int recursionsOf(int word) {
+        return word >>> RECURSION_SHIFT;
+    }
+}
@@ -0,0 +1,291 @@
+package runtime.monitor;
+
+import runtime.YObject;
+import runtime.YThread;
+import runtime.profile.LockProfiler;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/***************************************************************
+ *  heavyweight monitor of an inflated guest object.
+ *
+ *  The owner is recorded by guest thread id, so a thin lock held
+ *  by one thread can be inflated by another thread on its behalf.
+ *  Threads which can not get the monitor wait on the entry queue
+ *  until the owner releases it.
+ *
+ *  Each thread in Object.wait() parks on its own condition in the
+ *  wait set, so notify() wakes exactly the first waiter, and a
+ *  notified thread then competes for the monitor like any other
+ *  entrant.
+ *
+ ***************************************************************/
+public class ObjectMonitor {
+    private YObject object;
+    private int index;
+    private ReentrantLock mutex;
+    private Condition entryQueue;
+    private int owner;
+    private int recursions;
+    private int entrants;
+    private ArrayDeque<Waiter> waitSet;
+
+    ObjectMonitor(YObject object, int index, int owner, int recursions) {
+        this.object = object;
+        this.index = index;
+        this.owner = owner;
+        this.recursions = recursions;
+        mutex = new ReentrantLock();
+        entryQueue = mutex.newCondition();
+        waitSet = new ArrayDeque<>();
+    }
+
+    /***************************************************************
+     *  try to get the monitor without blocking, it's reentrant
+     *
+     ***************************************************************/
+    boolean tryEnter(YThread thread) {
+        mutex.lock();
+        try {
+            if (owner == thread.threadId()) {
+                recursions++;
+                return true;
+            }
+            if (owner == 0) {
+                owner = thread.threadId();
+                recursions = 1;
+                return true;
+            }
+            entrants++;
+            return false;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  wait until the monitor is released and take it, it's called
+     *  after tryEnter() failed, and the caller must be in a safe
+     *  region
+     *
+     ***************************************************************/
+    void enterContended(YThread thread) {
+        mutex.lock();
+        try {
+            boolean interrupted = false;
+            while (owner != 0) {
+                try {
+                    entryQueue.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            owner = thread.threadId();
+            recursions = 1;
+            entrants--;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    void exit(YThread thread) {
+        mutex.lock();
+        try {
+            checkOwner(thread);
+            if (--recursions == 0) {
+                release();
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  Object.wait(), release the monitor entirely and park until it's
+     *  notified or the timeout elapses, 0 means no timeout. The
+     *  monitor is taken again with the same recursion count before
+     *  it returns, if it has to block for that, it's recorded by
+     *  lockProfiler as a contended acquisition. The caller must be in
+     *  a safe region
+     *
+     ***************************************************************/
+    void await(YThread thread, long millis, LockProfiler lockProfiler) throws InterruptedException {
+        int blockedOwner = 0;
+        long blockedNanos = 0;
+        mutex.lock();
+        try {
+            checkOwner(thread);
+            int savedRecursions = recursions;
+            Waiter waiter = new Waiter(mutex.newCondition());
+            waitSet.add(waiter);
+            release();
+
+            InterruptedException interrupted = null;
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+                while (!waiter.notified) {
+                    if (millis == 0) {
+                        waiter.condition.await();
+                    } else if (nanos > 0) {
+                        nanos = waiter.condition.awaitNanos(nanos);
+                    } else {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                interrupted = e;
+            }
+            if (!waiter.notified) {
+                waitSet.remove(waiter);
+                entrants++;
+            }
+
+            if (owner != 0) {
+                blockedOwner = owner;
+                long start = System.nanoTime();
+                while (owner != 0) {
+                    entryQueue.awaitUninterruptibly();
+                }
+                blockedNanos = System.nanoTime() - start;
+            }
+            entrants--;
+            owner = thread.threadId();
+            recursions = savedRecursions;
+            if (interrupted != null) {
+                throw interrupted;
+            }
+        } finally {
+            mutex.unlock();
+            if (blockedOwner != 0) {
+                lockProfiler.contended(thread, object, blockedOwner, blockedNanos);
+            }
+        }
+    }
+
+    /***************************************************************
+     *  Object.notify(), wake the longest waiting thread if any
+     *
+     ***************************************************************/
+    void notify(YThread thread) {
+        mutex.lock();
+        try {
+            checkOwner(thread);
+            Waiter waiter = waitSet.poll();
+            if (waiter != null) {
+                wake(waiter);
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  Object.notifyAll(), wake every waiting thread
+     *
+     ***************************************************************/
+    void notifyAll(YThread thread) {
+        mutex.lock();
+        try {
+            checkOwner(thread);
+            Waiter waiter;
+            while ((waiter = waitSet.poll()) != null) {
+                wake(waiter);
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  a notified waiter is counted as an entrant right away, so the
+     *  monitor is not deflated before the waiter takes it again
+     *
+     ***************************************************************/
+    private void wake(Waiter waiter) {
+        waiter.notified = true;
+        entrants++;
+        waiter.condition.signal();
+    }
+
+    private void checkOwner(YThread thread) {
+        if (owner != thread.threadId()) {
+            throw new IllegalMonitorStateException("current thread is not owner of the monitor");
+        }
+    }
+
+    private void release() {
+        owner = 0;
+        if (entrants > 0) {
+            entryQueue.signal();
+        }
+    }
+
+    /***************************************************************
+     *  whether nobody holds or waits for this monitor, an idle monitor
+     *  can be deflated at a safepoint
+     *
+     ***************************************************************/
+    boolean isIdle() {
+        mutex.lock();
+        try {
+            return owner == 0 && entrants == 0 && waitSet.isEmpty();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    public boolean isOwnedBy(YThread thread) {
+        mutex.lock();
+        try {
+            return owner == thread.threadId();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  owner and queues of this monitor, they're read at once so
+     *  they're consistent with each other
+     *
+     ***************************************************************/
+    LockProfiler.MonitorState snapshot() {
+        mutex.lock();
+        try {
+            return new LockProfiler.MonitorState(object.typeName(), owner, entrants, waitSet.size());
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    int owner() {
+        mutex.lock();
+        try {
+            return owner;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    YObject object() {
+        return object;
+    }
+
+    int index() {
+        return index;
+    }
+
+    private static class Waiter {
+        private Condition condition;
+        private boolean notified;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
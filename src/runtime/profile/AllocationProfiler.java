@@ -0,0 +1,88 @@
+package runtime.profile;
+
+import runtime.YObject;
+import runtime.YThread;
+import runtime.ystack.YStackFrame;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/***************************************************************
+ *  sampling profiler of guest allocations.
+ *
+ *  Each guest thread counts down its allocations and records
+ *  every sampleInterval-th one, the sample stands for the whole
+ *  interval, so counts and bytes are estimations unless interval
+ *  is 1. Samples are grouped by class of the object and by the
+ *  allocation site, i.e. the method and pc of current frame.
+ *
+ ***************************************************************/
+public class AllocationProfiler {
+    private int sampleInterval;
+    private ConcurrentHashMap<String, Counter> classes;
+    private ConcurrentHashMap<String, Counter> sites;
+
+    public AllocationProfiler(int sampleInterval) {
+        this.sampleInterval = Math.max(1, sampleInterval);
+        classes = new ConcurrentHashMap<>();
+        sites = new ConcurrentHashMap<>();
+    }
+
+    /***************************************************************
+     *  it's called on every allocation, only the thread countdown is
+     *  touched unless this allocation is sampled
+     *
+     ***************************************************************/
+    public void sample(YThread thread, YObject object, long size) {
+        if (thread.allocationCountdown(thread.allocationCountdown() - 1) > 0) {
+            return;
+        }
+        thread.allocationCountdown(sampleInterval);
+        long bytes = size * sampleInterval;
+        classes.computeIfAbsent(object.typeName(), k -> new Counter()).add(sampleInterval, bytes);
+        sites.computeIfAbsent(siteOf(thread), k -> new Counter()).add(sampleInterval, bytes);
+    }
+
+    public int sampleInterval() {
+        return sampleInterval;
+    }
+
+    public Histogram classHistogram() {
+        return histogram("class name", classes);
+    }
+
+    public Histogram siteHistogram() {
+        return histogram("allocation site", sites);
+    }
+
+    public void reset() {
+        classes.clear();
+        sites.clear();
+    }
+
+    private static String siteOf(YThread thread) {
+        YStackFrame frame = thread.runtimeThread().stack().isEmpty()
+                ? null
+                : thread.runtimeThread().stack().currentFrame();
+        if (frame == null || frame.methodName() == null) {
+            return "<vm>";
+        }
+        return frame.methodName() + "@" + frame.pc();
+    }
+
+    private static Histogram histogram(String keyTitle, ConcurrentHashMap<String, Counter> counters) {
+        Histogram histogram = new Histogram(keyTitle);
+        counters.forEach((key, counter) -> histogram.add(key, counter.instances.sum(), counter.bytes.sum()));
+        return histogram;
+    }
+
+    private static class Counter {
+        private LongAdder instances = new LongAdder();
+        private LongAdder bytes = new LongAdder();
+
+        void add(long count, long size) {
+            instances.add(count);
+            bytes.add(size);
+        }
+    }
+}
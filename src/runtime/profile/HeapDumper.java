@@ -0,0 +1,625 @@
+package runtime.profile;
+
+import common.Tuple4;
+import runtime.RuntimeVM;
+import runtime.YArray;
+import runtime.YObject;
+import runtime.gc.RootScanner;
+import runtime.gc.Space;
+import runtime.meta.MetaClass;
+import runtime.meta.StaticFields;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/***************************************************************
+ *  writer of guest heap in HPROF binary format, which can be
+ *  opened by heap analyzers such as Eclipse MAT or VisualVM.
+ *
+ *  The dump consists of
+ *      1. a class record for every loaded MetaClass, plus synthetic
+ *         classes for arrays, primitive and string YObject
+ *      2. an instance or array record for every object in heap
+ *         spaces, allocation regions, and every object reachable
+ *         from roots
+ *      3. a root record for every root
+ *
+ *  Every guest value lives in a YObject slot, so fields declared
+ *  as primitives are written with the value of the YObject they
+ *  refer to. A string YObject is written as java/lang/String with
+ *  a char array holding its value.
+ *
+ *  Records are streamed through a small buffer into the file, the
+ *  length of each record is patched once it's written. Only the
+ *  object id table grows with the heap. It must be called at a
+ *  global safepoint, see YHeap.dumpHeap()
+ *
+ ***************************************************************/
+public class HeapDumper {
+    private static final String FORMAT = "JAVA PROFILE 1.0.2";
+    private static final int ID_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long SEGMENT_SIZE = 256L * 1024 * 1024;
+    private static final int STACK_TRACE_SERIAL = 1;
+
+    private static final int TAG_STRING = 0x01;
+    private static final int TAG_LOAD_CLASS = 0x02;
+    private static final int TAG_STACK_TRACE = 0x05;
+    private static final int TAG_HEAP_DUMP_SEGMENT = 0x1C;
+    private static final int TAG_HEAP_DUMP_END = 0x2C;
+
+    private static final int ROOT_UNKNOWN = 0xFF;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJECT_ARRAY_DUMP = 0x22;
+    private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    private static final int T_OBJECT = 2;
+    private static final int T_BOOLEAN = 4;
+    private static final int T_CHAR = 5;
+    private static final int T_FLOAT = 6;
+    private static final int T_DOUBLE = 7;
+    private static final int T_BYTE = 8;
+    private static final int T_SHORT = 9;
+    private static final int T_INT = 10;
+    private static final int T_LONG = 11;
+
+    private RuntimeVM runtimeVMRef;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long recordStart;
+    private long segmentStart;
+    private long nextId;
+    private IdentityHashMap<YObject, Long> objectIds;
+    private HashMap<String, Long> stringIds;
+    private LinkedHashMap<String, DumpClass> classes;
+
+    public HeapDumper(RuntimeVM runtimeVM) {
+        this.runtimeVMRef = runtimeVM;
+    }
+
+    public void dump(Path path) throws IOException {
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        nextId = 0;
+        objectIds = new IdentityHashMap<>();
+        stringIds = new HashMap<>();
+        classes = new LinkedHashMap<>();
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel = file;
+            discoverObjects();
+            writeHeader();
+            writeClasses();
+            writeHeapDump();
+            flush();
+        } finally {
+            channel = null;
+            objectIds = null;
+            classes = null;
+        }
+    }
+
+    /***************************************************************
+     *  give every object to be dumped an id, and find out the class
+     *  of each of them
+     *
+     ***************************************************************/
+    private void discoverObjects() {
+        for (MetaClass meta : runtimeVMRef.methodScope().getAllClasses()) {
+            DumpClass dumpClass = classOf(meta.qualifiedClassName);
+            dumpClass.meta = meta;
+        }
+        ArrayDeque<YObject> workList = new ArrayDeque<>();
+        Consumer<YObject> discover = object -> {
+            if (object != null && !objectIds.containsKey(object)) {
+                objectIds.put(object, nextId());
+                workList.push(object);
+            }
+        };
+        new RootScanner(runtimeVMRef).scan(discover);
+        for (MetaClass meta : runtimeVMRef.methodScope().getAllClasses()) {
+            meta.staticFields().visitReferences(discover);
+        }
+        for (Space space : runtimeVMRef.heap().spaces()) {
+            space.objects().forEach(discover);
+        }
+        while (!workList.isEmpty()) {
+            YObject object = workList.pop();
+            classOf(object.typeName());
+            object.visitReferences(discover);
+        }
+        classOf("java/lang/Object");
+        if (classes.containsKey("java/lang/String")) {
+            classOf("[C");
+        }
+    }
+
+    private DumpClass classOf(String name) {
+        DumpClass dumpClass = classes.get(name);
+        if (dumpClass == null) {
+            dumpClass = new DumpClass(name, nextId());
+            classes.put(name, dumpClass);
+        }
+        return dumpClass;
+    }
+
+    private void writeHeader() throws IOException {
+        putBytes(FORMAT.getBytes(StandardCharsets.US_ASCII));
+        putU1(0);
+        putU4(ID_SIZE);
+        putU8(System.currentTimeMillis());
+
+        beginRecord(TAG_STACK_TRACE);
+        putU4(STACK_TRACE_SERIAL);
+        putU4(0);
+        putU4(0);
+        endRecord();
+    }
+
+    private void writeClasses() throws IOException {
+        int serial = 0;
+        for (DumpClass dumpClass : classes.values()) {
+            dumpClass.resolveLayout();
+            long nameId = stringId(dumpClass.name);
+            beginRecord(TAG_LOAD_CLASS);
+            putU4(++serial);
+            putId(dumpClass.id);
+            putU4(STACK_TRACE_SERIAL);
+            putId(nameId);
+            endRecord();
+            for (DumpField field : dumpClass.fields) {
+                stringId(field.name);
+            }
+            for (DumpField field : dumpClass.staticFields) {
+                stringId(field.name);
+            }
+        }
+    }
+
+    private void writeHeapDump() throws IOException {
+        beginSegment();
+        for (DumpClass dumpClass : classes.values()) {
+            nextSubRecord();
+            writeClassDump(dumpClass);
+            putU1(ROOT_STICKY_CLASS);
+            putId(dumpClass.id);
+        }
+        IOException[] failure = new IOException[1];
+        new RootScanner(runtimeVMRef).scan(root -> {
+            if (root != null && failure[0] == null) {
+                try {
+                    nextSubRecord();
+                    putU1(ROOT_UNKNOWN);
+                    putId(objectIds.get(root));
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        for (Map.Entry<YObject, Long> entry : objectIds.entrySet()) {
+            nextSubRecord();
+            YObject object = entry.getKey();
+            if (object instanceof YArray) {
+                writeArrayDump((YArray) object, entry.getValue());
+            } else {
+                writeInstanceDump(object, entry.getValue());
+            }
+        }
+        endRecord();
+
+        beginRecord(TAG_HEAP_DUMP_END);
+        endRecord();
+    }
+
+    private void writeClassDump(DumpClass dumpClass) throws IOException {
+        putU1(CLASS_DUMP);
+        putId(dumpClass.id);
+        putU4(STACK_TRACE_SERIAL);
+        putId(dumpClass.superId());
+        for (int i = 0; i < 5; i++) {
+            //class loader, signers, protection domain and two reserved ids
+            putId(0);
+        }
+        putU4(dumpClass.instanceSize());
+        putU2(0);
+
+        putU2(dumpClass.staticFields.size());
+        for (DumpField field : dumpClass.staticFields) {
+            putId(stringIds.get(field.name));
+            putU1(field.type);
+            putValue(field.type, field.type == T_OBJECT ? idOf(field.value) : bitsOf(primitiveOf(field.value), field.type));
+        }
+        putU2(dumpClass.fields.size());
+        for (DumpField field : dumpClass.fields) {
+            putId(stringIds.get(field.name));
+            putU1(field.type);
+        }
+    }
+
+    private void writeInstanceDump(YObject object, long id) throws IOException {
+        DumpClass dumpClass = classes.get(object.typeName());
+        Object value = object.primitiveValue();
+        long charArrayId = 0;
+        if (value instanceof String) {
+            charArrayId = nextId();
+        }
+
+        putU1(INSTANCE_DUMP);
+        putId(id);
+        putU4(STACK_TRACE_SERIAL);
+        putId(dumpClass.id);
+        putU4(dumpClass.instanceSize());
+        boolean own = true;
+        for (DumpClass current = dumpClass; current != null; current = current.superClass()) {
+            for (int i = 0; i < current.fields.size(); i++) {
+                int type = current.fields.get(i).type;
+                if (!own) {
+                    putValue(type, 0);
+                } else if (value instanceof String) {
+                    putId(charArrayId);
+                } else if (value != null) {
+                    putValue(type, bitsOf(value, type));
+                } else {
+                    YObject slot = i < object.slotCount() ? object.getField(i) : null;
+                    putValue(type, type == T_OBJECT ? idOf(slot) : bitsOf(primitiveOf(slot), type));
+                }
+            }
+            own = false;
+        }
+
+        if (value instanceof String) {
+            String string = (String) value;
+            nextSubRecord();
+            putU1(PRIMITIVE_ARRAY_DUMP);
+            putId(charArrayId);
+            putU4(STACK_TRACE_SERIAL);
+            putU4(string.length());
+            putU1(T_CHAR);
+            for (int i = 0; i < string.length(); i++) {
+                putU2(string.charAt(i));
+            }
+        }
+    }
+
+    private void writeArrayDump(YArray array, long id) throws IOException {
+        String arrayType = array.typeName();
+        int length = array.getLength();
+        if (arrayType.length() == 2 && typeOf(arrayType.charAt(1)) != T_OBJECT) {
+            int type = typeOf(arrayType.charAt(1));
+            putU1(PRIMITIVE_ARRAY_DUMP);
+            putId(id);
+            putU4(STACK_TRACE_SERIAL);
+            putU4(length);
+            putU1(type);
+            for (int i = 0; i < length; i++) {
+                putValue(type, bitsOf(primitiveOf(array.get(i)), type));
+            }
+            return;
+        }
+        putU1(OBJECT_ARRAY_DUMP);
+        putId(id);
+        putU4(STACK_TRACE_SERIAL);
+        putU4(length);
+        putId(classes.get(arrayType).id);
+        for (int i = 0; i < length; i++) {
+            putId(idOf(array.get(i)));
+        }
+    }
+
+    private long idOf(YObject object) {
+        Long id = object == null ? null : objectIds.get(object);
+        return id == null ? 0 : id;
+    }
+
+    /***************************************************************
+     *  strings are top-level records, so all of them are written
+     *  before heap dump starts
+     *
+     ***************************************************************/
+    private long stringId(String string) throws IOException {
+        Long id = stringIds.get(string);
+        if (id == null) {
+            id = nextId();
+            stringIds.put(string, id);
+            beginRecord(TAG_STRING);
+            putId(id);
+            putBytes(string.getBytes(StandardCharsets.UTF_8));
+            endRecord();
+        }
+        return id;
+    }
+
+    private long nextId() {
+        nextId += ID_SIZE;
+        return nextId;
+    }
+
+    private static Object primitiveOf(YObject object) {
+        return object == null ? null : object.primitiveValue();
+    }
+
+    private static int typeOf(char descriptor) {
+        switch (descriptor) {
+            case 'Z':
+                return T_BOOLEAN;
+            case 'C':
+                return T_CHAR;
+            case 'F':
+                return T_FLOAT;
+            case 'D':
+                return T_DOUBLE;
+            case 'B':
+                return T_BYTE;
+            case 'S':
+                return T_SHORT;
+            case 'I':
+                return T_INT;
+            case 'J':
+                return T_LONG;
+        }
+        return T_OBJECT;
+    }
+
+    private static int sizeOf(int type) {
+        switch (type) {
+            case T_BOOLEAN:
+            case T_BYTE:
+                return 1;
+            case T_CHAR:
+            case T_SHORT:
+                return 2;
+            case T_FLOAT:
+            case T_INT:
+                return 4;
+        }
+        return 8;
+    }
+
+    /***************************************************************
+     *  bits of a host value converted to given primitive type, 0 if
+     *  there's no such value
+     *
+     ***************************************************************/
+    private static long bitsOf(Object value, int type) {
+        if (value instanceof Character) {
+            value = (int) (Character) value;
+        } else if (value instanceof Boolean) {
+            value = (Boolean) value ? 1 : 0;
+        }
+        if (!(value instanceof Number)) {
+            return 0;
+        }
+        Number number = (Number) value;
+        switch (type) {
+            case T_FLOAT:
+                return Float.floatToIntBits(number.floatValue());
+            case T_DOUBLE:
+                return Double.doubleToLongBits(number.doubleValue());
+            case T_BOOLEAN:
+                return number.longValue() != 0 ? 1 : 0;
+        }
+        return number.longValue();
+    }
+
+    private void putValue(int type, long bits) throws IOException {
+        switch (sizeOf(type)) {
+            case 1:
+                putU1((int) bits);
+                break;
+            case 2:
+                putU2((int) bits);
+                break;
+            case 4:
+                putU4((int) bits);
+                break;
+            default:
+                putU8(bits);
+                break;
+        }
+    }
+
+    /***************************************************************
+     *  records are written with a zero length first, the length is
+     *  patched in endRecord(). Heap dump is split into segments so
+     *  that no record length overflows u4
+     *
+     ***************************************************************/
+    private void beginRecord(int tag) throws IOException {
+        putU1(tag);
+        putU4(0);
+        recordStart = position();
+        putU4(0);
+    }
+
+    private void endRecord() throws IOException {
+        long length = position() - recordStart - 4;
+        long bufferStart = channel.position();
+        if (recordStart >= bufferStart) {
+            buffer.putInt((int) (recordStart - bufferStart), (int) length);
+            return;
+        }
+        ByteBuffer lengthBytes = ByteBuffer.allocate(4);
+        lengthBytes.putInt(0, (int) length);
+        channel.write(lengthBytes, recordStart);
+    }
+
+    private void beginSegment() throws IOException {
+        beginRecord(TAG_HEAP_DUMP_SEGMENT);
+        segmentStart = position();
+    }
+
+    private void nextSubRecord() throws IOException {
+        if (position() - segmentStart > SEGMENT_SIZE) {
+            endRecord();
+            beginSegment();
+        }
+    }
+
+    private long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putU1(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    private void putU2(int value) throws IOException {
+        ensure(2);
+        buffer.putShort((short) value);
+    }
+
+    private void putU4(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    private void putU8(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    private void putId(long id) throws IOException {
+        putU8(id);
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        for (int i = 0; i < bytes.length; i += BUFFER_SIZE) {
+            int length = Math.min(BUFFER_SIZE, bytes.length - i);
+            ensure(length);
+            buffer.put(bytes, i, length);
+        }
+    }
+
+    private static class DumpField {
+        private String name;
+        private int type;
+        private YObject value;
+
+        DumpField(String name, int type, YObject value) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    /***************************************************************
+     *  class of dumped objects, its layout comes from MetaClass if
+     *  it's loaded, otherwise it's a synthetic class
+     *
+     ***************************************************************/
+    private class DumpClass {
+        private String name;
+        private long id;
+        private MetaClass meta;
+        private List<DumpField> fields;
+        private List<DumpField> staticFields;
+
+        DumpClass(String name, long id) {
+            this.name = name;
+            this.id = id;
+            fields = new ArrayList<>();
+            staticFields = new ArrayList<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        void resolveLayout() {
+            if (meta != null) {
+                TreeMap<Integer, Tuple4<String, String, Integer, ?>> declared =
+                        new TreeMap<>((Map<Integer, Tuple4<String, String, Integer, ?>>) meta.fields.getFields());
+                declared.forEach((_Unused, field) -> fields.add(
+                        new DumpField(field.get1Placeholder(), typeOf(field.get2Placeholder().charAt(0)), null)));
+                StaticFields statics = meta.staticFields();
+                for (int i = 0; i < statics.size(); i++) {
+                    staticFields.add(new DumpField(statics.name(i), typeOf(statics.descriptor(i).charAt(0)), statics.get(i)));
+                }
+                return;
+            }
+            switch (name) {
+                case "java/lang/Integer":
+                    fields.add(new DumpField("value", T_INT, null));
+                    break;
+                case "java/lang/Long":
+                    fields.add(new DumpField("value", T_LONG, null));
+                    break;
+                case "java/lang/Float":
+                    fields.add(new DumpField("value", T_FLOAT, null));
+                    break;
+                case "java/lang/Double":
+                    fields.add(new DumpField("value", T_DOUBLE, null));
+                    break;
+                case "java/lang/Character":
+                    fields.add(new DumpField("value", T_CHAR, null));
+                    break;
+                case "java/lang/Boolean":
+                    fields.add(new DumpField("value", T_BOOLEAN, null));
+                    break;
+                case "java/lang/String":
+                    fields.add(new DumpField("value", T_OBJECT, null));
+                    break;
+            }
+        }
+
+        /***************************************************************
+         *  null for java/lang/Object, which names itself as its super
+         *  class, so walks up the hierarchy end there
+         *
+         ***************************************************************/
+        String superName() {
+            if (meta != null) {
+                return meta.hasSuperClass() ? meta.superClassName : null;
+            }
+            return name.equals("java/lang/Object") ? null : "java/lang/Object";
+        }
+
+        DumpClass superClass() {
+            return superName() == null ? null : classes.get(superName());
+        }
+
+        long superId() {
+            DumpClass superClass = superClass();
+            return superClass == null ? 0 : superClass.id;
+        }
+
+        int instanceSize() {
+            int size = 0;
+            for (DumpClass current = this; current != null; current = current.superClass()) {
+                for (DumpField field : current.fields) {
+                    size += sizeOf(field.type);
+                }
+            }
+            return size;
+        }
+    }
+}
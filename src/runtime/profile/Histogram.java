@@ -0,0 +1,77 @@
+package runtime.profile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/***************************************************************
+ *  object counts and bytes grouped by a key, e.g. class name or
+ *  allocation site. It's printed in the layout of jmap -histo,
+ *  entries are sorted by bytes in descending order
+ *
+ ***************************************************************/
+public class Histogram {
+    private String keyTitle;
+    private HashMap<String, Entry> entries;
+
+    public Histogram(String keyTitle) {
+        this.keyTitle = keyTitle;
+        entries = new HashMap<>();
+    }
+
+    public void add(String key, long instances, long bytes) {
+        Entry entry = entries.computeIfAbsent(key, Entry::new);
+        entry.instances += instances;
+        entry.bytes += bytes;
+    }
+
+    public List<Entry> entries() {
+        ArrayList<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::bytes).reversed().thenComparing(Entry::key));
+        return sorted;
+    }
+
+    public long totalInstances() {
+        return entries.values().stream().mapToLong(Entry::instances).sum();
+    }
+
+    public long totalBytes() {
+        return entries.values().stream().mapToLong(Entry::bytes).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%4s %14s %14s  %s%n", "num", "#instances", "#bytes", keyTitle));
+        sb.append("----------------------------------------------\n");
+        int num = 0;
+        for (Entry entry : entries()) {
+            sb.append(String.format("%4d:%14d %14d  %s%n", ++num, entry.instances, entry.bytes, entry.key));
+        }
+        sb.append(String.format("%-5s%14d %14d%n", "Total", totalInstances(), totalBytes()));
+        return sb.toString();
+    }
+
+    public static class Entry {
+        private String key;
+        private long instances;
+        private long bytes;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public long instances() {
+            return instances;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package runtime.profile;
+
+import runtime.RuntimeVM;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.ystack.YStackFrame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/***************************************************************
+ *  contention profiler of guest monitors.
+ *
+ *  Only acquisitions which have to block are recorded, so an
+ *  uncontended lock costs nothing. Each one is counted with the
+ *  time it was blocked, grouped by class of the locked object and
+ *  by the acquisition site, i.e. the method and pc of current
+ *  frame, and the thread which held the monitor at that moment is
+ *  remembered as the last owner.
+ *
+ *  report() prints both groups sorted by total blocked time, and
+ *  Monitors.snapshot() tells who holds and who waits for inflated
+ *  monitors right now. Both are printed when the host vm exits if
+ *  LOCK_REPORT is set, e.g.
+ *
+ *      -Dyvm.monitor.lockReport=true
+ *
+ ***************************************************************/
+public class LockProfiler {
+    public static final String LOCK_REPORT = "yvm.monitor.lockReport";
+
+    private RuntimeVM runtimeVMRef;
+    private ConcurrentHashMap<String, Counter> classes;
+    private ConcurrentHashMap<String, Counter> sites;
+
+    public LockProfiler(RuntimeVM runtimeVM) {
+        this.runtimeVMRef = runtimeVM;
+        classes = new ConcurrentHashMap<>();
+        sites = new ConcurrentHashMap<>();
+    }
+
+    /***************************************************************
+     *  it's called after a contended acquisition completes, owner is
+     *  the id of the thread which held the monitor when thread blocked
+     *
+     ***************************************************************/
+    public void contended(YThread thread, YObject object, int owner, long blockedNanos) {
+        classes.computeIfAbsent(object.typeName(), k -> new Counter()).add(owner, blockedNanos);
+        sites.computeIfAbsent(siteOf(thread), k -> new Counter()).add(owner, blockedNanos);
+    }
+
+    public List<Entry> classEntries() {
+        return entries(classes);
+    }
+
+    public List<Entry> siteEntries() {
+        return entries(sites);
+    }
+
+    public void reset() {
+        classes.clear();
+        sites.clear();
+    }
+
+    /***************************************************************
+     *  contended locks by class and by site, the hottest lock comes
+     *  first
+     *
+     ***************************************************************/
+    public String report() {
+        HashMap<Integer, String> names = threadNames();
+        StringBuilder sb = new StringBuilder();
+        table(sb, "class name", classEntries(), names);
+        sb.append('\n');
+        table(sb, "acquisition site", siteEntries(), names);
+        return sb.toString();
+    }
+
+    public String snapshotReport(List<MonitorState> snapshot) {
+        HashMap<Integer, String> names = threadNames();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %8s %8s  %s%n", "owner", "#blocked", "#waiters", "class name"));
+        sb.append("----------------------------------------------\n");
+        for (MonitorState state : snapshot) {
+            sb.append(String.format("%-24s %8d %8d  %s%n", nameOf(names, state.owner),
+                    state.entrants, state.waiters, state.typeName));
+        }
+        return sb.toString();
+    }
+
+    private HashMap<Integer, String> threadNames() {
+        HashMap<Integer, String> names = new HashMap<>();
+        for (YThread thread : runtimeVMRef.threads()) {
+            names.put(thread.threadId(), thread.threadName());
+        }
+        return names;
+    }
+
+    private static String nameOf(HashMap<Integer, String> names, int owner) {
+        if (owner == 0) {
+            return "-";
+        }
+        return names.getOrDefault(owner, "#" + owner);
+    }
+
+    private static void table(StringBuilder sb, String keyTitle, List<Entry> entries, HashMap<Integer, String> names) {
+        sb.append(String.format("%4s %12s %14s %12s  %-20s %s%n",
+                "num", "#contended", "blocked(ms)", "max(ms)", "last owner", keyTitle));
+        sb.append("----------------------------------------------\n");
+        int num = 0;
+        for (Entry entry : entries) {
+            sb.append(String.format("%4d:%12d %14.3f %12.3f  %-20s %s%n", ++num, entry.contentions,
+                    entry.totalBlockedNanos / 1e6, entry.maxBlockedNanos / 1e6,
+                    nameOf(names, entry.lastOwner), entry.key));
+        }
+    }
+
+    private static String siteOf(YThread thread) {
+        YStackFrame frame = thread.runtimeThread().stack().isEmpty()
+                ? null
+                : thread.runtimeThread().stack().currentFrame();
+        if (frame == null || frame.methodName() == null) {
+            return "<vm>";
+        }
+        return frame.methodName() + "@" + frame.pc();
+    }
+
+    private static List<Entry> entries(ConcurrentHashMap<String, Counter> counters) {
+        ArrayList<Entry> entries = new ArrayList<>();
+        counters.forEach((key, counter) -> entries.add(new Entry(key, counter.contentions.sum(),
+                counter.blocked.sum(), counter.maxBlocked.get(), counter.lastOwner.get())));
+        entries.sort(Comparator.comparingLong(Entry::totalBlockedNanos).reversed().thenComparing(Entry::key));
+        return entries;
+    }
+
+    public static class Entry {
+        private String key;
+        private long contentions;
+        private long totalBlockedNanos;
+        private long maxBlockedNanos;
+        private int lastOwner;
+
+        Entry(String key, long contentions, long totalBlockedNanos, long maxBlockedNanos, int lastOwner) {
+            this.key = key;
+            this.contentions = contentions;
+            this.totalBlockedNanos = totalBlockedNanos;
+            this.maxBlockedNanos = maxBlockedNanos;
+            this.lastOwner = lastOwner;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public long contentions() {
+            return contentions;
+        }
+
+        public long totalBlockedNanos() {
+            return totalBlockedNanos;
+        }
+
+        public long maxBlockedNanos() {
+            return maxBlockedNanos;
+        }
+
+        /***************************************************************
+         *  id of the thread which held the lock at the last contended
+         *  acquisition
+         *
+         ***************************************************************/
+        public int lastOwner() {
+            return lastOwner;
+        }
+    }
+
+    /***************************************************************
+     *  state of one inflated monitor, owner is 0 if nobody holds it
+     *
+     ***************************************************************/
+    public static class MonitorState {
+        private String typeName;
+        private int owner;
+        private int entrants;
+        private int waiters;
+
+        public MonitorState(String typeName, int owner, int entrants, int waiters) {
+            this.typeName = typeName;
+            this.owner = owner;
+            this.entrants = entrants;
+            this.waiters = waiters;
+        }
+
+        public String typeName() {
+            return typeName;
+        }
+
+        public int owner() {
+            return owner;
+        }
+
+        public int entrants() {
+            return entrants;
+        }
+
+        public int waiters() {
+            return waiters;
+        }
+    }
+
+    private static class Counter {
+        private LongAdder contentions = new LongAdder();
+        private LongAdder blocked = new LongAdder();
+        private LongAccumulator maxBlocked = new LongAccumulator(Math::max, 0);
+        private AtomicInteger lastOwner = new AtomicInteger();
+
+        void add(int owner, long blockedNanos) {
+            contentions.increment();
+            blocked.add(blockedNanos);
+            maxBlocked.accumulate(blockedNanos);
+            lastOwner.set(owner);
+        }
+    }
+}
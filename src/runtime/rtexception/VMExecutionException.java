@@ -4,4 +4,8 @@ public class VMExecutionException extends RuntimeException{
     public VMExecutionException(String message){
         super(message);
     }
+
+    public VMExecutionException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
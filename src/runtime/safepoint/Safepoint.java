@@ -0,0 +1,247 @@
+package runtime.safepoint;
+
+import runtime.RuntimeVM;
+import runtime.YThread;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/***************************************************************
+ *  global safepoint of guest threads.
+ *
+ *  Each guest thread is in one of three states
+ *      IN_VM         it's not executing guest code, e.g. it has not
+ *                    started yet, or it's blocked inside the vm in
+ *                    a safe region. It never touches the heap or its
+ *                    own stack without leaving this state first
+ *      IN_GUEST      it's interpreting guest code
+ *      AT_SAFEPOINT  it's parked at a poll until the safepoint is
+ *                    released
+ *
+ *  A coordinator raises the poll flag and waits until no thread
+ *  is IN_GUEST. The interpreter polls the flag at backward branches
+ *  and method returns, so every loop and every call chain reaches
+ *  a poll in bounded time. A poll is a single volatile read unless
+ *  a safepoint is pending.
+ *
+ *  A guest thread which requests a safepoint is not waited for, it
+ *  counts as stopped until the safepoint is released. A guest
+ *  thread which blocks on a vm lock that a coordinator may hold
+ *  must enter a safe region first, otherwise the coordinator would
+ *  wait for it forever.
+ *
+ *  Parked threads and the coordinator wait on conditions of a j.u.c
+ *  lock instead of a host monitor, so a guest thread carried by a
+ *  virtual thread doesn't pin its carrier while it's stopped.
+ *
+ ***************************************************************/
+public class Safepoint {
+    public static final int IN_VM = 0;
+    public static final int IN_GUEST = 1;
+    public static final int AT_SAFEPOINT = 2;
+
+    private RuntimeVM runtimeVMRef;
+    private volatile boolean pending;
+    private ReentrantLock stateLock;
+    private Condition stopped;
+    private Condition resumed;
+    private ReentrantLock coordinatorLock;
+    private SafepointStatistics statistics;
+    private ThreadLocal<YThread> currentGuest;
+    private YThread coordinator;
+    private String reason;
+    private long requestStart;
+    private long timeToSafepoint;
+
+    public Safepoint(RuntimeVM runtimeVM) {
+        this.runtimeVMRef = runtimeVM;
+        stateLock = new ReentrantLock();
+        stopped = stateLock.newCondition();
+        resumed = stateLock.newCondition();
+        coordinatorLock = new ReentrantLock();
+        statistics = new SafepointStatistics();
+        currentGuest = new ThreadLocal<>();
+    }
+
+    /***************************************************************
+     *  poll of interpreter, park current thread if a safepoint is
+     *  pending
+     *
+     ***************************************************************/
+    public void poll(YThread thread) {
+        if (pending) {
+            block(thread);
+        }
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    /***************************************************************
+     *  stop all guest threads and return once none of them executes
+     *  guest code. Safepoints requested by the thread which already
+     *  holds one are nested in it, other coordinators wait until it's
+     *  released
+     *
+     ***************************************************************/
+    public void begin(String reason) {
+        coordinatorLock.lock();
+        if (coordinatorLock.getHoldCount() > 1) {
+            return;
+        }
+        this.reason = reason;
+        requestStart = System.nanoTime();
+        YThread self = currentGuest.get();
+        if (self != null && self.safepointState() == IN_GUEST) {
+            coordinator = self;
+            self.safepointState(IN_VM);
+        }
+        stateLock.lock();
+        try {
+            pending = true;
+            while (!allStopped()) {
+                stopped.awaitUninterruptibly();
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /***************************************************************
+     *  release guest threads stopped by begin()
+     *
+     ***************************************************************/
+    public void end() {
+        if (!coordinatorLock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("safepoint is not held by current thread");
+        }
+        if (coordinatorLock.getHoldCount() == 1) {
+            long released = System.nanoTime();
+            stateLock.lock();
+            try {
+                pending = false;
+                resumed.signalAll();
+            } finally {
+                stateLock.unlock();
+            }
+            if (coordinator != null) {
+                coordinator.safepointState(IN_GUEST);
+                coordinator = null;
+            }
+            synchronized (statistics) {
+                statistics.record(reason, timeToSafepoint, released - requestStart);
+            }
+        }
+        coordinatorLock.unlock();
+    }
+
+    /***************************************************************
+     *  run an operation while all guest threads are stopped
+     *
+     ***************************************************************/
+    public void run(String reason, Runnable operation) {
+        begin(reason);
+        try {
+            operation.run();
+        } finally {
+            end();
+        }
+    }
+
+    /***************************************************************
+     *  current thread starts interpreting guest code, nested calls
+     *  from class initialization are counted
+     *
+     ***************************************************************/
+    public void enterGuest(YThread thread) {
+        if (thread.guestDepth(thread.guestDepth() + 1) == 1) {
+            currentGuest.set(thread);
+            toGuest(thread);
+        }
+    }
+
+    public void leaveGuest(YThread thread) {
+        if (thread.guestDepth(thread.guestDepth() - 1) == 0) {
+            currentGuest.remove();
+            toVM(thread);
+        }
+    }
+
+    /***************************************************************
+     *  current thread is going to block inside the vm, it's regarded
+     *  as stopped until it leaves the safe region
+     *
+     ***************************************************************/
+    public void enterSafeRegion(YThread thread) {
+        if (thread.safepointState() == IN_GUEST) {
+            toVM(thread);
+        }
+    }
+
+    /***************************************************************
+     *  return to guest code, wait here if a safepoint is in progress
+     *
+     ***************************************************************/
+    public void leaveSafeRegion(YThread thread) {
+        if (thread.guestDepth() > 0 && thread.safepointState() == IN_VM) {
+            toGuest(thread);
+        }
+    }
+
+    public SafepointStatistics statistics() {
+        synchronized (statistics) {
+            return new SafepointStatistics(statistics);
+        }
+    }
+
+    /***************************************************************
+     *  the state is published before the flag is read, and the
+     *  coordinator publishes the flag before it reads the states,
+     *  so either the coordinator sees this thread IN_GUEST and waits
+     *  for it, or this thread sees the flag and parks itself
+     *
+     ***************************************************************/
+    private void toGuest(YThread thread) {
+        thread.safepointState(IN_GUEST);
+        if (pending) {
+            block(thread);
+        }
+    }
+
+    private void toVM(YThread thread) {
+        thread.safepointState(IN_VM);
+        if (pending) {
+            stateLock.lock();
+            try {
+                stopped.signalAll();
+            } finally {
+                stateLock.unlock();
+            }
+        }
+    }
+
+    private void block(YThread thread) {
+        stateLock.lock();
+        try {
+            thread.safepointState(AT_SAFEPOINT);
+            stopped.signalAll();
+            while (pending) {
+                resumed.awaitUninterruptibly();
+            }
+            thread.safepointState(IN_GUEST);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private boolean allStopped() {
+        for (YThread thread : runtimeVMRef.threads()) {
+            if (thread.safepointState() == IN_GUEST) {
+                return false;
+            }
+        }
+        timeToSafepoint = System.nanoTime() - requestStart;
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+package runtime.safepoint;
+
+/***************************************************************
+ *  statistics of global safepoints.
+ *
+ *  Time to safepoint is measured from the request until the last
+ *  running guest thread stops, it shows how long guest code can
+ *  run without reaching a poll. Pause time is measured from the
+ *  request until guest threads are released
+ *
+ ***************************************************************/
+public class SafepointStatistics {
+    private long count;
+    private long totalTimeToSafepoint;
+    private long maxTimeToSafepoint;
+    private long totalPause;
+    private long maxPause;
+    private String lastReason;
+
+    public SafepointStatistics() {
+    }
+
+    SafepointStatistics(SafepointStatistics other) {
+        count = other.count;
+        totalTimeToSafepoint = other.totalTimeToSafepoint;
+        maxTimeToSafepoint = other.maxTimeToSafepoint;
+        totalPause = other.totalPause;
+        maxPause = other.maxPause;
+        lastReason = other.lastReason;
+    }
+
+    void record(String reason, long timeToSafepointNanos, long pauseNanos) {
+        count++;
+        totalTimeToSafepoint += timeToSafepointNanos;
+        maxTimeToSafepoint = Math.max(maxTimeToSafepoint, timeToSafepointNanos);
+        totalPause += pauseNanos;
+        maxPause = Math.max(maxPause, pauseNanos);
+        lastReason = reason;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long totalTimeToSafepointNanos() {
+        return totalTimeToSafepoint;
+    }
+
+    public long maxTimeToSafepointNanos() {
+        return maxTimeToSafepoint;
+    }
+
+    public long averageTimeToSafepointNanos() {
+        return count == 0 ? 0 : totalTimeToSafepoint / count;
+    }
+
+    public long totalPauseNanos() {
+        return totalPause;
+    }
+
+    public long maxPauseNanos() {
+        return maxPause;
+    }
+
+    public String lastReason() {
+        return lastReason;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[safepoint count %d, ttsp avg %.3fms max %.3fms, pause total %.3fms max %.3fms]",
+                count, averageTimeToSafepointNanos() / 1_000_000.0, maxTimeToSafepoint / 1_000_000.0,
+                totalPause / 1_000_000.0, maxPause / 1_000_000.0);
+    }
+}
@@ -1,5 +1,7 @@
 package runtime.ystack;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 public class YStack {
@@ -20,4 +22,12 @@ public class YStack {
     public synchronized YStackFrame currentFrame() {
         return stackFrames.peek();
     }
+
+    public synchronized boolean isEmpty() {
+        return stackFrames.isEmpty();
+    }
+
+    public synchronized List<YStackFrame> frames() {
+        return new ArrayList<>(stackFrames);
+    }
 }
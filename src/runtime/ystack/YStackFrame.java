@@ -1,22 +1,70 @@
 package runtime.ystack;
 
 import runtime.YObject;
+import runtime.meta.ReferenceMap;
 
 import java.util.ArrayList;
 import java.util.Stack;
+import java.util.function.Consumer;
 
 public class YStackFrame {
     private ArrayList<YObject> vars;
     private Stack<YObject> operands;
+    private ReferenceMap referenceMap;
+    private int pc;
+    private String methodName;
 
     public YStackFrame() {
         vars = new ArrayList<>();
         operands = new Stack<>();
     }
 
+    /***************************************************************
+     *  local variables are indexed by slot from the start, operand
+     *  stack grows from empty, so the n-th operand is always at
+     *  index n as reference map expects
+     *
+     ***************************************************************/
     public void allocateSize(int maxStack, int maxLocal) {
-        vars.ensureCapacity(maxStack);
-        operands.setSize(maxStack);
+        vars.ensureCapacity(maxLocal);
+        while (vars.size() < maxLocal) {
+            vars.add(null);
+        }
+        operands.ensureCapacity(maxStack);
+    }
+
+    public void referenceMap(ReferenceMap referenceMap) {
+        this.referenceMap = referenceMap;
+    }
+
+    public ReferenceMap referenceMap() {
+        return referenceMap;
+    }
+
+    /***************************************************************
+     *  qualified name of the method running in this frame, e.g.
+     *  java/lang/Object.toString()Ljava/lang/String;
+     *
+     ***************************************************************/
+    public String methodName() {
+        return methodName;
+    }
+
+    public void methodName(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /***************************************************************
+     *  pc of the instruction being executed in this frame, for a
+     *  caller frame it's the pc of invocation
+     *
+     ***************************************************************/
+    public int pc() {
+        return pc;
+    }
+
+    public void pc(int pc) {
+        this.pc = pc;
     }
 
     public YObject peekOperand() {
@@ -46,4 +94,40 @@ public class YStackFrame {
     public void clearLocalVar() {
         vars.clear();
     }
-}
\ No newline at end of file
+
+    /***************************************************************
+     *  visit slots holding references at current pc. Operands popped
+     *  by the instruction being executed are no longer in the frame,
+     *  so slots beyond current depth are skipped. Without a reference
+     *  map, e.g. the frame of a native method, every slot is visited
+     *
+     ***************************************************************/
+    public void visitReferences(Consumer<YObject> visitor) {
+        int[] referenceSlots = referenceMap == null ? null : referenceMap.referenceSlots(pc);
+        if (referenceSlots != null) {
+            int maxLocals = referenceMap.maxLocals();
+            for (int slot : referenceSlots) {
+                YObject value = null;
+                if (slot < maxLocals) {
+                    value = slot < vars.size() ? vars.get(slot) : null;
+                } else if (slot - maxLocals < operands.size()) {
+                    value = operands.get(slot - maxLocals);
+                }
+                if (value != null) {
+                    visitor.accept(value);
+                }
+            }
+            return;
+        }
+        for (YObject var : vars) {
+            if (var != null) {
+                visitor.accept(var);
+            }
+        }
+        for (YObject operand : operands) {
+            if (operand != null) {
+                visitor.accept(operand);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package testcase;
+
+import runtime.meta.MetaClass;
+import runtime.meta.StaticFields;
+
+/***************************************************************
+ *  runs on the host. InitOrder logs one digit before and one after
+ *  it reads a static field of InitSub, whose <clinit> logs after
+ *  the one of its super class, so the log is 1234 if classes are
+ *  initialized lazily and supers first. A class only referenced by
+ *  code which never runs is not initialized. The <clinit> of
+ *  InitBroken divides by zero, the first use fails with the cause
+ *  chained, and the class stays erroneous for the second use
+ *
+ ***************************************************************/
+public class ClassInitializationTest {
+    public static void main(String[] args) throws Throwable {
+        GuestRunner runner = new GuestRunner();
+        MetaClass order = runner.load("testcase/InitOrder");
+        runner.run("testcase/InitOrder", "run");
+
+        StaticFields fields = order.staticFields();
+        int log = (int) fields.get(SynchronizedMethodTest.slot(fields, "log")).primitiveValue();
+        if (log != 1234) {
+            throw new AssertionError("initialization log is " + log + ", expected 1234");
+        }
+        int seen = (int) fields.get(SynchronizedMethodTest.slot(fields, "seen")).primitiveValue();
+        if (seen != 7) {
+            throw new AssertionError("InitSub.value is " + seen + ", expected 7");
+        }
+        MetaClass untouched = runner.find("testcase/InitUntouched");
+        if (untouched != null && untouched.isInitialized()) {
+            throw new AssertionError("InitUntouched is initialized but never used");
+        }
+
+        runner.load("testcase/InitBrokenUser");
+        Throwable first = failure(runner);
+        if (!causedBy(first, ArithmeticException.class)) {
+            throw new AssertionError("failure of <clinit> is not chained", first);
+        }
+        MetaClass broken = runner.find("testcase/InitBroken");
+        if (broken == null || broken.initializationState() != MetaClass.ERRONEOUS) {
+            throw new AssertionError("InitBroken is not erroneous after its <clinit> failed");
+        }
+        Throwable second = failure(runner);
+        if (causedBy(second, ArithmeticException.class)) {
+            throw new AssertionError("<clinit> of an erroneous class runs again", second);
+        }
+        System.out.println("ClassInitializationTest passed");
+    }
+
+    private static Throwable failure(GuestRunner runner) {
+        try {
+            runner.run("testcase/InitBrokenUser", "touch");
+        } catch (Throwable e) {
+            return e;
+        }
+        throw new AssertionError("InitBroken is used although its <clinit> failed");
+    }
+
+    private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
+
+class InitOrder {
+    static int log;
+    static int seen;
+
+    static void run() {
+        log = log * 10 + 1;
+        seen = InitSub.value;
+        log = log * 10 + 4;
+    }
+
+    static void never() {
+        InitUntouched.used = 1;
+    }
+}
+
+class InitBase {
+    static {
+        InitOrder.log = InitOrder.log * 10 + 2;
+    }
+}
+
+class InitSub extends InitBase {
+    static int value = 7;
+
+    static {
+        InitOrder.log = InitOrder.log * 10 + 3;
+    }
+}
+
+class InitUntouched {
+    static int used;
+}
+
+class InitBroken {
+    static int zero;
+    static int z = 1 / zero;
+}
+
+class InitBrokenUser {
+    static int got;
+
+    static void touch() {
+        got = InitBroken.z;
+    }
+}
@@ -0,0 +1,68 @@
+package testcase;
+
+import runtime.meta.MetaClass;
+import runtime.meta.StaticFields;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/***************************************************************
+ *  runs on the host. Greeted inherits an abstract greet() from
+ *  Greeter and a default greet() from DefaultGreeter, which are
+ *  unrelated interfaces. Java source can't declare that, so the
+ *  classes are compiled separately, Greeter is first compiled as a
+ *  sub interface of DefaultGreeter, then again as an unrelated one
+ *  with the abstract method. Calls through the class and through
+ *  Greeter must both select the default method
+ *
+ ***************************************************************/
+public class DefaultMethodDispatchTest {
+    public static void main(String[] args) throws Throwable {
+        Path classes = Files.createTempDirectory("yvm-dispatch");
+        compile(classes,
+                "package dispatch; public interface Greeter extends DefaultGreeter { }",
+                "package dispatch; public interface DefaultGreeter { default int greet() { return 42; } }",
+                "package dispatch; public class Greeted implements Greeter, DefaultGreeter { }",
+                "package dispatch; public class Caller {"
+                        + " static Greeter greeter; static int viaClass; static int viaInterface;"
+                        + " public static void call() {"
+                        + " viaClass = new Greeted().greet();"
+                        + " greeter = new Greeted();"
+                        + " viaInterface = greeter.greet(); } }");
+        compile(classes, "package dispatch; public interface Greeter { int greet(); }");
+
+        GuestRunner runner = new GuestRunner(classes);
+        MetaClass caller = runner.load("dispatch/Caller");
+        runner.run("dispatch/Caller", "call");
+
+        StaticFields fields = caller.staticFields();
+        for (String name : new String[]{"viaClass", "viaInterface"}) {
+            Object value = fields.get(SynchronizedMethodTest.slot(fields, name)).primitiveValue();
+            if (!Integer.valueOf(42).equals(value)) {
+                throw new AssertionError(name + " is " + value + ", the default method is not selected");
+            }
+        }
+        System.out.println("DefaultMethodDispatchTest passed");
+    }
+
+    private static void compile(Path classes, String... sources) throws Exception {
+        Path dir = Files.createTempDirectory("yvm-dispatch-src");
+        String[] options = new String[sources.length + 4];
+        options[0] = "-d";
+        options[1] = classes.toString();
+        options[2] = "-cp";
+        options[3] = classes.toString();
+        for (int i = 0; i < sources.length; i++) {
+            String name = sources[i].replaceAll("(?s).*?(class|interface) (\\w+).*", "$2");
+            Path file = dir.resolve(name + ".java");
+            Files.write(file, sources[i].getBytes("UTF-8"));
+            options[i + 4] = file.toString();
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, options) != 0) {
+            throw new AssertionError("can not compile guest classes");
+        }
+    }
+}
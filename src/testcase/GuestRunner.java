@@ -0,0 +1,172 @@
+package testcase;
+
+import runtime.RuntimeVM;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.meta.MetaClass;
+import ycloader.YClassLoader;
+import yvm.exec.CodeExecutionEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  runs guest code for the host-side test cases.
+ *
+ *  Guest classes are looked up in the given class path entries,
+ *  then in the host class path the test case is loaded from, so
+ *  package-private classes compiled along with a test case can be
+ *  run as guest code. java/lang/Object is copied from the host
+ *  runtime. The search path config is written to a temporary file
+ *  and passed by the yvm.rtsearch property.
+ *
+ *  A guest method runs on a guest thread of its own, a failure of
+ *  the method is rethrown by Task.await()
+ *
+ ***************************************************************/
+public class GuestRunner {
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    private RuntimeVM vm;
+
+    public GuestRunner(Path... classPath) throws IOException {
+        Path runtime = Files.createTempDirectory("yvm-rt");
+        Files.createDirectories(runtime.resolve("java/lang"));
+        try (InputStream in = FileSystems.getFileSystem(URI.create("jrt:/"))
+                .getPath("modules", "java.base", "java/lang/Object.class").toUri().toURL().openStream()) {
+            Files.copy(in, runtime.resolve("java/lang/Object.class"));
+        }
+
+        List<Path> searchPath = new ArrayList<>();
+        searchPath.add(runtime);
+        for (Path p : classPath) {
+            searchPath.add(p);
+        }
+        try {
+            searchPath.add(Paths.get(GuestRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        } catch (Exception e) {
+            throw new IOException("can not locate host class path", e);
+        }
+
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<searchPath>\n    <jars>\n    </jars>\n    <classPath>\n");
+        for (Path p : searchPath) {
+            xml.append("        <p>").append(p.toAbsolutePath()).append("</p>\n");
+        }
+        xml.append("    </classPath>\n</searchPath>\n");
+        Path conf = runtime.resolve("rtsearch.xml");
+        Files.write(conf, xml.toString().getBytes("UTF-8"));
+        System.setProperty(YClassLoader.RT_SEARCH_LIST, conf.toString());
+
+        vm = new RuntimeVM();
+    }
+
+    public RuntimeVM vm() {
+        return vm;
+    }
+
+    /***************************************************************
+     *  load and link a guest class with its super classes and
+     *  interfaces, it's not initialized
+     *
+     ***************************************************************/
+    public MetaClass load(String className) throws Throwable {
+        MetaClass[] meta = new MetaClass[1];
+        start("loader", loader -> {
+            loader.loadInheritanceChain(className);
+            meta[0] = vm.methodScope().getMetaClass(className, YClassLoader.class);
+        }).await();
+        return meta[0];
+    }
+
+    /***************************************************************
+     *  the guest class if it's loaded, null otherwise
+     *
+     ***************************************************************/
+    public MetaClass find(String className) {
+        return vm.methodScope().getMetaClass(className, YClassLoader.class);
+    }
+
+    /***************************************************************
+     *  initialize a loaded guest class and run its static method on
+     *  a new guest thread as the launcher does for main(), times in
+     *  a row. The interpreter doesn't follow branch offsets yet, so
+     *  guest methods of the test cases are free of branches and
+     *  loops are driven from here
+     *
+     ***************************************************************/
+    public Task start(String threadName, String className, String methodName, int times) {
+        return start(threadName, loader -> {
+            MetaClass meta = vm.methodScope().getMetaClass(className, YClassLoader.class);
+            loader.initializeClass(meta);
+            CodeExecutionEngine engine = new CodeExecutionEngine();
+            engine.ignite(meta, loader);
+            for (int i = 0; i < times; i++) {
+                engine.executeMethod(methodName);
+            }
+        });
+    }
+
+    /***************************************************************
+     *  run an instance method of receiver on a new guest thread, it's
+     *  looked up from the class of receiver up to its super classes
+     *
+     ***************************************************************/
+    public Task start(String threadName, YObject receiver, String methodName) {
+        return start(threadName, loader -> {
+            loader.initializeClass(receiver.getMetaClassReference());
+            CodeExecutionEngine engine = new CodeExecutionEngine();
+            engine.ignite(receiver.getMetaClassReference(), loader);
+            engine.executeMethod(receiver, methodName);
+        });
+    }
+
+    public void run(String className, String methodName) throws Throwable {
+        start("main", className, methodName, 1).await();
+    }
+
+    private Task start(String threadName, GuestAction action) {
+        YThread thread = new YThread(threadName, vm);
+        Task task = new Task();
+        thread.runTask(() -> {
+            try {
+                YClassLoader loader = new YClassLoader();
+                loader.associateThread(thread);
+                action.run(loader);
+            } catch (Throwable e) {
+                task.failure = e;
+            } finally {
+                task.done = true;
+            }
+        });
+        task.hostThread = thread.hostThread();
+        return task;
+    }
+
+    private interface GuestAction {
+        void run(YClassLoader loader) throws Exception;
+    }
+
+    public static class Task {
+        private Thread hostThread;
+        private volatile Throwable failure;
+        private volatile boolean done;
+
+        public void await() throws Throwable {
+            hostThread.join(TIMEOUT_MILLIS);
+            if (!done) {
+                throw new AssertionError(hostThread.getName() + " doesn't end within " + TIMEOUT_MILLIS + "ms");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
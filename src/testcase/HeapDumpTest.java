@@ -0,0 +1,64 @@
+package testcase;
+
+import runtime.RuntimeVM;
+import runtime.YThread;
+import runtime.meta.MetaClass;
+import runtime.meta.MetaClassField;
+import runtime.meta.StaticFields;
+import ycloader.YClassLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/***************************************************************
+ *  unlike the other test cases it runs on the host. It dumps a
+ *  heap holding java/lang/Object, which names itself as its super
+ *  class, and a string whose class walks up to it, and checks the
+ *  walks up the hierarchy end, i.e. the dump finishes
+ *
+ ***************************************************************/
+public class HeapDumpTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        RuntimeVM vm = new RuntimeVM();
+        YThread thread = new YThread("main", vm);
+
+        MetaClass object = new MetaClass();
+        object.qualifiedClassName = "java/lang/Object";
+        object.superClassName = "java/lang/Object";
+        object.classLoader = YClassLoader.class;
+        object.fields = new MetaClassField(object);
+        object.staticFields(new StaticFields(new ArrayList<>()));
+        vm.methodScope().addMetaClass(object);
+        vm.heap().internString(thread, "dump");
+
+        Path path = Files.createTempFile("yvm", ".hprof");
+        Throwable[] failure = new Throwable[1];
+        Thread dumper = new Thread(() -> {
+            try {
+                vm.heap().dumpHeap(path);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        });
+        dumper.setDaemon(true);
+        dumper.start();
+        dumper.join(TIMEOUT_MILLIS);
+        try {
+            if (dumper.isAlive()) {
+                throw new AssertionError("heap dump doesn't end within " + TIMEOUT_MILLIS + "ms");
+            }
+            if (failure[0] != null) {
+                throw new AssertionError("heap dump failed", failure[0]);
+            }
+            if (Files.size(path) == 0) {
+                throw new AssertionError("heap dump is empty");
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+        System.out.println("HeapDumpTest passed");
+    }
+}
@@ -0,0 +1,75 @@
+package testcase;
+
+import common.Tuple4;
+import runtime.RuntimeVM;
+import runtime.YArray;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.gc.GCOptions;
+import runtime.meta.MetaClass;
+import runtime.meta.MetaClassField;
+import runtime.meta.StaticFields;
+import ycloader.YClassLoader;
+import ycloader.adt.attribute.Attribute;
+import yvm.constant.MetaClassConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***************************************************************
+ *  runs on the host. The heap is so small that allocating an int
+ *  array runs a full collection, which compacts the off-heap
+ *  region while the array is moved there but not in any space
+ *  yet. The array is then held by a static field, and another one
+ *  is allocated, the elements of the first array must be intact
+ *
+ ***************************************************************/
+public class OffHeapAllocationTest {
+    public static void main(String[] args) {
+        System.setProperty(GCOptions.OFF_HEAP, "true");
+        System.setProperty(GCOptions.OFF_HEAP_SIZE, "1k");
+        System.setProperty(GCOptions.YOUNG_SIZE, "8");
+        System.setProperty(GCOptions.TLAB_SIZE, "16");
+        System.setProperty(GCOptions.INITIAL_HEAP_SIZE, "1");
+        RuntimeVM vm = new RuntimeVM();
+        YThread thread = new YThread("main", vm);
+
+        List<Tuple4<String, String, Integer, Attribute[]>> held = new ArrayList<>();
+        held.add(new Tuple4<>("held", "[I", MetaClassConstant.Access.ACC_STATIC, null));
+        MetaClass holder = new MetaClass();
+        holder.qualifiedClassName = "testcase/Holder";
+        holder.superClassName = "java/lang/Object";
+        holder.classLoader = YClassLoader.class;
+        holder.fields = new MetaClassField(holder);
+        holder.staticFields(new StaticFields(held));
+        vm.methodScope().addMetaClass(holder);
+
+        YArray first = intArray(4, 1);
+        vm.heap().allocate(thread, first);
+        if (vm.heap().lastPhaseTimes() == null) {
+            throw new AssertionError("allocation doesn't run a collection");
+        }
+        if (!first.isOffHeap()) {
+            throw new AssertionError("int array is not moved off-heap");
+        }
+        holder.staticFields().set(0, first);
+        vm.heap().allocate(thread, intArray(4, 9));
+
+        for (int i = 0; i < first.getLength(); i++) {
+            int value = first.get(i).toInteger();
+            if (value != i + 1) {
+                throw new AssertionError("element " + i + " is " + value + ", expected " + (i + 1));
+            }
+        }
+        System.out.println("OffHeapAllocationTest passed");
+    }
+
+    private static YArray intArray(int length, int first) {
+        YArray array = new YArray(length);
+        array.arrayType("[I");
+        for (int i = 0; i < length; i++) {
+            array.set(i, YObject.derivedFrom(first + i));
+        }
+        return array;
+    }
+}
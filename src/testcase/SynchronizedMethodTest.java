@@ -0,0 +1,64 @@
+package testcase;
+
+import runtime.meta.MetaClass;
+import runtime.meta.StaticFields;
+
+/***************************************************************
+ *  runs on the host. Two guest threads call one synchronized
+ *  method of SyncCounter at the same time, the method notes when
+ *  another thread is inside it and updates the count with a gap
+ *  between read and write, so neither an overlap nor a lost
+ *  update may show up if the method holds its monitor
+ *
+ ***************************************************************/
+public class SynchronizedMethodTest {
+    private static final int ROUNDS = 300;
+
+    public static void main(String[] args) throws Throwable {
+        GuestRunner runner = new GuestRunner();
+        MetaClass counter = runner.load("testcase/SyncCounter");
+
+        GuestRunner.Task first = runner.start("first", "testcase/SyncCounter", "increment", ROUNDS);
+        GuestRunner.Task second = runner.start("second", "testcase/SyncCounter", "increment", ROUNDS);
+        first.await();
+        second.await();
+
+        StaticFields fields = counter.staticFields();
+        int count = (int) fields.get(slot(fields, "count")).primitiveValue();
+        int overlaps = (int) fields.get(slot(fields, "overlaps")).primitiveValue();
+        if (overlaps != 0) {
+            throw new AssertionError("two threads are inside the synchronized method at the same time");
+        }
+        if (count != 2 * ROUNDS) {
+            throw new AssertionError("count is " + count + ", expected " + 2 * ROUNDS);
+        }
+        System.out.println("SynchronizedMethodTest passed");
+    }
+
+    static int slot(StaticFields fields, String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.name(i).equals(name)) {
+                return i;
+            }
+        }
+        throw new AssertionError("no static field " + name);
+    }
+}
+
+class SyncCounter {
+    static int count;
+    static int inside;
+    static int overlaps;
+
+    static synchronized void increment() {
+        inside++;
+        overlaps += inside - 1;
+        int c = count;
+        c = c + inside - inside;
+        c = c + inside - inside;
+        c = c + inside - inside;
+        c = c + inside - inside;
+        count = c + 1;
+        inside--;
+    }
+}
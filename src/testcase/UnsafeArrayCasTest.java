@@ -0,0 +1,87 @@
+package testcase;
+
+import runtime.RuntimeVM;
+import runtime.YArray;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.rtexception.VMExecutionException;
+import yvm.exec.NativeMethods;
+
+/***************************************************************
+ *  runs on the host. Calls the sun/misc/Unsafe intrinsics on array
+ *  slots as guest code would, with arguments in pop order. A CAS
+ *  succeeds only if the slot holds the expected value, two host
+ *  threads incrementing one int slot by CAS loops lose no update,
+ *  and an offset beyond the array is rejected
+ *
+ ***************************************************************/
+public class UnsafeArrayCasTest {
+    private static final String UNSAFE = "sun/misc/Unsafe";
+    private static final int ROUNDS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        RuntimeVM vm = new RuntimeVM();
+        YThread thread = new YThread("main", vm);
+        NativeMethods.NativeMethod casInt = NativeMethods.find(UNSAFE, "compareAndSwapInt",
+                "(Ljava/lang/Object;JII)Z");
+        NativeMethods.NativeMethod casObject = NativeMethods.find(UNSAFE, "compareAndSwapObject",
+                "(Ljava/lang/Object;JLjava/lang/Object;Ljava/lang/Object;)Z");
+
+        YArray ints = new YArray(2);
+        ints.arrayType("[I");
+        ints.set(0, YObject.derivedFrom(0));
+        ints.set(1, YObject.derivedFrom(7));
+        check(cas(casInt, thread, ints, 1, YObject.derivedFrom(7), YObject.derivedFrom(8)),
+                "compareAndSwapInt fails on the expected value");
+        check(!cas(casInt, thread, ints, 1, YObject.derivedFrom(7), YObject.derivedFrom(9)),
+                "compareAndSwapInt succeeds on a stale value");
+        check(ints.get(1).toInteger() == 8, "int slot is " + ints.get(1).toInteger() + ", expected 8");
+
+        Thread[] incrementers = new Thread[2];
+        for (int i = 0; i < incrementers.length; i++) {
+            incrementers[i] = new Thread(() -> {
+                for (int round = 0; round < ROUNDS; round++) {
+                    int value;
+                    do {
+                        value = ints.getSlotVolatile(0).toInteger();
+                    } while (!cas(casInt, thread, ints, 0, YObject.derivedFrom(value), YObject.derivedFrom(value + 1)));
+                }
+            });
+            incrementers[i].start();
+        }
+        for (Thread incrementer : incrementers) {
+            incrementer.join();
+        }
+        int count = ints.get(0).toInteger();
+        check(count == 2 * ROUNDS, "int slot is " + count + " after CAS loops, expected " + 2 * ROUNDS);
+
+        YArray objects = new YArray(1);
+        YObject first = new YArray(0);
+        YObject second = new YArray(0);
+        objects.set(0, first);
+        check(!cas(casObject, thread, objects, 0, second, second),
+                "compareAndSwapObject succeeds on another reference");
+        check(cas(casObject, thread, objects, 0, first, second),
+                "compareAndSwapObject fails on the expected reference");
+        check(objects.get(0) == second, "object slot is not swapped");
+
+        try {
+            cas(casInt, thread, ints, 2, YObject.derivedFrom(0), YObject.derivedFrom(1));
+            throw new AssertionError("compareAndSwapInt accepts an offset beyond the array");
+        } catch (VMExecutionException expected) {
+        }
+        System.out.println("UnsafeArrayCasTest passed");
+    }
+
+    private static boolean cas(NativeMethods.NativeMethod method, YThread thread, YObject o, long offset,
+                               YObject expected, YObject x) {
+        YObject[] args = {x, expected, YObject.derivedFrom(offset), o};
+        return method.invoke(thread, null, args).toBoolean();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
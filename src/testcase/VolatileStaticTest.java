@@ -0,0 +1,69 @@
+package testcase;
+
+import runtime.meta.MetaClass;
+import runtime.meta.StaticFields;
+
+/***************************************************************
+ *  runs on the host. One guest thread publishes values through
+ *  volatile static fields of Flags, another one copies them into
+ *  plain static fields. The volatile slots must be flagged, and
+ *  boolean and char fields, including a ConstantValue, must read
+ *  back as ints as the operand stack holds them
+ *
+ ***************************************************************/
+public class VolatileStaticTest {
+    public static void main(String[] args) throws Throwable {
+        GuestRunner runner = new GuestRunner();
+        MetaClass flags = runner.load("testcase/Flags");
+        StaticFields fields = flags.staticFields();
+        for (String name : new String[]{"published", "ready", "letter"}) {
+            if (!fields.isVolatile(SynchronizedMethodTest.slot(fields, name))) {
+                throw new AssertionError(name + " is not volatile");
+            }
+        }
+        if (fields.isVolatile(SynchronizedMethodTest.slot(fields, "seenValue"))) {
+            throw new AssertionError("seenValue is volatile");
+        }
+
+        runner.start("writer", "testcase/Flags", "publish", 1).await();
+        runner.start("reader", "testcase/Flags", "read", 1).await();
+
+        expect(fields, "enabled", 1);
+        expect(fields, "published", 42);
+        expect(fields, "ready", 1);
+        expect(fields, "letter", 'y');
+        expect(fields, "seenReady", 1);
+        expect(fields, "seenValue", 42);
+        expect(fields, "seenLetter", 'y');
+        System.out.println("VolatileStaticTest passed");
+    }
+
+    private static void expect(StaticFields fields, String name, int expected) {
+        Object value = fields.get(SynchronizedMethodTest.slot(fields, name)).primitiveValue();
+        if (!Integer.valueOf(expected).equals(value)) {
+            throw new AssertionError(name + " is " + value + ", expected " + expected);
+        }
+    }
+}
+
+class Flags {
+    static final boolean enabled = true;
+    static volatile int published;
+    static volatile boolean ready;
+    static volatile char letter;
+    static boolean seenReady;
+    static int seenValue;
+    static char seenLetter;
+
+    static void publish() {
+        published = 42;
+        letter = 'y';
+        ready = true;
+    }
+
+    static void read() {
+        seenReady = ready;
+        seenValue = published;
+        seenLetter = letter;
+    }
+}
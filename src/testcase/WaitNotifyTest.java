@@ -0,0 +1,63 @@
+package testcase;
+
+import runtime.YObject;
+import runtime.meta.MetaClass;
+import runtime.meta.StaticFields;
+
+/***************************************************************
+ *  runs on the host. A guest thread waits in a synchronized method
+ *  of a Mailbox, then another one enters a synchronized method of
+ *  the same Mailbox, which it can only do once the waiter released
+ *  the monitor, stores a message and notifies. The waiter must
+ *  wake up holding the monitor again and see the message
+ *
+ ***************************************************************/
+public class WaitNotifyTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    public static void main(String[] args) throws Throwable {
+        GuestRunner runner = new GuestRunner();
+        MetaClass mailbox = runner.load("testcase/Mailbox");
+        YObject box = new YObject(mailbox);
+        StaticFields fields = mailbox.staticFields();
+
+        GuestRunner.Task taker = runner.start("taker", box, "take");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (value(fields, "waiting") == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("taker doesn't enter the mailbox within " + TIMEOUT_MILLIS + "ms");
+            }
+            Thread.sleep(10);
+        }
+        GuestRunner.Task putter = runner.start("putter", box, "put");
+        putter.await();
+        taker.await();
+
+        if (value(fields, "received") != 42) {
+            throw new AssertionError("taker received " + value(fields, "received") + ", expected 42");
+        }
+        System.out.println("WaitNotifyTest passed");
+    }
+
+    private static int value(StaticFields fields, String name) {
+        YObject value = fields.get(SynchronizedMethodTest.slot(fields, name));
+        return (int) value.primitiveValue();
+    }
+}
+
+class Mailbox {
+    static int waiting;
+    static int message;
+    static int received;
+
+    synchronized void take() throws InterruptedException {
+        waiting = 1;
+        wait(0L);
+        received = message;
+    }
+
+    synchronized void put() {
+        message = 42;
+        notify();
+    }
+}
@@ -8,6 +8,7 @@ import ycloader.exception.ClassLoadingException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -29,11 +30,12 @@ class RTSearchXMLParser {
         DocumentBuilder db = null;
         try {
             db = dbf.newDocumentBuilder();
-            document = db.parse(RT_SEARCH_LIST_XML);
+            document = db.parse(new File(System.getProperty(YClassLoader.RT_SEARCH_LIST, RT_SEARCH_LIST_XML)));
             root = document.getChildNodes();
             isReady = true;
         } catch (ParserConfigurationException | SAXException | IOException e) {
-            throw new ClassLoadingException("config file not found (./conf/rtsearch.xml)");
+            throw new ClassLoadingException("config file not found ("
+                    + System.getProperty(YClassLoader.RT_SEARCH_LIST, RT_SEARCH_LIST_XML) + ")");
         }
     }
 
@@ -4,6 +4,7 @@ import common.Tuple6;
 import runtime.YMethodScope;
 import runtime.YThread;
 import runtime.meta.*;
+import runtime.safepoint.Safepoint;
 import ycloader.adt.u2;
 import ycloader.adt.u4;
 import ycloader.constant.ClassAccessProperty;
@@ -33,6 +34,15 @@ import java.util.HashMap;
  */
 
 public class YClassLoader {
+    /***************************************************************
+     *  host system property naming the search path config, it's
+     *  ./conf/rtsearch.xml by default, e.g.
+     *
+     *      -Dyvm.rtsearch=/path/to/rtsearch.xml
+     *
+     ***************************************************************/
+    public static final String RT_SEARCH_LIST = "yvm.rtsearch";
+
     private ClassFileReader reader;
 
     private YThread threadRef;
@@ -117,10 +127,93 @@ public class YClassLoader {
         return m;
     }
 
+    /***************************************************************
+     *  super classes are loaded by now, interfaces the class declares
+     *  are loaded here, and the class is linked with all of them. Its
+     *  <clinit> doesn't run until its first active use, see
+     *  initializeClass()
+     *
+     ***************************************************************/
+    public void completeLinking(MetaClass meta) throws ClassInitializingException {
+        loadInterfaces(meta);
+        VTable.link(meta, threadRef.runtimeVM().methodScope());
+        ITable.link(meta, threadRef.runtimeVM().methodScope());
+    }
+
+    /***************************************************************
+     *  initialize a linked class as JVMS 5.5 does, its super class is
+     *  initialized first, then String constants are stored and its
+     *  <clinit> runs. A thread waits while another one initializes
+     *  the class, the thread initializing it returns at once if it
+     *  comes back recursively. A class whose <clinit> failed stays
+     *  erroneous and can't be initialized again
+     *
+     ***************************************************************/
     public void initializeClass(MetaClass meta) throws ClassInitializingException {
-        CodeExecutionEngine engine = new CodeExecutionEngine();
-        engine.ignite(meta,YClassLoader.this);
-        engine.executeMethod("<clinit>");
+        if (meta.isInitialized()) {
+            return;
+        }
+        Safepoint safepoint = threadRef.runtimeVM().safepoint();
+        synchronized (meta) {
+            while (meta.initializationState() == MetaClass.BEING_INITIALIZED && meta.initializingThread() != threadRef) {
+                safepoint.enterSafeRegion(threadRef);
+                try {
+                    meta.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClassInitializingException("interrupted while waiting for initialization of " + meta.qualifiedClassName);
+                } finally {
+                    safepoint.leaveSafeRegion(threadRef);
+                }
+            }
+            switch (meta.initializationState()) {
+                case MetaClass.BEING_INITIALIZED:
+                case MetaClass.INITIALIZED:
+                    return;
+                case MetaClass.ERRONEOUS:
+                    throw new ClassInitializingException("class " + meta.qualifiedClassName + " is in erroneous state");
+                default:
+                    meta.initializationState(MetaClass.BEING_INITIALIZED, threadRef);
+                    break;
+            }
+        }
+
+        int state = MetaClass.ERRONEOUS;
+        try {
+            YMethodScope methodScope = threadRef.runtimeVM().methodScope();
+            if (!meta.isInterface() && meta.hasSuperClass()) {
+                MetaClass superClass = methodScope.getMetaClass(meta.superClassName, meta.classLoader);
+                if (superClass != null) {
+                    initializeClass(superClass);
+                }
+            }
+            meta.staticFields().initializeStrings(meta.constantPool,
+                    literal -> threadRef.runtimeVM().heap().internString(threadRef, literal));
+            CodeExecutionEngine engine = new CodeExecutionEngine();
+            engine.ignite(meta, YClassLoader.this);
+            engine.executeMethod("<clinit>");
+            state = MetaClass.INITIALIZED;
+        } catch (RuntimeException e) {
+            throw new ClassInitializingException("<clinit> of " + meta.qualifiedClassName + " failed", e);
+        } finally {
+            synchronized (meta) {
+                meta.initializationState(state, null);
+                meta.notifyAll();
+            }
+        }
+    }
+
+    private void loadInterfaces(MetaClass meta) throws ClassInitializingException {
+        if (meta.interfaces == null) {
+            return;
+        }
+        for (String name : meta.interfaces.getInterfaceNames()) {
+            try {
+                loadInheritanceChain(name);
+            } catch (ClassLoadingException | ClassLinkingException e) {
+                throw new ClassInitializingException("can not load interface " + name + " of " + meta.qualifiedClassName);
+            }
+        }
     }
 
     private void verify(Tuple6<ConstantPoolObject, InterfacesObject,
@@ -164,7 +257,7 @@ public class YClassLoader {
         meta.fields = resolvedField;
         //resolvedField.debug();
 
-        MetaClassMethod resolvedMethod = new MetaClassMethod();
+        MetaClassMethod resolvedMethod = new MetaClassMethod(meta);
         resolvedMethod.resolve(method, cp);
         meta.methods = resolvedMethod;
         //resolvedMethod.debug();
@@ -172,6 +265,7 @@ public class YClassLoader {
         MetaClassConstantPool resolvedConstantPool = new MetaClassConstantPool();
         resolvedConstantPool.resolve(cp);
         meta.constantPool = resolvedConstantPool;
+        meta.staticFields().prepare(resolvedConstantPool);
         //resolvedConstantPool.debug(cp.getClassName(bundle.get6Placeholder()[1].getValue()));
         return meta;
     }
@@ -190,7 +284,7 @@ public class YClassLoader {
                 loadInheritanceChain(meta.superClassName);
             }
 
-            this.initializeClass(meta);
+            this.completeLinking(meta);
         }
     }
 
@@ -206,7 +300,7 @@ public class YClassLoader {
                     MetaClass meta = linkClass(bundle);
                     threadRef.runtimeVM().methodScope().addMetaClass(meta);
                     loadInheritanceChain(meta.superClassName);
-                    initializeClass(meta);
+                    completeLinking(meta);
                 } catch (ClassLoadingException | ClassInitializingException | ClassLinkingException e) {
                     e.printStackTrace();
                 }
@@ -100,6 +100,16 @@ public class CodeAttribute extends Attribute {
         }
     }
 
+    /**
+     * attributes nested in code attribute, e.g. StackMapTable. Unknown
+     * attributes are skipped, their slots are null
+     *
+     * @return
+     */
+    public Attribute[] getAttributes() {
+        return attributes;
+    }
+
     @Override
     public int getActualBytes() {
         int res = 8;
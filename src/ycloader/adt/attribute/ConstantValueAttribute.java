@@ -6,7 +6,7 @@ import ycloader.adt.u2;
 import java.io.IOException;
 
 public class ConstantValueAttribute extends Attribute {
-    private u2 constantValueIndex;
+    public u2 constantValueIndex;
 
     public ConstantValueAttribute(ClassFileReader reader) {
         super(reader);
@@ -56,6 +56,10 @@ public class StackMapTableAttribute extends Attribute {
         }
     }
 
+    public ArrayList<StackMapFrame> getEntries() {
+        return entries;
+    }
+
     @Override
     @ExcludeFields
     public int getActualBytes() {
@@ -68,9 +72,9 @@ public class StackMapTableAttribute extends Attribute {
 
     //public descriptor used for stack map frame factory in other package
     public class SMF_AppendFrame implements StackMapFrame {
-        u1 frameType;    //range at [252,254]
-        u2 offsetDelta;
-        VerificationTypeInfo[] locals;   //length == frame_type - 251;
+        public u1 frameType;    //range at [252,254]
+        public u2 offsetDelta;
+        public VerificationTypeInfo[] locals;   //length == frame_type - 251;
 
 
         public SMF_AppendFrame(int n) {
@@ -99,8 +103,8 @@ public class StackMapTableAttribute extends Attribute {
     }
 
     public class SMF_ChopFrame implements StackMapFrame {
-        u1 frameType;    //range at [248,250]
-        u2 offsetDelta;
+        public u1 frameType;    //range at [248,250]
+        public u2 offsetDelta;
 
         public SMF_ChopFrame(int n) {
             frameType = new u1(n);
@@ -118,12 +122,12 @@ public class StackMapTableAttribute extends Attribute {
     }
 
     public class SMF_FullFrame implements StackMapFrame {
-        u1 frameType;    //range at 255
-        u2 offsetDelta;
+        public u1 frameType;    //range at 255
+        public u2 offsetDelta;
         u2 numberOfLocals;
-        VerificationTypeInfo[] locals;   //length == numberOfLocals
+        public VerificationTypeInfo[] locals;   //length == numberOfLocals
         u2 numberOfStackItems;
-        VerificationTypeInfo[] stack;    //length == numberOfStackItem
+        public VerificationTypeInfo[] stack;    //length == numberOfStackItem
 
         public SMF_FullFrame(int n) {
             frameType = new u1(n);
@@ -166,7 +170,7 @@ public class StackMapTableAttribute extends Attribute {
     }
 
     public class SMF_SameFrame implements StackMapFrame {
-        u1 frameType;    //range at [0,63]
+        public u1 frameType;    //range at [0,63]
 
         public SMF_SameFrame(int n) {
             frameType = new u1(n);
@@ -183,8 +187,8 @@ public class StackMapTableAttribute extends Attribute {
     }
 
     public class SMF_SameFrameExtended implements StackMapFrame {
-        u1 frameType;    //range at 251
-        u2 offsetDelta;
+        public u1 frameType;    //range at 251
+        public u2 offsetDelta;
 
         public SMF_SameFrameExtended(int n) {
             frameType = new u1(n);
@@ -202,8 +206,8 @@ public class StackMapTableAttribute extends Attribute {
     }
 
     public class SMF_SameLocals1StackItemFrame implements StackMapFrame {
-        u1 frameType;    //range at [64,127]
-        VerificationTypeInfo vti;
+        public u1 frameType;    //range at [64,127]
+        public VerificationTypeInfo vti;
 
         public SMF_SameLocals1StackItemFrame(int n) {
             frameType = new u1(n);
@@ -223,9 +227,9 @@ public class StackMapTableAttribute extends Attribute {
     }
 
     public class SMF_SameLocals1StackItemFrameExtended implements StackMapFrame {
-        u1 frameType;    //range at 247
-        u2 offsetDelta;
-        VerificationTypeInfo vti;
+        public u1 frameType;    //range at 247
+        public u2 offsetDelta;
+        public VerificationTypeInfo vti;
 
         public SMF_SameLocals1StackItemFrameExtended(int n) {
             frameType = new u1(n);
@@ -4,4 +4,8 @@ public class ClassInitializingException extends Exception {
     public ClassInitializingException(String message) {
         super(message);
     }
+
+    public ClassInitializingException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
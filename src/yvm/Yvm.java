@@ -39,6 +39,7 @@ public final class Yvm {
                 MetaClass meta = loader.linkClass(bundle);
                 runtimeVM.methodScope().addMetaClass(meta);
                 loader.loadInheritanceChain(meta.superClassName);
+                loader.completeLinking(meta);
                 loader.initializeClass(meta);
             } catch (ClassLinkingException | ClassLoadingException | ClassInitializingException e) {
                 e.printStackTrace();
@@ -0,0 +1,127 @@
+package yvm.adt;
+
+import common.Tuple6;
+import runtime.meta.MetaClass;
+import runtime.meta.MetaClassMethod;
+import ycloader.adt.u1;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/***************************************************************
+ *  inline cache of an invokevirtual/invokeinterface site.
+ *
+ *  It remembers the method selected for each receiver class seen
+ *  at the site, so a hit costs one class compare per entry instead
+ *  of a vtable or itable lookup. A site starts uninitialized, it's
+ *  monomorphic after its first call, polymorphic with up to
+ *  POLYMORPHIC_LIMIT classes and megamorphic after that, then the
+ *  cache is dropped and every call goes to the tables.
+ *
+ *  Entries are replaced as a whole, so threads running the same
+ *  method read them without locking.
+ *
+ ***************************************************************/
+public class InlineCache {
+    public static final int POLYMORPHIC_LIMIT = 4;
+
+    private static final Entry[] EMPTY = new Entry[0];
+    private static final LongAdder totalHits = new LongAdder();
+    private static final LongAdder totalMisses = new LongAdder();
+
+    private volatile Entry[] entries = EMPTY;
+    private volatile boolean megamorphic;
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+
+    /***************************************************************
+     *  method selected for receiver class, null if it's not cached
+     *
+     ***************************************************************/
+    public Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> lookup(MetaClass receiverClass) {
+        Entry[] cached = entries;
+        for (Entry entry : cached) {
+            if (entry.receiverClass == receiverClass) {
+                hits.increment();
+                totalHits.increment();
+                return entry.target;
+            }
+        }
+        misses.increment();
+        totalMisses.increment();
+        return null;
+    }
+
+    public synchronized void update(MetaClass receiverClass, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> target) {
+        if (megamorphic) {
+            return;
+        }
+        Entry[] cached = entries;
+        for (Entry entry : cached) {
+            if (entry.receiverClass == receiverClass) {
+                return;
+            }
+        }
+        if (cached.length == POLYMORPHIC_LIMIT) {
+            megamorphic = true;
+            entries = EMPTY;
+            return;
+        }
+        Entry[] grown = new Entry[cached.length + 1];
+        System.arraycopy(cached, 0, grown, 0, cached.length);
+        grown[cached.length] = new Entry(receiverClass, target);
+        entries = grown;
+    }
+
+    public String state() {
+        if (megamorphic) {
+            return "megamorphic";
+        }
+        switch (entries.length) {
+            case 0:
+                return "uninitialized";
+            case 1:
+                return "monomorphic";
+            default:
+                return "polymorphic";
+        }
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /***************************************************************
+     *  hits and misses of all sites
+     *
+     ***************************************************************/
+    public static long totalHits() {
+        return totalHits.sum();
+    }
+
+    public static long totalMisses() {
+        return totalMisses.sum();
+    }
+
+    private static class Entry {
+        private final MetaClass receiverClass;
+        private final Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> target;
+
+        Entry(MetaClass receiverClass, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> target) {
+            this.receiverClass = receiverClass;
+            this.target = target;
+        }
+    }
+}
@@ -215,6 +215,18 @@ public interface Mnemonic {
     int jsr_w = 201;
     //Reserved
     int breakpoint = 202;
+    //Quick, an instruction is rewritten into them by vm once its operand is resolved
+    int ldc_quick = 203;
+    int ldc_w_quick = 204;
+    int ldc2_w_quick = 205;
+    int getstatic_quick = 210;
+    int putstatic_quick = 211;
+    int invokevirtual_quick = 214;
+    int invokespecial_quick = 215;
+    int invokestatic_quick = 217;
+    int invokeinterface_quick = 218;
+    int new_quick = 221;
+    int checkcast_quick = 224;
     int impdep1 = 254;
     int impdep2 = 255;
 }
@@ -18,6 +18,8 @@ public class Opcode {
                     Integer,            //opcode value
                     Operand>>           //operand of related opcode
             opcodes;
+    private InlineCache[] inlineCaches;  //inline cache of each invoke site, indexed as opcodes
+    private Quickened[] quickened;      //quick form of each opcode, indexed as opcodes
 
     public Opcode(u1[] code) {
         codeRef = code;
@@ -687,12 +689,57 @@ public class Opcode {
                     throw new ClassInitializingException("unknown opcode found");
             }
         }
+        inlineCaches = new InlineCache[opcodes.size()];
+        quickened = new Quickened[opcodes.size()];
+        for (int k = 0; k < opcodes.size(); k++) {
+            int opcode = opcodes.get(k).get2Placeholder();
+            if (opcode == Mnemonic.invokevirtual || opcode == Mnemonic.invokeinterface) {
+                inlineCaches[k] = new InlineCache();
+            }
+        }
     }
 
     public ArrayList getOpcodes() {
         return opcodes;
     }
 
+    /***************************************************************
+     *  inline cache of the index-th opcode, null if it's not an
+     *  invokevirtual or invokeinterface
+     *
+     ***************************************************************/
+    public InlineCache inlineCache(int index) {
+        return inlineCaches[index];
+    }
+
+    public InlineCache[] inlineCaches() {
+        return inlineCaches;
+    }
+
+    /***************************************************************
+     *  quick form of the index-th opcode, null if it's not rewritten
+     *  yet
+     *
+     ***************************************************************/
+    public Quickened quickened(int index) {
+        return quickened[index];
+    }
+
+    /***************************************************************
+     *  rewrite the index-th opcode into its quick form after its
+     *  operand is resolved. Threads running the same method may race
+     *  to rewrite it, they resolve to the same thing so any of them
+     *  can win
+     *
+     ***************************************************************/
+    public void quicken(int index, int quickOpcode, Object resolved) {
+        quicken(index, quickOpcode, resolved, 0);
+    }
+
+    public void quicken(int index, int quickOpcode, Object resolved, int parameterCount) {
+        quickened[index] = new Quickened(quickOpcode, resolved, parameterCount);
+    }
+
     public void debug(String thisClassName) {
         System.out.println("#" + thisClassName + " Opcodes#");
         opcodes.forEach((Elem) -> {
@@ -0,0 +1,49 @@
+package yvm.adt;
+
+/***************************************************************
+ *  quick form of an instruction, i.e. a quick opcode with the
+ *  operand its original instruction is resolved to, it may be
+ *      ldc_quick               constant
+ *      getstatic_quick         class and slot of static variable
+ *      putstatic_quick         class and slot of static variable
+ *      invokestatic_quick      method
+ *      invokespecial_quick     method
+ *      invokevirtual_quick     vtable index
+ *      invokeinterface_quick   interface method
+ *      new_quick               class
+ *      checkcast_quick         class
+ *  parameterCount is the number of arguments of invoke_quick ones.
+ *
+ *  It's immutable, so a thread either sees all of it or doesn't
+ *  see it and resolves the original instruction again
+ *
+ ***************************************************************/
+public final class Quickened {
+    private final int opcode;
+    private final Object resolved;
+    private final int parameterCount;
+
+    Quickened(int opcode, Object resolved, int parameterCount) {
+        this.opcode = opcode;
+        this.resolved = resolved;
+        this.parameterCount = parameterCount;
+    }
+
+    public int opcode() {
+        return opcode;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T resolved() {
+        return (T) resolved;
+    }
+
+    public int parameterCount() {
+        return parameterCount;
+    }
+
+    @Override
+    public String toString() {
+        return opcode + " " + resolved;
+    }
+}
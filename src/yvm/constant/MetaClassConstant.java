@@ -3,6 +3,7 @@ package yvm.constant;
 public class MetaClassConstant {
     public static class Access {
         public static final int ACC_STATIC = 0x0008;
+        public static final int ACC_VOLATILE = 0x0040;
         public static final int ACC_INTERFACE = 0x0200;
     }
 }
@@ -9,4 +9,26 @@ public class NewArrayType {
     public static final int T_SHORT = 9;
     public static final int T_INT = 10;
     public static final int T_LONG = 11;
+
+    public static String arrayType(int aType) {
+        switch (aType) {
+            case T_BOOLEAN:
+                return "[Z";
+            case T_CHAR:
+                return "[C";
+            case T_FLOAT:
+                return "[F";
+            case T_DOUBLE:
+                return "[D";
+            case T_BYTE:
+                return "[B";
+            case T_SHORT:
+                return "[S";
+            case T_INT:
+                return "[I";
+            case T_LONG:
+                return "[J";
+        }
+        return null;
+    }
 }
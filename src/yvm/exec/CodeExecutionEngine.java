@@ -2,14 +2,20 @@ package yvm.exec;
 
 import common.*;
 import runtime.*;
+import runtime.gc.Arena;
+import runtime.meta.ITable;
 import runtime.meta.MetaClass;
 import runtime.meta.MetaClassConstantPool;
 import runtime.meta.MetaClassMethod;
+import runtime.meta.ReferenceMap;
+import runtime.meta.StaticFields;
+import runtime.meta.VTable;
+import runtime.monitor.Monitors;
 import runtime.rtexception.VMExecutionException;
+import runtime.safepoint.Safepoint;
 import runtime.ystack.YStack;
 import runtime.ystack.YStackFrame;
 import ycloader.YClassLoader;
-import ycloader.adt.attribute.Attribute;
 import ycloader.adt.u1;
 import ycloader.constant.ClassAccessProperty;
 import ycloader.exception.ClassInitializingException;
@@ -21,11 +27,8 @@ import yvm.auxil.Peel;
 import yvm.constant.NewArrayType;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 public final class CodeExecutionEngine {
     @ValueRequired
@@ -36,8 +39,9 @@ public final class CodeExecutionEngine {
     private YMethodScope methodScopeRef;
     @ValueRequired
     private YClassLoader classLoader;
+    private Safepoint safepoint;
     private boolean ignited;
-    private Lock methodLock;
+    private Monitors monitors;
     private ConditionMachine conds;
 
     public CodeExecutionEngine() {
@@ -50,6 +54,8 @@ public final class CodeExecutionEngine {
         this.metaClassRef = metaClassInfo;
         this.methodScopeRef = loader.getStartupThread().runtimeVM().methodScope();
         this.thread = loader.getStartupThread();
+        this.safepoint = thread.runtimeVM().safepoint();
+        this.monitors = thread.runtimeVM().monitors();
         ignited = true;
     }
 
@@ -81,12 +87,48 @@ public final class CodeExecutionEngine {
                 throw new VMExecutionException("method " + methodName + " not found");
             }
         }
-        invokeMethod(null, methodBundle);
+        execute(null, methodBundle);
+    }
+
+    /***************************************************************
+     *  execute an instance method of receiver, it's looked up from
+     *  the class of receiver up to its super classes. It's the bottom
+     *  frame of a guest thread, e.g. run() of a started Thread
+     *
+     ***************************************************************/
+    @SuppressWarnings("unchecked")
+    public void executeMethod(YObject receiver, String methodName) {
+        if (!ignited) {
+            throw new VMExecutionException("code execution engine is not ready");
+        }
+        Tuple6 methodBundle = null;
+        for (MetaClass c = receiver.getMetaClassReference(); c != null && methodBundle == null; ) {
+            methodBundle = c.methods.findMethod(methodName);
+            c = c.hasSuperClass() ? methodScopeRef.getMetaClass(c.superClassName, classLoader.getClass()) : null;
+        }
+        if (Predicate.isNull(methodBundle)) {
+            throw new VMExecutionException("method " + methodName + " not found");
+        }
+        execute(receiver, methodBundle);
+    }
+
+    private void execute(YObject receiver, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> methodBundle) {
+        safepoint.enterGuest(thread);
+        Arena arena = runtimeHeap().openArena(thread);
+        try {
+            invokeMethod(receiver, null, methodBundle);
+        } finally {
+            if (arena != null) {
+                runtimeHeap().closeArena(thread, arena);
+            }
+            safepoint.leaveGuest(thread);
+        }
 
     }
 
     @SuppressWarnings({"unchecked","unused"})
-    private void codeExecution(Opcode op, ArrayList<MetaClassMethod.ExceptionTable> exceptionTable, boolean isSynchronized) {
+    private void codeExecution(Opcode op, ArrayList<MetaClassMethod.ExceptionTable> exceptionTable) {
         /***************************************************************
          *  get current thread stackRef reference, and create a convenient
          *  operator class <Auxiliary> to execute push/pop of
@@ -94,6 +136,7 @@ public final class CodeExecutionEngine {
          *
          ***************************************************************/
         YStack stack = thread.runtimeThread().stack();
+        YStackFrame frame = stack.currentFrame();
         Auxiliary dg = new Auxiliary();
 
 
@@ -108,16 +151,6 @@ public final class CodeExecutionEngine {
                         Operand>>                       //operand of this opcode
                 opcodes = op.getOpcodes();              //
 
-        /***************************************************************
-         *  create a critical section if it's a <synchronized> method
-         *  and lock this region using a reentrant lock
-         *
-         ***************************************************************/
-        if (isSynchronized) {
-            methodLock = new ReentrantLock();
-            methodLock.lock();
-        }
-
         /***************************************************************
          *  create convenient class to handle exception table of this
          *  method
@@ -129,13 +162,30 @@ public final class CodeExecutionEngine {
         /***************************************************************
          *  the real code execution part.
          *
+         *  A branch sets i to its target, if the target is not after
+         *  the previous instruction it's a backward branch, and a
+         *  safepoint is polled there as well as at method returns
+         *
          ***************************************************************/
-
+        int previousI = -1;
         for (int i = 0; i < opcodes.size(); i++) {
             Tuple3 singleOpcode = opcodes.get(i);
             int programCount = (Integer) singleOpcode.get1Placeholder();
             thread.runtimeThread().pc(programCount);
-            switch ((Integer) singleOpcode.get2Placeholder()) {
+            frame.pc(programCount);
+            if (i <= previousI) {
+                safepoint.poll(thread);
+            }
+            previousI = i;
+
+            /***************************************************************
+             *  an instruction whose operand has been resolved runs in its
+             *  quick form, it's rewritten by the first execution which
+             *  resolves the operand successfully
+             *
+             ***************************************************************/
+            Quickened quick = op.quickened(i);
+            switch (quick != null ? quick.opcode() : (Integer) singleOpcode.get2Placeholder()) {
 
                 //Load reference from array
                 case Mnemonic.aaload: {
@@ -155,6 +205,7 @@ public final class CodeExecutionEngine {
                     int index = dg.popInt();
                     YArray array = dg.popArray();
 
+                    runtimeHeap().writeBarrier(thread, array, array.get(index), value);
                     array.set(index, value);
                 }
                 break;
@@ -210,18 +261,21 @@ public final class CodeExecutionEngine {
                     int index = (indexByte1 << 8) |
                             indexByte2;
 
-                    HashMap<Integer, String> classes = constantPool().getClassNames();
-                    loadClassIfAbsent(classes.get(index));
+                    String className = constantPool().findInClass(index);
+                    loadClassIfAbsent(className);
 
                     YArray array = new YArray(count);
+                    array.arrayType(Predicate.isArray(className)
+                            ? "[" + className
+                            : "[L" + className + ";");
                     for (int t = 0; t < count; t++) {
-                        YObject object = new YObject(methodScopeRef.getMetaClass(classes.get(index), classLoader.getClass()));
+                        YObject object = new YObject(methodScopeRef.getMetaClass(className, classLoader.getClass()));
                         //object.initiateFields(classLoader);
                         array.set(t, object);
                     }
 
                     //add to runtime virtual machine heap section
-                    runtimeHeap().addToArrayArea(array);
+                    runtimeHeap().allocate(thread, array);
                     //push reference to operand stackRef
                     dg.pushArray(array);
 
@@ -231,9 +285,9 @@ public final class CodeExecutionEngine {
 
                 //Return reference from method
                 case Mnemonic.areturn: {
+                    safepoint.poll(thread);
                     YObject objectRef = dg.pop();
 
-                    Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
                     //todo:check if the objectRef is corresponding to method return type;[enhance]
 
                     destroyStackFrame();
@@ -316,7 +370,6 @@ public final class CodeExecutionEngine {
                                 dg.push(object);
 
                                 stack.popFrame();
-                                Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
                                 dg.push(object);
                                 handleThrow();
                             }
@@ -385,20 +438,23 @@ public final class CodeExecutionEngine {
                             indexByte2;
 
                     if (object != null) {
-                        String resolveClass = constantPool().findInClass(index);
-                        loadClassIfAbsent(resolveClass);
-                        MetaClass metaClass = methodScopeRef.getMetaClass(resolveClass, classLoader.getClass());
-                        try {
-                            recursiveMatch(object.getMetaClassReference(), metaClass, classLoader.getClass());
-                        } catch (RecursiveMatchException e) {
-                            throw new ClassCastException("the object can not match the given type");
-                        }
+                        MetaClass metaClass = resolveClass(index);
+                        op.quicken(i, Mnemonic.checkcast_quick, metaClass);
+                        checkCast(object, metaClass);
                     } else {
                         //DO NOTHING
                     }
                 }
                 break;
 
+                case Mnemonic.checkcast_quick: {
+                    YObject object = dg.pop();
+                    if (object != null) {
+                        checkCast(object, quick.resolved());
+                    }
+                }
+                break;
+
                 case Mnemonic.d2f: {
                     double value = dg.popDouble();
                     dg.push(YObject.derivedFrom(value));
@@ -524,9 +580,9 @@ public final class CodeExecutionEngine {
 
                 //Return double from method
                 case Mnemonic.dreturn:{
+                    safepoint.poll(thread);
                     double value = dg.popDouble();
 
-                    Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
                     //todo:check if the objectRef is corresponding to method return type;[enhance]
                     destroyStackFrame();
                     stack.currentFrame().pushOperand(YObject.derivedFrom(value));
@@ -818,9 +874,9 @@ public final class CodeExecutionEngine {
 
                 //Return float from method
                 case Mnemonic.freturn:{
+                    safepoint.poll(thread);
                     float value = dg.popFloat();
 
-                    Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
                     //todo:check if the objectRef is corresponding to method return type;[enhance]
                     destroyStackFrame();
                     stack.currentFrame().pushOperand(YObject.derivedFrom(value));
@@ -887,12 +943,18 @@ public final class CodeExecutionEngine {
                     int indexByte2 = dg.get1FromGenericOperand(singleOpcode);
                     int index = (indexByte1 << 8) | indexByte2;
 
-                    YObject staticVar = metaClassRef.getStaticVariable().get(index).get5Placeholder();
-                    if (!staticVar.isInitialized()) {
-                        staticVar.initiateFields(classLoader);
+                    StaticFields.FieldRef ref = resolveStaticField(index);
+                    if (initializeClass(ref.owner())) {
+                        op.quicken(i, Mnemonic.getstatic_quick, ref);
                     }
 
-                    dg.push(staticVar);
+                    dg.push(ref.owner().staticFields().get(ref.slot()));
+                }
+                break;
+
+                case Mnemonic.getstatic_quick: {
+                    StaticFields.FieldRef ref = quick.resolved();
+                    dg.push(ref.owner().staticFields().get(ref.slot()));
                 }
                 break;
 
@@ -1407,79 +1469,35 @@ public final class CodeExecutionEngine {
 
                     String symbolicReferenceBelongingClassName = symbolicReference.get1Placeholder().toString();
                     String methodName = symbolicReference.get2Placeholder().toString();
-
-                    loadClassIfAbsent(symbolicReferenceBelongingClassName);
-
-                    Tuple6<String,                                                   //method name
-                            String,                                                  //method descriptor
-                            u1[],                                                    //method codes
-                            MetaClassMethod.StackRequirement,                        //stackRef requirement for this method
-                            ArrayList<MetaClassMethod.ExceptionTable>,               //method exception tables,they are differ from checked exception in function signature
-                            MetaClassMethod.MethodExtension>                         //method related attributes,it would be use for future vm version,there just ignore them
-                            methodBundle = methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass()).methods.findMethod(methodName);
-                    if (Predicate.isNull(methodBundle) || Predicate.strNotEqual(methodBundle.get1Placeholder(), methodName)) {
-                        //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
-                        throw new VMExecutionException("method " + methodName + "invocation can not continue");
-                    }
-
-                    boolean isProtected = methodBundle.get6Placeholder().isProtected;
-                    boolean isSynchronizedMethod = methodBundle.get6Placeholder().isSynchronized;
-                    boolean isNative = methodBundle.get6Placeholder().isNative;
-
-                    String methodDescriptor = methodBundle.get2Placeholder();
-                    ArrayList<String> methodReturnType = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[1]);
-                    ArrayList<String> methodParameter = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]);
-
-                    YObject[] args = new YObject[methodParameter.size()];
-                    for (int f = 0; f < methodParameter.size(); f++) {
-                        args[f] = dg.pop();
-                        //todo:check if they are corresponding to method parameter type and descriptor
+                    String methodDescriptor = symbolicReference.get3Placeholder().toString();
+
+                    /***************************************************************
+                     *  the method ref is resolved to the interface declaring the
+                     *  method and its index there once, then the target is selected
+                     *  from the inline cache of the site or the itable of the
+                     *  receiver class
+                     *
+                     ***************************************************************/
+                    ITable.InterfaceMethod interfaceMethod = constantPool().interfaceMethod(index);
+                    if (interfaceMethod == null) {
+                        loadClassIfAbsent(symbolicReferenceBelongingClassName);
+                        MetaClass resolvedInterface = methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass());
+                        interfaceMethod = ITable.resolve(resolvedInterface, methodName, methodDescriptor, methodScopeRef);
+                        if (interfaceMethod == null) {
+                            //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
+                            throw new VMExecutionException("method " + methodName + "invocation can not continue");
+                        }
+                        constantPool().interfaceMethod(index, interfaceMethod);
                     }
-                    YObject objectRef = dg.pop();
 
+                    int parameterCount = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]).size();
+                    op.quicken(i, Mnemonic.invokeinterface_quick, interfaceMethod, parameterCount);
+                    invokeInterface(dg, op.inlineCache(i), interfaceMethod, parameterCount);
+                }
+                break;
 
-                    Tuple6<                                             //
-                            String,                                     //method name
-                            String,                                     //method descriptor
-                            u1[],                                       //method codes
-                            MetaClassMethod.StackRequirement,           //stackRef requirement for this method
-                            ArrayList<MetaClassMethod.ExceptionTable>,  //method exception tables,they are differ from checked exception in function signature
-                            MetaClassMethod.MethodExtension             //it would be change frequently, so there we create a flexible class to store data
-                            > actualInvokingMethod = objectRef.getMetaClassReference().methods.findMethod(methodName);
-
-                    conds.shouldFalse(Predicate.isNull(actualInvokingMethod))
-                            .shouldTrue(actualInvokingMethod.get1Placeholder().equals(methodName))
-                            .shouldTrue(actualInvokingMethod.get2Placeholder().equals(methodDescriptor)).yield(() -> {
-                        destroyStackFrame();
-                        invokeMethod(args, actualInvokingMethod);
-                    }, () -> {
-                        //DONOTHING IF FALSE
-                    });
-
-                    Collection<String> allSuperInterfaces = objectRef.getMetaClassReference().interfaces.getInterfaceNames();
-                    for (String x : allSuperInterfaces) {
-                        loadClassIfAbsent(x);
-                        Tuple6<                                             //
-                                String,                                     //method name
-                                String,                                     //method descriptor
-                                u1[],                                       //method codes
-                                MetaClassMethod.StackRequirement,           //stack requirement for this method
-                                ArrayList<MetaClassMethod.ExceptionTable>,  //method exception tables,they are differ from checked exception in function signature
-                                MetaClassMethod.MethodExtension             //it would be change frequently, so there we create a flexible class to store data
-                                > m = methodScopeRef.getMetaClass(x, classLoader.getClass()).methods.findMethod(methodName);
-                        if (!Predicate.isNull(m)) {
-                            ConditionMachine cm = new ConditionMachine();
-                            cm.shouldTrue(m.get1Placeholder().equals(methodName))
-                                    .shouldTrue(m.get2Placeholder().equals(methodDescriptor))
-                                    .shouldFalse(m.get6Placeholder().isPrivate)
-                                    .shouldFalse(m.get6Placeholder().isStatic)
-                                    .shouldFalse(m.get6Placeholder().isAbstract).yield(() -> {
-                                destroyStackFrame();
-                                invokeMethod(args, m);
-                            }, () -> {
-                            });
-                        }
-                    }
+                case Mnemonic.invokeinterface_quick: {
+                    invokeInterface(dg, op.inlineCache(i), quick.resolved(), quick.parameterCount());
                 }
                 break;
 
@@ -1493,8 +1511,7 @@ public final class CodeExecutionEngine {
 
                     String symbolicReferenceBelongingClassName = symbolicReference.get1Placeholder().toString();
                     String methodName = symbolicReference.get2Placeholder().toString();
-
-                    loadClassIfAbsent(symbolicReferenceBelongingClassName);
+                    String methodDescriptor = symbolicReference.get3Placeholder().toString();
 
                     Tuple6<String,                                                   //method name
                             String,                                                  //method descriptor
@@ -1502,143 +1519,26 @@ public final class CodeExecutionEngine {
                             MetaClassMethod.StackRequirement,                        //stackRef requirement for this method
                             ArrayList<MetaClassMethod.ExceptionTable>,               //method exception tables,they are differ from checked exception in function signature
                             MetaClassMethod.MethodExtension>                         //method related attributes,it would be use for future vm version,there just ignore them
-                            methodBundle = methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass()).methods.findMethod(methodName);
-                    if (Predicate.isNull(methodBundle) || Predicate.strNotEqual(methodBundle.get1Placeholder(), methodName)) {
-                        //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
-                        throw new VMExecutionException("method " + methodName + "invocation can not continue");
-                    }
-
-                    String methodDescriptor = methodBundle.get2Placeholder();
-                    ArrayList<String> methodReturnType = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[1]);
-                    ArrayList<String> methodParameter = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]);
-
-                    YObject[] args = new YObject[methodParameter.size()];
-                    for (int f = 0; f < methodParameter.size(); f++) {
-                        args[f] = dg.pop();
-                        //todo:check if they are corresponding to method parameter type and descriptor
-                    }
-                    YObject objectRef = dg.pop();
-
-
-                    MetaClass actualMethodInvocationClass = null;
-                    if (Predicate.strNotEqual(methodName, "<clinit>")) {
-                        if (methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass()).isClass == true
-                                && Predicate.strEqual(symbolicReferenceBelongingClassName, metaClassRef.superClassName)
-                                && (methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass()).accessFlag & ClassAccessProperty.ACC_SUPER) == 2) {
-                            actualMethodInvocationClass = methodScopeRef.getMetaClass(metaClassRef.superClassName, classLoader.getClass());
-                        }
-                    } else {
+                            actualInvokingMethod = constantPool().method(index);
+                    if (actualInvokingMethod == null) {
                         loadClassIfAbsent(symbolicReferenceBelongingClassName);
-                        actualMethodInvocationClass = methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass());
-                    }
-
-                    Tuple6<                                             //
-                            String,                                     //method name
-                            String,                                     //method descriptor
-                            u1[],                                       //method codes
-                            MetaClassMethod.StackRequirement,           //stackRef requirement for this method
-                            ArrayList<MetaClassMethod.ExceptionTable>,  //method exception tables,they are differ from checked exception in function signature
-                            MetaClassMethod.MethodExtension             //it would be change frequently, so there we create a flexible class to store data
-                            > actualInvokingMethod = actualMethodInvocationClass.methods.findMethod(methodName);
-                    if (!Predicate.isNull(actualInvokingMethod)) {
-                        /***************************************************************
-                         *  If C(actualMethodInvocationClass) contains a declaration for
-                         *  an instance method with the same name and descriptor as the
-                         *  resolved method, then it is the method to be invoked.
-                         *
-                         ***************************************************************/
-                        if (actualInvokingMethod.get2Placeholder().equals(methodDescriptor)
-                                && actualInvokingMethod.get1Placeholder().equals(methodName)) {
-
-                            destroyStackFrame();
-
-                            invokeMethod(args, actualInvokingMethod);
-
-                        } else if (actualMethodInvocationClass.isClass == true &&
-                                actualMethodInvocationClass.superClassName != null) {
-                            /***************************************************************
-                             *  Otherwise, if C is a class and has a superclass, a search for
-                             *  a declaration of an instance method with the same name
-                             *  and descriptor as the resolved method is performed, starting
-                             *  with the direct superclass of C and continuing with the direct
-                             *  superclass of that class, and so forth, until a match is found or
-                             *  no further superclasses exist. If a match is found, then it is the
-                             *  method to be invoked.
-                             *
-                             ***************************************************************/
-                            class MethodInvocationRoutine {
-                                public void recursiveSearch(MetaClass c, String methodName, String methodDesc) {
-                                    Tuple6 trailMethods = c.methods.findMethod(methodName);
-                                    if (!Predicate.isNull(trailMethods)) {
-                                        if (trailMethods.get1Placeholder().equals(methodName)
-                                                && trailMethods.get2Placeholder().equals(methodDesc)) {
-                                            //pop current stackRef frame
-                                            destroyStackFrame();
-                                            //getMethod method with args
-                                            invokeMethod(args, trailMethods);
-                                        } else {
-                                            recursiveSearch(methodScopeRef.getMetaClass(c.superClassName, classLoader.getClass()), methodName, methodDesc);
-                                        }
-                                    }
-                                }
-                            }
-                            MethodInvocationRoutine routine = new MethodInvocationRoutine();
-                            routine.recursiveSearch(actualMethodInvocationClass, methodName, methodDescriptor);
-                        } else if (actualMethodInvocationClass.isClass == false) {
-                            /***************************************************************
-                             *  Otherwise, if C is an interface and the class Object contains a
-                             *  declaration of a public instance method with the same name
-                             *  and descriptor as the resolved method, then it is the method
-                             *  to be invoked.
-                             *
-                             ***************************************************************/
-                            Tuple6 trailMethods = methodScopeRef.getMetaClass("java/lang/Object", classLoader.getClass()).methods.findMethod(methodName);
-                            if (!Predicate.isNull(trailMethods) && trailMethods.get2Placeholder().equals(methodDescriptor)) {
-                                //pop current stackRef frame
-                                destroyStackFrame();
-                                //getMethod method with args
-                                invokeMethod(args, trailMethods);
-                            }
-                        } else if (actualMethodInvocationClass.isClass == false) {
-                            /***************************************************************
-                             *  Otherwise, if there is exactly one maximally-specific method
-                             *  (§5.4.3.3) in the superinterfaces of C that matches the resolved
-                             *  method's name and descriptor and is not abstract, then it is
-                             *  the method to be invoked.
-                             *
-                             ***************************************************************/
-                            Collection<String> allSuperInterfaces = actualMethodInvocationClass.interfaces.getInterfaceNames();
-                            for (String x : allSuperInterfaces) {
-                                loadClassIfAbsent(x);
-                                Tuple6<                                             //
-                                        String,                                     //method name
-                                        String,                                     //method descriptor
-                                        u1[],                                       //method codes
-                                        MetaClassMethod.StackRequirement,           //stack requirement for this method
-                                        ArrayList<MetaClassMethod.ExceptionTable>,  //method exception tables,they are differ from checked exception in function signature
-                                        MetaClassMethod.MethodExtension             //it would be change frequently, so there we create a flexible class to store data
-                                        > m = methodScopeRef.getMetaClass(x, classLoader.getClass()).methods.findMethod(methodName);
-                                if (!Predicate.isNull(m)) {
-                                    conds.shouldTrue(m.get1Placeholder().equals(methodName))
-                                            .shouldTrue(m.get2Placeholder().equals(methodDescriptor))
-                                            .shouldFalse(m.get6Placeholder().isPrivate)
-                                            .shouldFalse(m.get6Placeholder().isStatic)
-                                            .shouldFalse(m.get6Placeholder().isAbstract).yield(() -> {
-                                        destroyStackFrame();
-                                        invokeMethod(args, m);
-                                    }, () -> {
-                                    });
-                                }
-                            }
+                        actualInvokingMethod = selectSpecialMethod(
+                                methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass()),
+                                methodName, methodDescriptor);
+                        if (actualInvokingMethod == null) {
+                            throw new VMExecutionException("can not find actual invoking method");
                         }
-                    } else {
-                        /***************************************************************
-                         *  at last, we throw an exception to warn that we can not getMethod
-                         *  this method if all of above clauses were dismatch
-                         *
-                         ***************************************************************/
-                        throw new VMExecutionException("can not find actual invoking method");
+                        constantPool().method(index, actualInvokingMethod);
                     }
+
+                    int parameterCount = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]).size();
+                    op.quicken(i, Mnemonic.invokespecial_quick, actualInvokingMethod, parameterCount);
+                    invokeSpecial(dg, actualInvokingMethod, parameterCount);
+                }
+                break;
+
+                case Mnemonic.invokespecial_quick: {
+                    invokeSpecial(dg, quick.resolved(), quick.parameterCount());
                 }
                 break;
 
@@ -1652,7 +1552,7 @@ public final class CodeExecutionEngine {
 
                     String symbolicReferenceMethodBelongingClass = symbolicReference.get1Placeholder().toString();
                     String methodName = symbolicReference.get2Placeholder().toString();
-                    loadClassIfAbsent(symbolicReferenceMethodBelongingClass);
+                    String symbolicReferenceDescriptor = symbolicReference.get3Placeholder().toString();
 
                     Tuple6<String,                                                   //method name
                             String,                                                  //method descriptor
@@ -1660,56 +1560,35 @@ public final class CodeExecutionEngine {
                             MetaClassMethod.StackRequirement,                        //stackRef requirement for this method
                             ArrayList<MetaClassMethod.ExceptionTable>,               //method exception tables,they are differ from checked exception in function signature
                             MetaClassMethod.MethodExtension>                         //method related attributes,it would be use for future vm version,there just ignore them
-                            newMethodBundle = methodScopeRef.getMetaClass(symbolicReferenceMethodBelongingClass, classLoader.getClass()).methods.findMethod(methodName);
-                    if (Predicate.isNull(newMethodBundle) || Predicate.strNotEqual(newMethodBundle.get1Placeholder(), methodName)) {
-                        //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
-                        throw new VMExecutionException("method " + methodName + "invocation can not continue");
+                            newMethodBundle = constantPool().method(index);
+                    if (newMethodBundle == null) {
+                        loadClassIfAbsent(symbolicReferenceMethodBelongingClass);
+                        newMethodBundle = methodScopeRef.getMetaClass(symbolicReferenceMethodBelongingClass, classLoader.getClass()).methods.findStaticMethod(methodName, symbolicReferenceDescriptor);
+                        if (Predicate.isNull(newMethodBundle) || Predicate.strNotEqual(newMethodBundle.get1Placeholder(), methodName)) {
+                            //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
+                            throw new VMExecutionException("method " + methodName + "invocation can not continue");
+                        }
+                        constantPool().method(index, newMethodBundle);
                     }
 
                     boolean isStatic = newMethodBundle.get6Placeholder().isStatic;
                     boolean isAbstract = newMethodBundle.get6Placeholder().isAbstract;
-                    boolean isSynchronizedMethod = newMethodBundle.get6Placeholder().isSynchronized;
-                    boolean isNative = newMethodBundle.get6Placeholder().isNative;
 
                     if (!isStatic && isAbstract) {
                         throw new VMExecutionException("the method " + methodName + "in class " + symbolicReferenceMethodBelongingClass + " is not a static method");
                     }
 
-                    if (!isNative) {
-                        if (isSynchronizedMethod) {
-                            //todo:If the method is synchronized, the monitor associated with the
-                            //resolved Class object is entered or reentered as if by execution of
-                            //a monitorenter instruction (§monitorenter) in the current thread.
-                        }
-
-                    } else {
-                        //todo: if the method is native, call native function instead
-                        if (isSynchronizedMethod) {
-                            //todo:If the method is synchronized, the monitor associated with the
-                            //resolved Class object is entered or reentered as if by execution of
-                            //a monitorenter instruction (§monitorenter) in the current thread.
-                        }
-                    }
-
                     String methodDescriptor = newMethodBundle.get2Placeholder();
-                    ArrayList<String> methodReturnType = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[1]);
-                    ArrayList<String> methodParameter = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]);
-
-                    YObject[] args = new YObject[methodParameter.size()];
-                    for (int f = 0; f < methodParameter.size(); f++) {
-                        args[f] = dg.pop();
+                    int parameterCount = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]).size();
+                    if (initializeClass(newMethodBundle.get6Placeholder().declaringClass)) {
+                        op.quicken(i, Mnemonic.invokestatic_quick, newMethodBundle, parameterCount);
                     }
+                    invokeStatic(newMethodBundle, dg.popArguments(parameterCount));
+                }
+                break;
 
-                    if (!isNative) {
-                        destroyStackFrame();
-
-                        invokeMethod(args, newMethodBundle);
-                    } else {
-                        //todo:invoke native method
-                        break;
-                    }
-
-
+                case Mnemonic.invokestatic_quick: {
+                    invokeStatic(quick.resolved(), dg.popArguments(quick.parameterCount()));
                 }
                 break;
 
@@ -1722,95 +1601,34 @@ public final class CodeExecutionEngine {
 
                     String symbolicReferenceBelongingClassName = symbolicReference.get1Placeholder().toString();
                     String methodName = symbolicReference.get2Placeholder().toString();
-
-                    loadClassIfAbsent(symbolicReferenceBelongingClassName);
-
-                    Tuple6<String,                                                   //method name
-                            String,                                                  //method descriptor
-                            u1[],                                                    //method codes
-                            MetaClassMethod.StackRequirement,                        //stackRef requirement for this method
-                            ArrayList<MetaClassMethod.ExceptionTable>,               //method exception tables,they are differ from checked exception in function signature
-                            MetaClassMethod.MethodExtension>                         //method related attributes,it would be use for future vm version,there just ignore them
-                            methodBundle = methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass()).methods.findMethod(methodName);
-                    if (Predicate.isNull(methodBundle) || Predicate.strNotEqual(methodBundle.get1Placeholder(), methodName)) {
-                        //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
-                        throw new VMExecutionException("method " + methodName + "invocation can not continue");
+                    String methodDescriptor = symbolicReference.get3Placeholder().toString();
+
+                    /***************************************************************
+                     *  the method ref is resolved to a vtable index once, the index
+                     *  of a method is the same in tables of all subclasses. The
+                     *  inline cache of the site is tried before the vtable
+                     *
+                     ***************************************************************/
+                    int vtableIndex = constantPool().vtableIndex(index);
+                    if (vtableIndex < 0) {
+                        loadClassIfAbsent(symbolicReferenceBelongingClassName);
+                        MetaClass resolvedClass = methodScopeRef.getMetaClass(symbolicReferenceBelongingClassName, classLoader.getClass());
+                        vtableIndex = VTable.link(resolvedClass, methodScopeRef).indexOf(methodName, methodDescriptor);
+                        if (vtableIndex < 0) {
+                            //there are different from executeMethod(), any method invocation in opcode should be existed in method scope area
+                            throw new VMExecutionException("method " + methodName + "invocation can not continue");
+                        }
+                        constantPool().vtableIndex(index, vtableIndex);
                     }
 
-                    String methodDescriptor = methodBundle.get2Placeholder();
-                    ArrayList<String> methodReturnType = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[1]);
-                    ArrayList<String> methodParameter = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]);
+                    int parameterCount = Peel.peelFieldDescriptor(Peel.peelMethodDescriptorParameter(methodDescriptor)[0]).size();
+                    op.quicken(i, Mnemonic.invokevirtual_quick, vtableIndex, parameterCount);
+                    invokeVirtual(dg, op.inlineCache(i), vtableIndex, parameterCount);
+                }
+                break;
 
-                    YObject[] args = new YObject[methodParameter.size()];
-                    for (int f = 0; f < methodParameter.size(); f++) {
-                        args[f] = dg.pop();
-                        //todo:check if they are corresponding to method parameter type and descriptor
-                    }
-                    YObject objectRef = dg.pop();
-                    Tuple6<String,                                                   //method name
-                            String,                                                  //method descriptor
-                            u1[],                                                    //method codes
-                            MetaClassMethod.StackRequirement,                        //stackRef requirement for this method
-                            ArrayList<MetaClassMethod.ExceptionTable>,               //method exception tables,they are differ from checked exception in function signature
-                            MetaClassMethod.MethodExtension>                         //method related attributes,it would be use for future vm version,there just ignore them
-                            newMethodBundle = objectRef.getMetaClassReference().methods.findMethod(methodName);
-
-                    conds.shouldFalse(Predicate.isNull(newMethodBundle)).yield(() -> {
-                        destroyStackFrame();
-                        invokeMethod(args, newMethodBundle);
-                    }, () -> {
-                    });
-
-                    conds.shouldFalse(Predicate.isNull(objectRef.getMetaClassReference().superClassName))
-                            .yield(() -> {
-                                class MethodInvocationRoutine {
-                                    public void recursiveSearch(MetaClass c, String methodName, String methodDesc) {
-                                        Tuple6 trailMethods = c.methods.findMethod(methodName);
-                                        if (!Predicate.isNull(trailMethods)) {
-                                            if (trailMethods.get1Placeholder().equals(methodName)
-                                                    && trailMethods.get2Placeholder().equals(methodDesc)) {
-                                                //pop current stackRef frame
-                                                destroyStackFrame();
-                                                //getMethod method with args
-                                                invokeMethod(args, trailMethods);
-                                            } else {
-                                                recursiveSearch(methodScopeRef.getMetaClass(c.superClassName, classLoader.getClass()), methodName, methodDesc);
-                                            }
-                                        }
-                                    }
-                                }
-                                MethodInvocationRoutine routine = new MethodInvocationRoutine();
-                                routine.recursiveSearch(objectRef.getMetaClassReference(), methodName, methodDescriptor);
-                            }, () -> {
-                            });
-
-                    conds.shouldTrue(true).yield(() -> {
-                        Collection<String> allSuperInterfaces = objectRef.getMetaClassReference().interfaces.getInterfaceNames();
-                        for (String x : allSuperInterfaces) {
-                            loadClassIfAbsent(x);
-                            Tuple6<                                             //
-                                    String,                                     //method name
-                                    String,                                     //method descriptor
-                                    u1[],                                       //method codes
-                                    MetaClassMethod.StackRequirement,           //stack requirement for this method
-                                    ArrayList<MetaClassMethod.ExceptionTable>,  //method exception tables,they are differ from checked exception in function signature
-                                    MetaClassMethod.MethodExtension             //it would be change frequently, so there we create a flexible class to store data
-                                    > m = methodScopeRef.getMetaClass(x, classLoader.getClass()).methods.findMethod(methodName);
-                            if (!Predicate.isNull(m)) {
-                                ConditionMachine cm = new ConditionMachine();
-                                cm.shouldTrue(m.get1Placeholder().equals(methodName))
-                                        .shouldTrue(m.get2Placeholder().equals(methodDescriptor))
-                                        .shouldFalse(m.get6Placeholder().isPrivate)
-                                        .shouldFalse(m.get6Placeholder().isStatic)
-                                        .shouldFalse(m.get6Placeholder().isAbstract).yield(() -> {
-                                    destroyStackFrame();
-                                    invokeMethod(args, m);
-                                }, () -> {
-                                });
-                            }
-                        }
-                    }, () -> {
-                    });
+                case Mnemonic.invokevirtual_quick: {
+                    invokeVirtual(dg, op.inlineCache(i), (Integer) quick.resolved(), quick.parameterCount());
                 }
                 break;
 
@@ -1832,9 +1650,9 @@ public final class CodeExecutionEngine {
                 break;
 
                 case Mnemonic.ireturn: {
+                    safepoint.poll(thread);
                     int value = dg.popInt();
 
-                    Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
                     //todo:check if the objectRef is corresponding to method return type;[enhance]
                     destroyStackFrame();
                     stack.currentFrame().pushOperand(YObject.derivedFrom(value));
@@ -1994,61 +1812,48 @@ public final class CodeExecutionEngine {
                 case Mnemonic.ldc: {
                     int index = dg.get0FromGenericOperand(singleOpcode);
 
-                    MetaClassConstantPool poolRef = constantPool();
-
-                    if (!Predicate.isNull(poolRef.findInFloat(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInFloat(index)));
-                    } else if (!Predicate.isNull(poolRef.findInInteger(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInInteger(index)));
-                    } else if (!Predicate.isNull(poolRef.findInString(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInString(index)));
-                    } else if (!Predicate.isNull(poolRef.findInClass(index))) {
-
-                    } else {
-                        //todo:ldc
-                        //todo:if not find class then load it
-                        //todo: support methodtype and methodhandle
+                    //todo:ldc of class, methodtype and methodhandle
+                    YObject constant = constant(index);
+                    if (constant != null) {
+                        op.quicken(i, Mnemonic.ldc_quick, constant);
+                        dg.push(constant);
                     }
                 }
                 break;
 
                 case Mnemonic.ldc_w: {
                     int indexByte1 = dg.get0FromGenericOperand(singleOpcode);
-                    int indexByte2 = dg.get0FromGenericOperand(singleOpcode);
+                    int indexByte2 = dg.get1FromGenericOperand(singleOpcode);
                     int index = (indexByte1 << 8) | indexByte2;
 
-                    MetaClassConstantPool poolRef = constantPool();
-
-                    if (!Predicate.isNull(poolRef.findInFloat(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInFloat(index)));
-                    } else if (!Predicate.isNull(poolRef.findInInteger(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInInteger(index)));
-                    } else if (!Predicate.isNull(poolRef.findInString(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInString(index)));
-                    } else if (!Predicate.isNull(poolRef.findInClass(index))) {
-
-                    } else {
-                        //todo:ldc_w
-                        //todo:if not find class then load it
-                        //todo: support methodtype and methodhandle
+                    //todo:ldc_w of class, methodtype and methodhandle
+                    YObject constant = constant(index);
+                    if (constant != null) {
+                        op.quicken(i, Mnemonic.ldc_w_quick, constant);
+                        dg.push(constant);
                     }
                 }
                 break;
 
                 case Mnemonic.ldc2_w: {
                     int indexByte1 = dg.get0FromGenericOperand(singleOpcode);
-                    int indexByte2 = dg.get0FromGenericOperand(singleOpcode);
+                    int indexByte2 = dg.get1FromGenericOperand(singleOpcode);
                     int index = (indexByte1 << 8) | indexByte2;
 
-                    MetaClassConstantPool poolRef = constantPool();
-
-                    if (!Predicate.isNull(poolRef.findInLong(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInLong(index)));
-                    } else if (!Predicate.isNull(poolRef.findInDouble(index))) {
-                        dg.push(YObject.derivedFrom(poolRef.findInDouble(index)));
-                    } else {
+                    YObject constant = constant(index);
+                    if (constant == null) {
                         throw new VMExecutionException("ldc_2 has a invalid constant pool entry");
                     }
+                    op.quicken(i, Mnemonic.ldc2_w_quick, constant);
+                    dg.push(constant);
+                }
+                break;
+
+                //constants are immutable, so the resolved one is pushed every time
+                case Mnemonic.ldc_quick:
+                case Mnemonic.ldc_w_quick:
+                case Mnemonic.ldc2_w_quick: {
+                    dg.push(quick.resolved());
                 }
                 break;
 
@@ -2136,9 +1941,9 @@ public final class CodeExecutionEngine {
                 break;
 
                 case Mnemonic.lreturn: {
+                    safepoint.poll(thread);
                     long value = dg.popLong();
 
-                    Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
                     //todo:check if the objectRef is corresponding to method return type;[enhance]
                     destroyStackFrame();
                     stack.currentFrame().pushOperand(YObject.derivedFrom(value));
@@ -2214,12 +2019,16 @@ public final class CodeExecutionEngine {
                 break;
 
                 case Mnemonic.monitorenter: {
-                    //todo:monitorenter
+                    YObject objectRef = dg.pop();
+                    Continuation.ifNullThrowNullptrException(objectRef);
+                    monitors.enter(thread, objectRef);
                 }
                 break;
 
                 case Mnemonic.monitorexit: {
-                    //todo:monitorexit
+                    YObject objectRef = dg.pop();
+                    Continuation.ifNullThrowNullptrException(objectRef);
+                    monitors.exit(thread, objectRef);
                 }
                 break;
 
@@ -2230,14 +2039,16 @@ public final class CodeExecutionEngine {
                     int index = (indexByte1 << 8) |
                             indexByte2;
 
-                    HashMap<Integer, String> classes = constantPool().getClassNames();
-                    loadClassIfAbsent(classes.get(index));
+                    String className = constantPool().findInClass(index);
+                    loadClassIfAbsent(className);
 
                     YArray array = new YArray(dimensions);
+                    array.arrayType(className);
                     for (int t = 0; t < array.getLength(); t++) {
                         YArray subArray = new YArray(dg.popInt());
+                        subArray.arrayType(className.substring(1));
                         for (int m = 0; m < subArray.getLength(); m++) {
-                            YObject object = new YObject(methodScopeRef.getMetaClass(classes.get(index), classLoader.getClass()));
+                            YObject object = new YObject(methodScopeRef.getMetaClass(className, classLoader.getClass()));
                             //object.initiateFields(classLoader);
                             subArray.set(m, object);
                         }
@@ -2245,7 +2056,7 @@ public final class CodeExecutionEngine {
                     }
 
                     //add to runtime virtual machine heap section
-                    runtimeHeap().addToArrayArea(array);
+                    runtimeHeap().allocate(thread, array);
                     //push reference to operand stackRef
                     dg.pushArray(array);
                 }
@@ -2259,13 +2070,16 @@ public final class CodeExecutionEngine {
                     int index = (indexByte1 << 8) |
                             indexByte2;
 
-                    HashMap<Integer, String> classes = constantPool().getClassNames();
-                    loadClassIfAbsent(classes.get(index));
+                    MetaClass newClass = resolveClass(index);
+                    if (initializeClass(newClass)) {
+                        op.quicken(i, Mnemonic.new_quick, newClass);
+                    }
+                    dg.push(newObject(newClass));
+                }
+                break;
 
-                    YObject object = new YObject(methodScopeRef.getMetaClass(classes.get(index), classLoader.getClass()));
-                    object.initiateFields(classLoader);
-                    runtimeHeap().addToObjectArea(object);
-                    dg.push(object);
+                case Mnemonic.new_quick: {
+                    dg.push(newObject(quick.resolved()));
                 }
                 break;
 
@@ -2274,6 +2088,7 @@ public final class CodeExecutionEngine {
                     int count = dg.popInt();
 
                     YArray array = new YArray(count);
+                    array.arrayType(NewArrayType.arrayType(aType));
                     switch (aType) {
                         case NewArrayType.T_INT:
                         case NewArrayType.T_LONG:
@@ -2308,7 +2123,7 @@ public final class CodeExecutionEngine {
                     }
 
                     //add to runtime virtual machine heap section
-                    runtimeHeap().addToArrayArea(array);
+                    runtimeHeap().allocate(thread, array);
                     //push reference to operand stackRef
                     dg.pushArray(array);
                 }
@@ -2351,35 +2166,8 @@ public final class CodeExecutionEngine {
                     }
 
                     Tuple3 fieldBundle = constantPool().findInSymbolicReference(index);
-                    switch (Peel.peelFieldDescriptor((String) fieldBundle.get3Placeholder()).get(0)) {
-                        case "java/lang/Byte":
-                            object.setField(index, YObject.derivedFrom(value.toInteger()));
-                            break;
-                        case "java/lang/Character":
-                            object.setField(index, YObject.derivedFrom(value.toChar()));
-                            break;
-                        case "java/lang/Double":
-                            object.setField(index, YObject.derivedFrom(value.toDouble()));
-                            break;
-                        case "java/lang/Float":
-                            object.setField(index, YObject.derivedFrom(value.toFloat()));
-                            break;
-                        case "java/lang/Integer":
-                            object.setField(index, YObject.derivedFrom(value.toInteger()));
-                            break;
-                        case "java/lang/Long":
-                            object.setField(index, YObject.derivedFrom(value.toLong()));
-                            break;
-                        case "java/lang/Short":
-                            object.setField(index, YObject.derivedFrom(value.toInteger()));
-                            break;
-                        case "java/lang/Boolean":
-                            object.setField(index, YObject.derivedFrom(value.toBoolean()));
-                            break;
-                        default:
-                            object.setField(index, value);
-                            break;
-                    }
+                    char kind = fieldBundle.get3Placeholder().toString().charAt(0);
+                    putField(object, index, kind, value);
                 }
                 break;
 
@@ -2389,53 +2177,17 @@ public final class CodeExecutionEngine {
                     int indexByte2 = dg.get1FromGenericOperand(singleOpcode);
                     int index = (indexByte1 << 8) | indexByte2;
 
-
                     YObject value = dg.pop();
-                    Tuple3 fieldSymbolicReference = metaClassRef.constantPool.findInSymbolicReference(index);
-                    loadClassIfAbsent(fieldSymbolicReference.get1Placeholder().toString());
-
-                    YObject staticVar = null;
-                    Collection<Tuple5<String, String, Integer, Attribute[], YObject>>
-                            staticVars = metaClassRef.getStaticVariable().values();
-                    for (Tuple5 tp : staticVars) {
-                        if (tp.get1Placeholder().toString().equals(fieldSymbolicReference.get2Placeholder().toString())) {
-                            staticVar = (YObject) tp.get5Placeholder();
-                        }
-                    }
-                    if (!staticVar.isInitialized()) {
-                        staticVar.initiateFields(classLoader);
+                    StaticFields.FieldRef ref = resolveStaticField(index);
+                    if (initializeClass(ref.owner())) {
+                        op.quicken(i, Mnemonic.putstatic_quick, ref);
                     }
+                    putStatic(ref, value);
+                }
+                break;
 
-                    Tuple3 fieldBundle = constantPool().findInSymbolicReference(index);
-                    switch (Peel.peelFieldDescriptor((String) fieldBundle.get3Placeholder()).get(0)) {
-                        case "java/lang/Byte":
-                            staticVar.setField(index, YObject.derivedFrom(value.toInteger()));
-                            break;
-                        case "java/lang/Character":
-                            staticVar.setField(index, YObject.derivedFrom(value.toChar()));
-                            break;
-                        case "java/lang/Double":
-                            staticVar.setField(index, YObject.derivedFrom(value.toDouble()));
-                            break;
-                        case "java/lang/Float":
-                            staticVar.setField(index, YObject.derivedFrom(value.toFloat()));
-                            break;
-                        case "java/lang/Integer":
-                            staticVar.setField(index, YObject.derivedFrom(value.toInteger()));
-                            break;
-                        case "java/lang/Long":
-                            staticVar.setField(index, YObject.derivedFrom(value.toLong()));
-                            break;
-                        case "java/lang/Short":
-                            staticVar.setField(index, YObject.derivedFrom(value.toInteger()));
-                            break;
-                        case "java/lang/Boolean":
-                            staticVar.setField(index, YObject.derivedFrom(value.toBoolean()));
-                            break;
-                        default:
-                            staticVar.setField(index, value);
-                            break;
-                    }
+                case Mnemonic.putstatic_quick: {
+                    putStatic(quick.resolved(), dg.pop());
                 }
                 break;
 
@@ -2445,7 +2197,7 @@ public final class CodeExecutionEngine {
                 }
 
                 case Mnemonic.return$: {
-                    Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
+                    safepoint.poll(thread);
                     //todo:check if the objectRef is corresponding to method return type;[enhance]
                     destroyStackFrame();
                     System.out.println("###EXECUTE END###");
@@ -2541,12 +2293,7 @@ public final class CodeExecutionEngine {
                     throw new VMExecutionException("unknown opcode encountered in execution sequence");
             }
         }
-        /***************************************************************
-         *  leave a critical section if it's a <synchronized> method
-         *  is denoted
-         *
-         ***************************************************************/
-        Continuation.ifSynchronizedUnlock(methodLock, isSynchronized);
+        safepoint.poll(thread);
         System.out.println("###EXECUTE END###");
     }
 
@@ -2594,6 +2341,332 @@ public final class CodeExecutionEngine {
         }
     }
 
+    /***************************************************************
+     *  perform a native method implemented by vm and push its result
+     *  if any, native methods the vm doesn't know are skipped
+     *
+     ***************************************************************/
+    private void invokeNative(String className, String methodName, String methodDescriptor,
+                              YObject receiver, YObject[] args) {
+        NativeMethods.NativeMethod nativeMethod = NativeMethods.find(className, methodName, methodDescriptor);
+        if (nativeMethod == null) {
+            return;
+        }
+        YObject result = nativeMethod.invoke(thread, receiver, args);
+        if (result != null) {
+            thread.runtimeThread().stack().currentFrame().pushOperand(result);
+        }
+    }
+
+    /***************************************************************
+     *  class whose vtable and itable select methods invoked on an
+     *  object, arrays and boxed values have no class of their own and
+     *  use the tables of java/lang/Object
+     *
+     ***************************************************************/
+    private MetaClass receiverClass(YObject objectRef) {
+        MetaClass receiverClass = objectRef.getMetaClassReference();
+        if (receiverClass == null) {
+            loadClassIfAbsent("java/lang/Object");
+            receiverClass = methodScopeRef.getMetaClass("java/lang/Object", classLoader.getClass());
+        }
+        if (receiverClass.itable() == null) {
+            ITable.link(receiverClass, methodScopeRef);
+        }
+        return receiverClass;
+    }
+
+    private void invokeStatic(Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method, YObject[] args) {
+        if (method.get6Placeholder().isNative) {
+            invokeNative(method.get6Placeholder().declaringClass.qualifiedClassName,
+                    method.get1Placeholder(), method.get2Placeholder(), null, args);
+            return;
+        }
+        invokeMethod(null, args, method);
+    }
+
+    private void invokeSpecial(Auxiliary dg, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method, int parameterCount) {
+        YObject[] args = dg.popArguments(parameterCount);
+        YObject objectRef = dg.pop();
+        Continuation.ifNullThrowNullptrException(objectRef);
+        invokeSelected(objectRef, args, method);
+    }
+
+    private void invokeVirtual(Auxiliary dg, InlineCache inlineCache, int vtableIndex, int parameterCount) {
+        YObject[] args = dg.popArguments(parameterCount);
+        YObject objectRef = dg.pop();
+        Continuation.ifNullThrowNullptrException(objectRef);
+
+        MetaClass receiverClass = receiverClass(objectRef);
+        Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> selectedMethod = inlineCache.lookup(receiverClass);
+        if (selectedMethod == null) {
+            selectedMethod = receiverClass.vtable().methodAt(vtableIndex);
+            inlineCache.update(receiverClass, selectedMethod);
+        }
+        invokeSelected(objectRef, args, selectedMethod);
+    }
+
+    private void invokeInterface(Auxiliary dg, InlineCache inlineCache, ITable.InterfaceMethod interfaceMethod,
+                                 int parameterCount) {
+        YObject[] args = dg.popArguments(parameterCount);
+        YObject objectRef = dg.pop();
+        Continuation.ifNullThrowNullptrException(objectRef);
+
+        MetaClass receiverClass = receiverClass(objectRef);
+        Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> selectedMethod = inlineCache.lookup(receiverClass);
+        if (selectedMethod == null) {
+            selectedMethod = interfaceMethod.declaringInterface() == null
+                    ? receiverClass.vtable().methodAt(interfaceMethod.index())
+                    : receiverClass.itable().methodAt(interfaceMethod.declaringInterface(), interfaceMethod.index());
+            if (selectedMethod == null) {
+                throw new VMExecutionException(receiverClass.qualifiedClassName + " does not implement "
+                        + interfaceMethod.declaringInterface().qualifiedClassName);
+            }
+            inlineCache.update(receiverClass, selectedMethod);
+        }
+        invokeSelected(objectRef, args, selectedMethod);
+    }
+
+    /***************************************************************
+     *  invoke the method selected for receiver, a native method is
+     *  performed by vm and it's looked up by the class declaring it
+     *
+     ***************************************************************/
+    private void invokeSelected(YObject objectRef, YObject[] args, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> selectedMethod) {
+        if (selectedMethod.get6Placeholder().isNative) {
+            invokeNative(selectedMethod.get6Placeholder().declaringClass.qualifiedClassName,
+                    selectedMethod.get1Placeholder(), selectedMethod.get2Placeholder(), objectRef, args);
+            return;
+        }
+        if (selectedMethod.get6Placeholder().isAbstract) {
+            throw new VMExecutionException("abstract method " + selectedMethod.get6Placeholder().qualifiedName + " is invoked");
+        }
+        invokeMethod(objectRef, args, selectedMethod);
+    }
+
+    /***************************************************************
+     *  method invoked by invokespecial. If the resolved method is not
+     *  <init> and its class is a super class of current class, the
+     *  lookup starts from the direct super class of current class,
+     *  otherwise from the resolved class. A method declared there is
+     *  taken first, e.g. <init> and private methods, then the one its
+     *  vtable selects, which may be inherited or a default method
+     *
+     ***************************************************************/
+    private Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+            ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> selectSpecialMethod(MetaClass resolvedClass, String methodName, String methodDescriptor) {
+        MetaClass c = resolvedClass;
+        if (!methodName.equals("<init>") && !resolvedClass.isInterface()
+                && (metaClassRef.accessFlag & ClassAccessProperty.ACC_SUPER) != 0
+                && metaClassRef.hasSuperClass() && isSuperClass(resolvedClass, metaClassRef)) {
+            c = methodScopeRef.getMetaClass(metaClassRef.superClassName, classLoader.getClass());
+        }
+        Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+                ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method = c.methods.findSpecialMethod(methodName, methodDescriptor);
+        if (method == null) {
+            VTable vtable = VTable.link(c, methodScopeRef);
+            int index = vtable.indexOf(methodName, methodDescriptor);
+            if (index >= 0) {
+                method = vtable.methodAt(index);
+            }
+        }
+        return method;
+    }
+
+    private boolean isSuperClass(MetaClass superClass, MetaClass c) {
+        while (c.hasSuperClass()) {
+            c = methodScopeRef.getMetaClass(c.superClassName, classLoader.getClass());
+            if (c == null) {
+                return false;
+            }
+            if (c == superClass) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /***************************************************************
+     *  class the index-th entry of constant pool refers to, it's
+     *  loaded if it's absent
+     *
+     ***************************************************************/
+    private MetaClass resolveClass(int index) {
+        MetaClass resolved = constantPool().resolved(index);
+        if (resolved == null) {
+            String className = constantPool().findInClass(index);
+            loadClassIfAbsent(className);
+            resolved = constantPool().resolve(index, methodScopeRef.getMetaClass(className, classLoader.getClass()));
+        }
+        return resolved;
+    }
+
+    /***************************************************************
+     *  constant the index-th entry of constant pool holds, it's null
+     *  for entries which ldc can't push yet, i.e. class, method type
+     *  and method handle
+     *
+     ***************************************************************/
+    private YObject constant(int index) {
+        MetaClassConstantPool poolRef = constantPool();
+        byte tag = poolRef.tag(index);
+        if (tag != MetaClassConstantPool.INTEGER && tag != MetaClassConstantPool.FLOAT
+                && tag != MetaClassConstantPool.LONG && tag != MetaClassConstantPool.DOUBLE
+                && tag != MetaClassConstantPool.STRING) {
+            return null;
+        }
+        YObject constant = poolRef.resolved(index);
+        if (constant != null) {
+            return constant;
+        }
+        switch (tag) {
+            case MetaClassConstantPool.INTEGER:
+                constant = YObject.derivedFrom(poolRef.findInInteger(index));
+                break;
+            case MetaClassConstantPool.FLOAT:
+                constant = YObject.derivedFrom(poolRef.findInFloat(index));
+                break;
+            case MetaClassConstantPool.LONG:
+                constant = YObject.derivedFrom(poolRef.findInLong(index));
+                break;
+            case MetaClassConstantPool.DOUBLE:
+                constant = YObject.derivedFrom(poolRef.findInDouble(index));
+                break;
+            default:
+                constant = runtimeHeap().internString(thread, poolRef.findInString(index));
+                break;
+        }
+        return poolRef.resolve(index, constant);
+    }
+
+    /***************************************************************
+     *  initialization barrier of new, getstatic, putstatic and
+     *  invokestatic, <clinit> of the class runs on its first active
+     *  use. It's true if the class is initialized after this, only
+     *  then the instruction is quickened, so its quick form never
+     *  checks again. It's false while the current thread is running
+     *  <clinit> of the class itself, other threads must still wait
+     *  for it in the meantime
+     *
+     ***************************************************************/
+    private boolean initializeClass(MetaClass meta) {
+        if (meta.isInitialized()) {
+            return true;
+        }
+        YClassLoader loader = new YClassLoader();
+        loader.associateThread(thread);
+        try {
+            loader.initializeClass(meta);
+        } catch (ClassInitializingException e) {
+            throw new VMExecutionException("can not initialize class " + meta.qualifiedClassName, e);
+        }
+        return meta.isInitialized();
+    }
+
+    /***************************************************************
+     *  class declaring the field the index-th field ref names and the
+     *  slot of the field there, the class is loaded if it's absent
+     *
+     ***************************************************************/
+    private StaticFields.FieldRef resolveStaticField(int index) {
+        StaticFields.FieldRef resolved = constantPool().resolved(index);
+        if (resolved == null) {
+            Tuple3 fieldSymbolicReference = constantPool().findInSymbolicReference(index);
+            String className = fieldSymbolicReference.get1Placeholder().toString();
+            loadClassIfAbsent(className);
+            MetaClass referencedClass = methodScopeRef.getMetaClass(className, classLoader.getClass());
+            StaticFields.FieldRef ref = StaticFields.resolve(referencedClass,
+                    fieldSymbolicReference.get2Placeholder().toString(),
+                    fieldSymbolicReference.get3Placeholder().toString(), methodScopeRef);
+            if (ref == null) {
+                throw new VMExecutionException("can not resolve static field " + className + "."
+                        + fieldSymbolicReference.get2Placeholder());
+            }
+            resolved = constantPool().resolve(index, ref);
+        }
+        return resolved;
+    }
+
+    /***************************************************************
+     *  store value into a static variable as putField() does, the
+     *  mirror of declaring class stands for the holder of reference
+     *  for the write barrier
+     *
+     ***************************************************************/
+    private void putStatic(StaticFields.FieldRef ref, YObject value) {
+        StaticFields staticFields = ref.owner().staticFields();
+        if (ref.kind() == 'L' || ref.kind() == '[') {
+            runtimeHeap().writeBarrier(thread, ref.owner().mirror(), staticFields.get(ref.slot()), value);
+            staticFields.set(ref.slot(), value);
+            return;
+        }
+        staticFields.set(ref.slot(), primitiveFieldValue(ref.kind(), value));
+    }
+
+    private void checkCast(YObject object, MetaClass metaClass) {
+        try {
+            recursiveMatch(object.getMetaClassReference(), metaClass, classLoader.getClass());
+        } catch (RecursiveMatchException e) {
+            throw new ClassCastException("the object can not match the given type");
+        }
+    }
+
+    private YObject newObject(MetaClass newClass) {
+        YObject object = new YObject(newClass);
+        object.initiateFields(classLoader);
+        runtimeHeap().allocate(thread, object);
+        return object;
+    }
+
+    /***************************************************************
+     *  store value into the index-th field of object, kind is the
+     *  first character of field descriptor. A primitive value is
+     *  boxed again as the type of field, a reference store goes
+     *  through the write barrier
+     *
+     ***************************************************************/
+    private void putField(YObject object, int index, char kind, YObject value) {
+        if (kind == 'L' || kind == '[') {
+            runtimeHeap().writeBarrier(thread, object, object.getField(index), value);
+            object.setField(index, value);
+            return;
+        }
+        object.setField(index, primitiveFieldValue(kind, value));
+    }
+
+    /***************************************************************
+     *  box of a primitive value stored into a field of given kind.
+     *  boolean, byte, char and short are ints on the operand stack,
+     *  they are narrowed to the field type but stay ints, so a field
+     *  reads back as what iload expects
+     *
+     ***************************************************************/
+    private static YObject primitiveFieldValue(char kind, YObject value) {
+        switch (kind) {
+            case 'B':
+                return YObject.derivedFrom((int) (byte) YObject.numericValue(value));
+            case 'C':
+                return YObject.derivedFrom((int) (char) YObject.numericValue(value));
+            case 'S':
+                return YObject.derivedFrom((int) (short) YObject.numericValue(value));
+            case 'Z':
+                return YObject.derivedFrom((int) YObject.numericValue(value) & 1);
+            case 'I':
+                return YObject.derivedFrom((int) YObject.numericValue(value));
+            case 'D':
+                return YObject.derivedFrom(value.toDouble());
+            case 'F':
+                return YObject.derivedFrom(value.toFloat());
+            default:
+                return YObject.derivedFrom(value.toLong());
+        }
+    }
+
     private YHeap runtimeHeap() {
         return thread.runtimeVM().heap();
     }
@@ -2608,9 +2681,11 @@ public final class CodeExecutionEngine {
         thread.runtimeThread().stack().popFrame();
     }
 
-    private void allocateStackFrame(int maxLocals, int maxStack) {
+    private void allocateStackFrame(int maxLocals, int maxStack, ReferenceMap referenceMap, String methodName) {
         YStackFrame frame = new YStackFrame();
         frame.allocateSize(maxStack, maxLocals);
+        frame.referenceMap(referenceMap);
+        frame.methodName(methodName);
         thread.runtimeThread().stack().pushFrame(frame);
     }
 
@@ -2618,24 +2693,49 @@ public final class CodeExecutionEngine {
         thread.runtimeThread().stack().currentFrame().setLocalVariable(index, object);
     }
 
-    private void invokeMethod(YObject[] args, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
+    /***************************************************************
+     *  invoke a method with a new stack frame, receiver is null for
+     *  static methods. A synchronized method holds the monitor of its
+     *  receiver, or of its class if it's static, until it completes
+     *  either normally or abruptly
+     *
+     ***************************************************************/
+    private void invokeMethod(YObject receiver, YObject[] args, Tuple6<String, String, u1[], MetaClassMethod.StackRequirement,
             ArrayList<MetaClassMethod.ExceptionTable>, MetaClassMethod.MethodExtension> method) {
         int newMethodMaxLocals = method.get4Placeholder().maxLocals;
         int newMethodMaxStack = method.get4Placeholder().maxStack;
         boolean newMethodIsSynchronized = method.get6Placeholder().isSynchronized;
         ArrayList<MetaClassMethod.ExceptionTable> newMethodExceptionTable = method.get5Placeholder();
+        YObject monitor = null;
+        if (newMethodIsSynchronized) {
+            monitor = method.get6Placeholder().isStatic || receiver == null
+                    ? method.get6Placeholder().declaringClass.mirror()
+                    : receiver;
+        }
         try {
-            allocateStackFrame(newMethodMaxLocals, newMethodMaxStack);
+            allocateStackFrame(newMethodMaxLocals, newMethodMaxStack, MetaClassMethod.referenceMap(method),
+                    method.get6Placeholder().qualifiedName);
+            if (receiver != null) {
+                pushToLocalVariableStack(0, receiver);
+            }
             //if arguments are existed
             if (args != null) {
                 for (int p = args.length - 1, s = 1; p >= 0; p--, s++) {
                     pushToLocalVariableStack(s, args[p]);
                 }
             }
-            Opcode newMethodOp = new Opcode(method.get3Placeholder());
-            newMethodOp.codes2Opcodes();
+            Opcode newMethodOp = MetaClassMethod.decoded(method);
             newMethodOp.debug("#Invoke::" + method.get1Placeholder() + "#");
-            codeExecution(newMethodOp, newMethodExceptionTable, newMethodIsSynchronized);
+            if (monitor != null) {
+                monitors.enter(thread, monitor);
+            }
+            try {
+                codeExecution(newMethodOp, newMethodExceptionTable);
+            } finally {
+                if (monitor != null) {
+                    monitors.exit(thread, monitor);
+                }
+            }
         } catch (ClassInitializingException ignored) {
             throw new VMExecutionException("failed to getMethod  " + method + " method");
         }
@@ -2653,7 +2753,7 @@ public final class CodeExecutionEngine {
                 MetaClass meta = loader.linkClass(bundle);
                 thread.runtimeVM().methodScope().addMetaClass(meta);
                 loader.loadInheritanceChain(meta.superClassName);
-                loader.initializeClass(meta);
+                loader.completeLinking(meta);
             } catch (ClassInitializingException | ClassLinkingException | ClassLoadingException e) {
                 throw new VMExecutionException("can not load class" + className);
             }
@@ -2746,6 +2846,18 @@ public final class CodeExecutionEngine {
             return stackRef.currentFrame().popOperand().toFloat();
         }
 
+        /***************************************************************
+         *  arguments of an invocation, the last one comes first
+         *
+         ***************************************************************/
+        private YObject[] popArguments(int count) {
+            YObject[] args = new YObject[count];
+            for (int f = 0; f < count; f++) {
+                args[f] = stackRef.currentFrame().popOperand();
+            }
+            return args;
+        }
+
         private YArray popArray() {
             return (YArray) stackRef.currentFrame().popOperand();
         }
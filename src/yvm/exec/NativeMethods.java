@@ -0,0 +1,155 @@
+package yvm.exec;
+
+import runtime.RuntimeVM;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.monitor.Monitors;
+import runtime.safepoint.Safepoint;
+import ycloader.YClassLoader;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***************************************************************
+ *  native methods implemented by the vm itself, they are looked
+ *  up by declaring class, method name and descriptor.
+ *
+ *  Arguments are passed in the order they are popped from operand
+ *  stack, i.e. the last parameter comes first. The receiver is
+ *  null for static methods, and a native method returns null if
+ *  its return type is void
+ *
+ ***************************************************************/
+public class NativeMethods {
+    private static final HashMap<String, NativeMethod> methods = new HashMap<>();
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    static {
+        register("java/lang/Object", "hashCode", "()I",
+                (thread, receiver, args) -> YObject.derivedFrom(receiver.identityHashCode()));
+        register("java/lang/System", "identityHashCode", "(Ljava/lang/Object;)I",
+                (thread, receiver, args) -> YObject.derivedFrom(args[0] == null ? 0 : args[0].identityHashCode()));
+        register("java/lang/Object", "wait", "(J)V", NativeMethods::objectWait);
+        register("java/lang/Thread", "start0", "()V", NativeMethods::threadStart);
+        register("java/lang/Thread", "isAlive", "()Z", (thread, receiver, args) ->
+                YObject.derivedFrom(thread.runtimeVM().threadOf(receiver) != null));
+        register("java/lang/Thread", "currentThread", "()Ljava/lang/Thread;",
+                (thread, receiver, args) -> thread.threadObject());
+        register("java/lang/Thread", "sleep", "(J)V", NativeMethods::threadSleep);
+        register("java/lang/Thread", "yield", "()V", (thread, receiver, args) -> {
+            Thread.yield();
+            return null;
+        });
+        register("java/lang/Thread", "interrupt0", "()V", (thread, receiver, args) -> {
+            YThread target = thread.runtimeVM().threadOf(receiver);
+            if (target != null) {
+                target.interrupt();
+            }
+            return null;
+        });
+        register("java/lang/Thread", "isInterrupted", "(Z)Z", (thread, receiver, args) -> {
+            YThread target = receiver == thread.threadObject() ? thread : thread.runtimeVM().threadOf(receiver);
+            return YObject.derivedFrom(target != null && target.isInterrupted(args[0].toBoolean()));
+        });
+        register("java/lang/Object", "notify", "()V", (thread, receiver, args) -> {
+            thread.runtimeVM().monitors().notify(thread, receiver);
+            return null;
+        });
+        register("java/lang/Object", "notifyAll", "()V", (thread, receiver, args) -> {
+            thread.runtimeVM().monitors().notifyAll(thread, receiver);
+            return null;
+        });
+        UnsafeIntrinsics.registerAll();
+    }
+
+    /***************************************************************
+     *  an interrupted wait returns as a spurious wakeup, the host
+     *  thread keeps its interrupt status
+     *
+     ***************************************************************/
+    private static YObject objectWait(YThread thread, YObject receiver, YObject[] args) {
+        long millis = YObject.numericValue(args[0]);
+        if (millis < 0) {
+            throw new IllegalArgumentException("timeout value is negative");
+        }
+        try {
+            thread.runtimeVM().monitors().wait(thread, receiver, millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /***************************************************************
+     *  an interrupted sleep returns early and keeps the interrupt
+     *  status, as an interrupted wait does
+     *
+     ***************************************************************/
+    private static YObject threadSleep(YThread thread, YObject receiver, YObject[] args) {
+        long millis = YObject.numericValue(args[0]);
+        if (millis < 0) {
+            throw new IllegalArgumentException("timeout value is negative");
+        }
+        Safepoint safepoint = thread.runtimeVM().safepoint();
+        safepoint.enterSafeRegion(thread);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            safepoint.leaveSafeRegion(thread);
+        }
+        return null;
+    }
+
+    /***************************************************************
+     *  start a guest thread on its own host thread, with its own
+     *  stack and engine, it runs run() of the thread object. When it
+     *  terminates, threads which join it are notified through the
+     *  monitor of the thread object as Thread.join() expects
+     *
+     ***************************************************************/
+    private static YObject threadStart(YThread thread, YObject receiver, YObject[] args) {
+        RuntimeVM runtimeVM = thread.runtimeVM();
+        YThread started = new YThread("Thread-" + threadNumber.getAndIncrement(), runtimeVM);
+        if (!runtimeVM.addThread(started, receiver)) {
+            throw new IllegalThreadStateException("thread is already started");
+        }
+        started.runTask(() -> {
+            try {
+                YClassLoader loader = new YClassLoader();
+                loader.associateThread(started);
+                CodeExecutionEngine engine = new CodeExecutionEngine();
+                engine.ignite(receiver.getMetaClassReference(), loader);
+                engine.executeMethod(receiver, "run");
+            } finally {
+                Monitors monitors = runtimeVM.monitors();
+                monitors.enter(started, receiver);
+                try {
+                    runtimeVM.threadTerminated(started);
+                    monitors.notifyAll(started, receiver);
+                } finally {
+                    monitors.exit(started, receiver);
+                }
+            }
+        });
+        return null;
+    }
+
+    public static synchronized void register(String className, String methodName, String descriptor,
+                                             NativeMethod method) {
+        methods.put(className + "." + methodName + descriptor, method);
+    }
+
+    /***************************************************************
+     *  the native method, or null if the vm doesn't implement it
+     *
+     ***************************************************************/
+    public static synchronized NativeMethod find(String className, String methodName, String descriptor) {
+        return methods.get(className + "." + methodName + descriptor);
+    }
+
+    public interface NativeMethod {
+        YObject invoke(YThread thread, YObject receiver, YObject[] args);
+    }
+}
@@ -0,0 +1,156 @@
+package yvm.exec;
+
+import runtime.YHeap;
+import runtime.YObject;
+import runtime.YThread;
+import runtime.rtexception.VMExecutionException;
+
+import java.lang.invoke.VarHandle;
+
+/***************************************************************
+ *  sun/misc/Unsafe intrinsics which java/util/concurrent is built
+ *  on, they operate on slots of YObject and YArray directly.
+ *
+ *  An offset is the index of a slot, i.e. arrayBaseOffset() is 0
+ *  and arrayIndexScale() is 1 for every array class, so offsets
+ *  computed by guest code as base + (index << shift) address array
+ *  components. Absolute addresses are not supported.
+ *
+ *  Only array components can be addressed for now. Guest code gets
+ *  a field offset from objectFieldOffset() with a reflected Field,
+ *  but there is no guest reflection, and getfield/putfield address
+ *  a field by the index of its field ref in the constant pool of
+ *  the accessing class, so a field has no single slot an offset
+ *  could name. objectFieldOffset() fails with an error instead of
+ *  returning nothing.
+ *
+ *  Arguments come in pop order as every native method, e.g. for
+ *  compareAndSwapInt(o, offset, expected, x) args are
+ *      [x, expected, offset, o]
+ *
+ ***************************************************************/
+final class UnsafeIntrinsics {
+    private static final String UNSAFE = "sun/misc/Unsafe";
+
+    private UnsafeIntrinsics() {
+    }
+
+    static void registerAll() {
+        NativeMethods.register(UNSAFE, "arrayBaseOffset", "(Ljava/lang/Class;)I",
+                (thread, receiver, args) -> YObject.derivedFrom(0));
+        NativeMethods.register(UNSAFE, "arrayIndexScale", "(Ljava/lang/Class;)I",
+                (thread, receiver, args) -> YObject.derivedFrom(1));
+
+        NativeMethods.register(UNSAFE, "objectFieldOffset", "(Ljava/lang/reflect/Field;)J",
+                (thread, receiver, args) -> {
+                    throw new VMExecutionException("sun/misc/Unsafe.objectFieldOffset() is not supported, "
+                            + "only array components can be addressed");
+                });
+
+        NativeMethods.register(UNSAFE, "compareAndSwapInt", "(Ljava/lang/Object;JII)Z",
+                UnsafeIntrinsics::compareAndSwapPrimitive);
+        NativeMethods.register(UNSAFE, "compareAndSwapLong", "(Ljava/lang/Object;JJJ)Z",
+                UnsafeIntrinsics::compareAndSwapPrimitive);
+        NativeMethods.register(UNSAFE, "compareAndSwapObject",
+                "(Ljava/lang/Object;JLjava/lang/Object;Ljava/lang/Object;)Z",
+                UnsafeIntrinsics::compareAndSwapObject);
+
+        for (String type : new String[]{"Int", "Long", "Object"}) {
+            String descriptor = type.equals("Int") ? "I" : type.equals("Long") ? "J" : "Ljava/lang/Object;";
+            boolean reference = type.equals("Object");
+            NativeMethods.register(UNSAFE, "get" + type + "Volatile", "(Ljava/lang/Object;J)" + descriptor,
+                    (thread, receiver, args) -> target(args[1], slot(args[0])).getSlotVolatile(slot(args[0])));
+            NativeMethods.register(UNSAFE, "put" + type + "Volatile", "(Ljava/lang/Object;J" + descriptor + ")V",
+                    (thread, receiver, args) -> {
+                        int slot = slot(args[1]);
+                        YObject o = target(args[2], slot);
+                        if (reference) {
+                            writeBarrier(thread, o, slot, args[0]);
+                        }
+                        o.setSlotVolatile(slot, args[0]);
+                        return null;
+                    });
+            NativeMethods.register(UNSAFE, "putOrdered" + type, "(Ljava/lang/Object;J" + descriptor + ")V",
+                    (thread, receiver, args) -> {
+                        int slot = slot(args[1]);
+                        YObject o = target(args[2], slot);
+                        if (reference) {
+                            writeBarrier(thread, o, slot, args[0]);
+                        }
+                        o.setSlotRelease(slot, args[0]);
+                        return null;
+                    });
+        }
+
+        NativeMethods.register(UNSAFE, "park", "(ZJ)V", (thread, receiver, args) -> {
+            thread.park(args[1].toBoolean(), YObject.numericValue(args[0]));
+            return null;
+        });
+        NativeMethods.register(UNSAFE, "unpark", "(Ljava/lang/Object;)V", (thread, receiver, args) -> {
+            YThread target = args[0] == thread.threadObject() ? thread : thread.runtimeVM().threadOf(args[0]);
+            if (target != null) {
+                target.unpark();
+            }
+            return null;
+        });
+
+        NativeMethods.register(UNSAFE, "loadFence", "()V", (thread, receiver, args) -> {
+            VarHandle.acquireFence();
+            return null;
+        });
+        NativeMethods.register(UNSAFE, "storeFence", "()V", (thread, receiver, args) -> {
+            VarHandle.releaseFence();
+            return null;
+        });
+        NativeMethods.register(UNSAFE, "fullFence", "()V", (thread, receiver, args) -> {
+            VarHandle.fullFence();
+            return null;
+        });
+    }
+
+    private static YObject compareAndSwapPrimitive(YThread thread, YObject receiver, YObject[] args) {
+        int slot = slot(args[2]);
+        YObject o = target(args[3], slot);
+        return YObject.derivedFrom(o.compareAndSetPrimitiveSlot(slot, YObject.numericValue(args[1]), args[0]));
+    }
+
+    /***************************************************************
+     *  the write barrier sees the value which is overwritten, if the
+     *  CAS fails it has only logged a value which is still reachable
+     *
+     ***************************************************************/
+    private static YObject compareAndSwapObject(YThread thread, YObject receiver, YObject[] args) {
+        int slot = slot(args[2]);
+        YObject o = target(args[3], slot);
+        YObject expected = args[1];
+        if (o.getSlotVolatile(slot) != expected) {
+            return YObject.derivedFrom(false);
+        }
+        writeBarrier(thread, o, slot, args[0]);
+        return YObject.derivedFrom(o.compareAndSetSlot(slot, expected, args[0]));
+    }
+
+    private static void writeBarrier(YThread thread, YObject o, int slot, YObject value) {
+        YHeap heap = thread.runtimeVM().heap();
+        heap.writeBarrier(thread, o, o.getSlotVolatile(slot), value);
+    }
+
+    /***************************************************************
+     *  object whose slot is accessed, it must be an object with that
+     *  field or an array with that component
+     *
+     ***************************************************************/
+    private static YObject target(YObject o, int slot) {
+        if (o == null) {
+            throw new VMExecutionException("absolute address access of sun/misc/Unsafe is not supported");
+        }
+        if (!o.hasSlot(slot)) {
+            throw new VMExecutionException("sun/misc/Unsafe offset " + slot + " is not a slot of " + o.typeName());
+        }
+        return o;
+    }
+
+    private static int slot(YObject offset) {
+        return (int) YObject.numericValue(offset);
+    }
+}